@@ -0,0 +1,343 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript;
+
+import ch.njol.skript.config.Node;
+import ch.njol.skript.config.SectionNode;
+import ch.njol.skript.lang.Section;
+import ch.njol.skript.lang.SkriptParser;
+import ch.njol.skript.lang.Statement;
+import ch.njol.skript.lang.SyntaxElement;
+import ch.njol.skript.lang.SyntaxElementInfo;
+import ch.njol.skript.lang.TriggerItem;
+import ch.njol.skript.lang.parser.ParserInstance;
+import ch.njol.util.NonNullPair;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.jetbrains.annotations.Nullable;
+import org.skriptlang.skript.lang.script.Script;
+import org.skriptlang.skript.lang.script.ScriptData;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Supplier;
+
+/**
+ * Remembers as which syntax element and pattern each line of a script was parsed, see the 'enable script caching' option.
+ * <p>
+ * When a script is loaded again without having been changed, and with the same syntax elements registered,
+ * each line is first parsed as only the pattern it matched the last time, which skips trying all other patterns.
+ * Should that fail, the line is parsed normally, so an outdated hint only costs the time of one failed match.
+ * <p>
+ * The hints are stored in {@value #FILE_NAME} in Skript's data folder, keyed by the hash of each script's content.
+ */
+final class ScriptCache {
+
+	private ScriptCache() {}
+
+	private static final String FILE_NAME = "script-cache.dat";
+
+	private static final int VERSION = 1;
+
+	/**
+	 * The hints read from disk per script hash, or null if they haven't been read yet.
+	 */
+	@Nullable
+	private static Map<String, Map<Integer, Hint>> stored;
+
+	/**
+	 * The registered statements and sections, which hints refer to by index.
+	 */
+	@Nullable
+	private static SyntaxElementInfo<?>[] statements, sections;
+
+	/**
+	 * A hash of the patterns of all registered statements and sections, so hints aren't used after those changed.
+	 */
+	@Nullable
+	private static String fingerprint;
+
+	private static final AtomicInteger hits = new AtomicInteger(), lines = new AtomicInteger();
+
+	/**
+	 * The syntax element (by index in {@link #statements} or {@link #sections}) and pattern a line matched.
+	 */
+	static final class Hint {
+
+		final int element;
+		final int pattern;
+
+		Hint(int element, int pattern) {
+			this.element = element;
+			this.pattern = pattern;
+		}
+
+	}
+
+	/**
+	 * The hints of one script, stored as the {@link ScriptData} of the {@link Script}.
+	 */
+	static final class ScriptHints implements ScriptData {
+
+		final String hash;
+
+		/**
+		 * The hints from the last time this script was loaded, by line number.
+		 */
+		final Map<Integer, Hint> previous;
+
+		/**
+		 * The hints recorded while loading this script now, which are stored when saving.
+		 */
+		final Map<Integer, Hint> recorded = new ConcurrentHashMap<>();
+
+		ScriptHints(String hash, Map<Integer, Hint> previous) {
+			this.hash = hash;
+			this.previous = previous;
+		}
+
+	}
+
+	static boolean isEnabled() {
+		return SkriptConfig.enableScriptCaching.value();
+	}
+
+	/**
+	 * Parses a line of code as a statement, using its hint if there is one.
+	 *
+	 * @see Statement#parse(String, String)
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	static Statement parseStatement(String expr, Node node, String defaultError) {
+		ScriptHints hints = getHints();
+		if (hints == null || node.getLine() < 0)
+			return Statement.parse(expr, defaultError);
+		return parse(hints, node.getLine(), statements,
+			(info, pattern) -> SkriptParser.parse(expr, (SyntaxElementInfo<? extends Statement>) info, pattern),
+			() -> Statement.parse(expr, defaultError));
+	}
+
+	/**
+	 * Parses a line of code as a section, using its hint if there is one.
+	 *
+	 * @see Section#parse(String, String, SectionNode, List)
+	 */
+	@Nullable
+	@SuppressWarnings("unchecked")
+	static Section parseSection(String expr, SectionNode node, List<TriggerItem> items, String defaultError) {
+		ScriptHints hints = getHints();
+		if (hints == null || node.getLine() < 0)
+			return Section.parse(expr, defaultError, node, items);
+		return parse(hints, node.getLine(), sections,
+			(info, pattern) -> Section.parse(expr, (SyntaxElementInfo<? extends Section>) info, pattern, node, items),
+			() -> Section.parse(expr, defaultError, node, items));
+	}
+
+	/**
+	 * Parses a line as only the syntax element and pattern of its hint, if it has one.
+	 * Should that fail, the line is parsed normally and the syntax element it matched is recorded instead.
+	 *
+	 * @param line The line number
+	 * @param infos The syntax elements the hints refer to
+	 * @param hinted Parses the line as only the given syntax element and pattern
+	 * @param parser Parses the line normally
+	 */
+	@Nullable
+	static <T extends SyntaxElement> T parse(ScriptHints hints, int line, SyntaxElementInfo<?>[] infos,
+			BiFunction<SyntaxElementInfo<?>, Integer, @Nullable T> hinted, Supplier<@Nullable T> parser) {
+		lines.incrementAndGet();
+
+		Hint hint = hints.previous.get(line);
+		if (hint != null && hint.element < infos.length) {
+			T element = hinted.apply(infos[hint.element], hint.pattern);
+			if (element != null) {
+				hits.incrementAndGet();
+				hints.recorded.put(line, hint);
+				return element;
+			}
+		}
+
+		ParserInstance.get().setLastMatch(null);
+		T element = parser.get();
+		record(hints, line, element, infos);
+		return element;
+	}
+
+	/**
+	 * Records as which of the given syntax elements the given line was parsed.
+	 * Lines parsed in other ways, e.g. function calls, are not recorded.
+	 */
+	private static void record(ScriptHints hints, int line, @Nullable SyntaxElement element, SyntaxElementInfo<?>[] infos) {
+		NonNullPair<SyntaxElementInfo<?>, Integer> match = ParserInstance.get().getLastMatch();
+		if (element == null || match == null || match.getFirst().getElementClass() != element.getClass())
+			return;
+		for (int i = 0; i < infos.length; i++) {
+			if (infos[i] == match.getFirst()) {
+				hints.recorded.put(line, new Hint(i, match.getSecond()));
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return The hints of the script currently being loaded, or null if caching is disabled or the script has no file.
+	 */
+	@Nullable
+	private static ScriptHints getHints() {
+		if (!isEnabled())
+			return null;
+		ParserInstance parser = ParserInstance.get();
+		if (!parser.isActive())
+			return null;
+		Script script = parser.getCurrentScript();
+		ScriptHints hints = script.getData(ScriptHints.class);
+		if (hints != null)
+			return hints;
+
+		File file = script.getConfig().getFile();
+		if (file == null)
+			return null;
+		String hash;
+		try {
+			hash = Hashing.sha256().hashBytes(Files.readAllBytes(file.toPath())).toString();
+		} catch (IOException e) {
+			return null;
+		}
+		Map<Integer, Hint> previous = getStored().get(hash);
+		hints = new ScriptHints(hash, previous != null ? previous : Collections.emptyMap());
+		script.addData(hints);
+		return hints;
+	}
+
+	/**
+	 * Reads the stored hints if they haven't been read yet.
+	 * This is only done once all syntax elements are registered, as that is when scripts are first loaded.
+	 */
+	private static synchronized Map<String, Map<Integer, Hint>> getStored() {
+		if (stored != null)
+			return stored;
+
+		statements = Skript.getStatements().toArray(new SyntaxElementInfo<?>[0]);
+		sections = Skript.getSections().toArray(new SyntaxElementInfo<?>[0]);
+		Hasher hasher = Hashing.sha256().newHasher();
+		hasher.putString(Skript.getVersion().toString(), StandardCharsets.UTF_8);
+		for (SyntaxElementInfo<?>[] infos : new SyntaxElementInfo<?>[][] {statements, sections}) {
+			hasher.putInt(infos.length);
+			for (SyntaxElementInfo<?> info : infos) {
+				hasher.putString(info.getElementClass().getName(), StandardCharsets.UTF_8);
+				for (String pattern : info.patterns)
+					hasher.putInt(pattern.length()).putString(pattern, StandardCharsets.UTF_8);
+			}
+		}
+		fingerprint = hasher.hash().toString();
+
+		stored = new HashMap<>();
+		File file = new File(Skript.getInstance().getDataFolder(), FILE_NAME);
+		if (!file.exists())
+			return stored;
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+			if (in.readInt() != VERSION || !in.readUTF().equals(fingerprint))
+				return stored; // made with other syntax elements, so it can't be used
+			int scripts = in.readInt();
+			for (int i = 0; i < scripts; i++) {
+				String hash = in.readUTF();
+				int size = in.readInt();
+				Map<Integer, Hint> hints = new HashMap<>(size * 2);
+				for (int j = 0; j < size; j++)
+					hints.put(in.readInt(), new Hint(in.readInt(), in.readInt()));
+				stored.put(hash, hints);
+			}
+		} catch (IOException e) {
+			stored.clear();
+			Skript.warning("The script cache could not be read and will be rebuilt: " + e.getMessage());
+		}
+		return stored;
+	}
+
+	/**
+	 * Forgets the hints of the given script, so they are read again for its current contents.
+	 */
+	static void invalidate(Script script) {
+		script.removeData(ScriptHints.class);
+	}
+
+	/**
+	 * Writes the hints of all loaded scripts to disk, replacing the previously stored hints.
+	 */
+	static synchronized void save() {
+		if (!isEnabled() || fingerprint == null)
+			return;
+
+		if (Skript.logHigh() && lines.get() > 0)
+			Skript.info("Parsed " + hits.get() + " of " + lines.get() + " lines using the script cache");
+		hits.set(0);
+		lines.set(0);
+
+		Map<String, Map<Integer, Hint>> hints = new HashMap<>();
+		for (Script script : ScriptLoader.getLoadedScripts()) {
+			ScriptHints scriptHints = script.getData(ScriptHints.class);
+			if (scriptHints != null)
+				hints.put(scriptHints.hash, new HashMap<>(scriptHints.recorded));
+		}
+		stored = hints;
+
+		File file = new File(Skript.getInstance().getDataFolder(), FILE_NAME);
+		File temp = new File(file.getPath() + ".tmp");
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)))) {
+			out.writeInt(VERSION);
+			out.writeUTF(fingerprint);
+			out.writeInt(hints.size());
+			for (Map.Entry<String, Map<Integer, Hint>> script : hints.entrySet()) {
+				out.writeUTF(script.getKey());
+				out.writeInt(script.getValue().size());
+				for (Map.Entry<Integer, Hint> hint : script.getValue().entrySet()) {
+					out.writeInt(hint.getKey());
+					out.writeInt(hint.getValue().element);
+					out.writeInt(hint.getValue().pattern);
+				}
+			}
+		} catch (IOException e) {
+			Skript.warning("The script cache could not be saved: " + e.getMessage());
+			return;
+		}
+		try {
+			Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			Skript.warning("The script cache could not be saved: " + e.getMessage());
+		}
+	}
+
+}
@@ -19,9 +19,11 @@
 package ch.njol.skript;
 
 import ch.njol.skript.config.Config;
+import ch.njol.skript.config.EntryNode;
 import ch.njol.skript.config.Node;
 import ch.njol.skript.config.SectionNode;
 import ch.njol.skript.config.SimpleNode;
+import ch.njol.skript.config.VoidNode;
 import ch.njol.skript.events.util.PreScriptLoadEvent;
 import ch.njol.skript.lang.*;
 import ch.njol.skript.lang.parser.ParserInstance;
@@ -30,6 +32,7 @@ import ch.njol.skript.log.LogEntry;
 import ch.njol.skript.log.RetainingLogHandler;
 import ch.njol.skript.log.SkriptLogger;
 import ch.njol.skript.sections.SecLoop;
+import ch.njol.skript.structures.StructEvent;
 import ch.njol.skript.structures.StructOptions.OptionsData;
 import ch.njol.skript.util.ExceptionUtils;
 import ch.njol.skript.util.SkriptColor;
@@ -40,8 +43,11 @@ import ch.njol.util.Kleenean;
 import ch.njol.util.NonNullPair;
 import ch.njol.util.OpenCloseable;
 import ch.njol.util.StringUtils;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 import org.jetbrains.annotations.Nullable;
 import org.skriptlang.skript.lang.script.Script;
+import org.skriptlang.skript.lang.script.ScriptData;
 import org.skriptlang.skript.lang.structure.Structure;
 import dev.ultreon.baseskript.BaseSkript;
 
@@ -49,10 +55,15 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -474,7 +485,8 @@ public class ScriptLoader {
 		
 		ScriptInfo scriptInfo = new ScriptInfo();
 
-		List<NonNullPair<Script, List<Structure>>> scripts = new ArrayList<NonNullPair<Script, List<Structure>>>();
+		// Filled by the async loaders when parallel loading is enabled
+		List<NonNullPair<Script, List<Structure>>> scripts = Collections.synchronizedList(new ArrayList<NonNullPair<Script, List<Structure>>>());
 
 		List<CompletableFuture<Void>> scriptInfoFutures = new ArrayList<CompletableFuture<Void>>();
 		for (Config config : configs) {
@@ -484,14 +496,16 @@ public class ScriptLoader {
 			CompletableFuture<Void> future = makeFuture(() -> {
 				NonNullPair<Script, List<Structure>> pair = loadScript(config);
 				scripts.add(pair);
-				scriptInfo.add(new ScriptInfo(1, pair.getSecond().size()));
+				synchronized (scriptInfo) {
+					scriptInfo.add(new ScriptInfo(1, pair.getSecond().size()));
+				}
 				return null;
 			}, openCloseable);
 			
 			scriptInfoFutures.add(future);
 		}
 		
-		return CompletableFuture.allOf(scriptInfoFutures.toArray(new CompletableFuture[0]))
+		return CompletableFuture.allOf(scriptInfoFutures.toArray(new CompletableFuture<?>[0]))
 			.thenApply(unused -> {
 				// TODO in the future this won't work when parallel loading is fixed
 				// It does now though so let's avoid calling getParser() a bunch.
@@ -533,33 +547,39 @@ public class ScriptLoader {
 					});
 					parser.setInactive();
 
-					// TODO in the future, Structure#load/Structure#postLoad should be split across multiple threads if parallel loading is enabled.
-					// However, this is not possible right now as reworks in multiple areas will be needed.
-					// For example, the "Commands" class still uses a static list for currentArguments that is cleared between loads.
-					// Until these reworks happen, limiting main loading to asynchronous (not parallel) is the only choice we have.
-
 					// loading
-					pairs.removeIf(pair -> {
-						Structure structure = pair.getSecond();
-
-						parser.setActive(pair.getFirst().getFirst());
-						parser.setCurrentStructure(structure);
-						parser.setNode(structure.getEntryContainer().getSource());
-
-						try {
-							if (!structure.load()) {
-								pair.getFirst().getSecond().remove(structure);
-								return true;
+					// Structures of the same priority are loaded in parallel if enabled, but those of one script always in order on one thread,
+					// as a Script and its data are not thread-safe. Lower priorities may be depended upon, so each priority waits for the previous.
+					Set<Structure> failed = ConcurrentHashMap.newKeySet();
+					for (List<List<NonNullPair<NonNullPair<Script, List<Structure>>, Structure>>> priority : groupByPriority(pairs)) {
+						forEachParallel(priority, scriptPairs -> {
+							ParserInstance loader = getParser();
+							try {
+								for (NonNullPair<NonNullPair<Script, List<Structure>>, Structure> pair : scriptPairs) {
+									Structure structure = pair.getSecond();
+
+									loader.setActive(pair.getFirst().getFirst());
+									loader.setCurrentStructure(structure);
+									loader.setNode(structure.getEntryContainer().getSource());
+
+									try {
+										if (!structure.load()) {
+											pair.getFirst().getSecond().remove(structure);
+											failed.add(structure);
+										}
+									} catch (Exception e) {
+										//noinspection ThrowableNotThrown
+										Skript.exception(e, "An error occurred while trying to load a Structure.");
+										pair.getFirst().getSecond().remove(structure);
+										failed.add(structure);
+									}
+								}
+							} finally {
+								loader.setInactive();
 							}
-						} catch (Exception e) {
-							//noinspection ThrowableNotThrown
-							Skript.exception(e, "An error occurred while trying to load a Structure.");
-							pair.getFirst().getSecond().remove(structure);
-							return true;
-						}
-						return false;
-					});
-					parser.setInactive();
+						}, openCloseable);
+					}
+					pairs.removeIf(pair -> failed.contains(pair.getSecond()));
 
 					// post-loading
 					pairs.removeIf(pair -> {
@@ -584,6 +604,8 @@ public class ScriptLoader {
 					});
 					parser.setInactive();
 
+					ScriptCache.save();
+
 					return scriptInfo;
 				} catch (Exception e) {
 					// Something went wrong, we need to make sure the exception is printed
@@ -596,6 +618,82 @@ public class ScriptLoader {
 			});
 	}
 
+	/**
+	 * Splits the given Script-Structure pairs, sorted by priority, into one list per priority,
+	 * containing a list of pairs per script in the order they were given.
+	 */
+	static <T extends NonNullPair<NonNullPair<Script, List<Structure>>, Structure>> List<List<List<T>>> groupByPriority(List<T> pairs) {
+		List<List<List<T>>> priorities = new ArrayList<List<List<T>>>();
+		Map<Script, List<T>> scripts = null;
+		Structure.Priority priority = null;
+		for (T pair : pairs) {
+			if (scripts == null || pair.getSecond().getPriority().compareTo(priority) != 0) {
+				if (scripts != null)
+					priorities.add(new ArrayList<List<T>>(scripts.values()));
+				scripts = new LinkedHashMap<Script, List<T>>();
+				priority = pair.getSecond().getPriority();
+			}
+			scripts.computeIfAbsent(pair.getFirst().getFirst(), script -> new ArrayList<T>()).add(pair);
+		}
+		if (scripts != null)
+			priorities.add(new ArrayList<List<T>>(scripts.values()));
+		return priorities;
+	}
+
+	/**
+	 * Performs the given action for each of the given elements.
+	 * If parallel loading is enabled, the async loaders help the calling thread with this,
+	 * otherwise the elements are handled in order on the calling thread.
+	 * <br>
+	 * The calling thread handles elements as well, and loaders that only get to help once it ran out of elements do nothing,
+	 * so this never waits for a loader that is busy waiting itself.
+	 * This is never done in parallel from the main thread, as the loaders may have to wait for it.
+	 *
+	 * @param openCloseable Opened and closed around the work of each helping loader,
+	 *                      like in {@link #makeFuture(Supplier, OpenCloseable)}.
+	 */
+	static <T> void forEachParallel(List<T> elements, Consumer<T> action, OpenCloseable openCloseable) {
+		if (!isParallel() || elements.size() < 2 || BaseSkript.isPrimaryThread()) {
+			elements.forEach(action);
+			return;
+		}
+
+		AtomicInteger next = new AtomicInteger();
+		Runnable work = () -> {
+			for (int i = next.getAndIncrement(); i < elements.size(); i = next.getAndIncrement())
+				action.accept(elements.get(i));
+		};
+
+		// Terminates once the calling thread and the loaders that started helping are done
+		Phaser phaser = new Phaser(1) {
+			@Override
+			protected boolean onAdvance(int phase, int registeredParties) {
+				return true;
+			}
+		};
+		for (int i = 1; i < Math.min(asyncLoaderSize, elements.size()); i++) {
+			loadQueue.add(() -> {
+				if (phaser.register() < 0) // Too late to help
+					return;
+				try {
+					openCloseable.open();
+					try {
+						work.run();
+					} finally {
+						openCloseable.close();
+					}
+				} catch (Throwable t) {
+					//noinspection ThrowableNotThrown
+					Skript.exception(t);
+				} finally {
+					phaser.arriveAndDeregister();
+				}
+			});
+		}
+		work.run();
+		phaser.arriveAndAwaitAdvance();
+	}
+
 	/**
 	 * Creates a script and loads the provided config into it.
 	 * @param config The config to load into a script.
@@ -609,6 +707,7 @@ public class ScriptLoader {
 		ParserInstance parser = getParser();
 		List<Structure> structures = new ArrayList<Structure>();
 		Script script = new Script(config, structures);
+		script.addData(new LoadedStructures(structures));
 		parser.setActive(script);
 
 		try {
@@ -869,18 +968,211 @@ public class ScriptLoader {
 	 * @return Info on the loaded Scripts.
 	 */
 	public static CompletableFuture<ScriptInfo> reloadScripts(Set<Script> scripts, OpenCloseable openCloseable) {
-		unloadScripts(scripts);
-
-		List<Config> configs = new ArrayList<Config>();
+		Map<Script, Config> configs = new LinkedHashMap<Script, Config>();
 		for (Script script : scripts) {
 			//noinspection ConstantConditions - getFile should never return null
 			Config config = loadStructure(script.getConfig().getFile());
-			if (config == null)
+			if (config == null) {
+				// loadStructure already unloads scripts whose file was deleted
+				Set<Script> loaded = new HashSet<Script>(scripts);
+				loaded.retainAll(loadedScripts);
+				unloadScripts(loaded);
 				return CompletableFuture.completedFuture(new ScriptInfo());
-			configs.add(config);
+			}
+			configs.put(script, config);
 		}
 
-		return loadScripts(configs, openCloseable);
+		Set<Script> unloaded = new HashSet<Script>();
+		List<Config> reloaded = new ArrayList<Config>();
+		List<CompletableFuture<ScriptInfo>> futures = new ArrayList<CompletableFuture<ScriptInfo>>();
+		for (Map.Entry<Script, Config> entry : configs.entrySet()) {
+			CompletableFuture<ScriptInfo> future = reloadChanges(entry.getKey(), entry.getValue(), openCloseable);
+			if (future != null) {
+				futures.add(future);
+			} else {
+				unloaded.add(entry.getKey());
+				reloaded.add(entry.getValue());
+			}
+		}
+
+		if (!unloaded.isEmpty()) {
+			unloadScripts(unloaded);
+			futures.add(loadScripts(reloaded, openCloseable));
+		}
+
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0]))
+			.thenApply(unused -> {
+				ScriptInfo info = new ScriptInfo();
+				for (CompletableFuture<ScriptInfo> future : futures)
+					info.add(future.join());
+				return info;
+			});
+	}
+
+	/**
+	 * The modifiable structures list of a loaded {@link Script}, as {@link Script#getStructures()} can't be modified.
+	 */
+	private static final class LoadedStructures implements ScriptData {
+
+		final List<Structure> structures;
+
+		LoadedStructures(List<Structure> structures) {
+			this.structures = structures;
+		}
+
+	}
+
+	/**
+	 * Reloads only the top-level structures of a script that changed, if they are all events.
+	 * The other structures stay loaded, so their triggers keep running throughout the reload.
+	 * @param script The loaded script.
+	 * @param config The new contents of the script.
+	 * @return Info on the reloaded script, or null if the script has to be reloaded completely,
+	 *         which is the case if anything but events was changed.
+	 */
+	@Nullable
+	private static CompletableFuture<ScriptInfo> reloadChanges(Script script, Config config, OpenCloseable openCloseable) {
+		LoadedStructures loaded = script.getData(LoadedStructures.class);
+		if (loaded == null)
+			return null;
+
+		NonNullPair<List<SectionNode>, List<Structure>> changes =
+			diffNodes(loaded.structures, structure -> structure.getEntryContainer().getSource(), config.getMainNode());
+		if (changes == null) // the error is reported by a complete reload
+			return null;
+		List<SectionNode> added = changes.getFirst();
+		List<Structure> removed = changes.getSecond();
+		for (Structure structure : removed) {
+			if (!(structure instanceof StructEvent))
+				return null;
+		}
+
+		// parse the added structures, so that anything but events can still be reloaded completely
+		ParserInstance parser = getParser();
+		List<Structure> structures = new ArrayList<Structure>();
+		RetainingLogHandler log = SkriptLogger.startRetainingLog();
+		try {
+			parser.setActive(script);
+			for (SectionNode node : added) {
+				String line = node.getKey();
+				if (line == null || !SkriptParser.validateLine(line))
+					continue;
+				line = replaceOptions(line);
+				Structure structure = Structure.parse(line, node, "Can't understand this structure: " + line);
+				if (structure == null)
+					continue;
+				if (!(structure instanceof StructEvent)) {
+					log.clear(); // reported again by the complete reload
+					return null;
+				}
+				structures.add(structure);
+			}
+		} finally {
+			parser.setInactive();
+			log.stop();
+		}
+
+		BaseSkript.getPluginManager().callEvent(new PreScriptLoadEvent(Collections.singletonList(config)));
+
+		return makeFuture(() -> {
+			log.printLog();
+			// the cached hints are by line number, which may have shifted
+			ScriptCache.invalidate(script);
+
+			ParserInstance loader = getParser();
+			loader.setActive(script);
+			for (Structure structure : removed)
+				structure.unload();
+			for (Structure structure : removed)
+				structure.postUnload();
+			loaded.structures.removeAll(removed);
+
+			structures.sort(Comparator.comparing(Structure::getPriority));
+			loadStage(loader, structures, Structure::preLoad, "preLoad");
+			loadStage(loader, structures, Structure::load, "load");
+			loadStage(loader, structures, Structure::postLoad, "postLoad");
+			loaded.structures.addAll(structures);
+			loader.setInactive();
+
+			ScriptCache.save();
+			return new ScriptInfo(1, loaded.structures.size());
+		}, openCloseable);
+	}
+
+	/**
+	 * Matches the loaded top-level elements of a script to the top-level nodes of its new contents, by their contents.
+	 * Each loaded element matches at most one node, so of several equal nodes only as many as were loaded match.
+	 * @param loaded The loaded elements.
+	 * @param sources Gets the node an element was loaded from.
+	 * @param mainNode The main node of the new contents.
+	 * @return The nodes that match no loaded element and the loaded elements that match no node,
+	 *         or null if the new contents have a top-level line that is not a section.
+	 */
+	@Nullable
+	static <T> NonNullPair<List<SectionNode>, List<T>> diffNodes(List<T> loaded, Function<T, Node> sources, SectionNode mainNode) {
+		Map<String, Deque<T>> unchanged = new HashMap<String, Deque<T>>();
+		for (T element : loaded)
+			unchanged.computeIfAbsent(hashNode(sources.apply(element)), hash -> new ArrayDeque<T>()).add(element);
+		List<SectionNode> added = new ArrayList<SectionNode>();
+		for (Node node : mainNode) {
+			if (node instanceof VoidNode)
+				continue;
+			if (!(node instanceof SectionNode))
+				return null;
+			Deque<T> matches = unchanged.get(hashNode(node));
+			if (matches == null || matches.poll() == null)
+				added.add((SectionNode) node);
+		}
+		List<T> removed = new ArrayList<T>();
+		for (Deque<T> elements : unchanged.values())
+			removed.addAll(elements);
+		return new NonNullPair<List<SectionNode>, List<T>>(added, removed);
+	}
+
+	/**
+	 * Runs one loading stage for the given structures of the active script, removing those that fail it.
+	 */
+	private static void loadStage(ParserInstance parser, List<Structure> structures, Predicate<Structure> stage, String name) {
+		structures.removeIf(structure -> {
+			parser.setCurrentStructure(structure);
+			parser.setNode(structure.getEntryContainer().getSource());
+			try {
+				return !stage.test(structure);
+			} catch (Exception e) {
+				//noinspection ThrowableNotThrown
+				Skript.exception(e, "An error occurred while trying to " + name + " a Structure.");
+				return true;
+			}
+		});
+		parser.setCurrentStructure(null);
+	}
+
+	/**
+	 * Hashes a node and its children, ignoring empty lines, comments and line numbers,
+	 * so a structure is recognised after the lines around it changed.
+	 */
+	private static String hashNode(Node node) {
+		Hasher hasher = Hashing.sha256().newHasher();
+		hashNode(node, hasher);
+		return hasher.hash().toString();
+	}
+
+	private static void hashNode(Node node, Hasher hasher) {
+		hasher.putString(node.getClass().getName(), StandardCharsets.UTF_8);
+		String key = node.getKey();
+		if (key != null)
+			hasher.putInt(key.length()).putString(key, StandardCharsets.UTF_8);
+		if (node instanceof EntryNode) {
+			String value = ((EntryNode) node).getValue();
+			hasher.putInt(value.length()).putString(value, StandardCharsets.UTF_8);
+		}
+		if (node instanceof SectionNode) {
+			for (Node child : (SectionNode) node) {
+				if (!(child instanceof VoidNode))
+					hashNode(child, hasher);
+			}
+			hasher.putInt(-1); // end of the section
+		}
 	}
 	
 	/*
@@ -926,7 +1218,7 @@ public class ScriptLoader {
 
 			if (subNode instanceof SimpleNode) {
 				long start = System.currentTimeMillis();
-				Statement stmt = Statement.parse(expr, "Can't understand this condition/effect: " + expr);
+				Statement stmt = ScriptCache.parseStatement(expr, subNode, "Can't understand this condition/effect: " + expr);
 				if (stmt == null)
 					continue;
 				long requiredTime = SkriptConfig.longParseTimeWarningThreshold.value().getMilliSeconds();
@@ -946,7 +1238,7 @@ public class ScriptLoader {
 			} else if (subNode instanceof SectionNode) {
 				TypeHints.enterScope(); // Begin conditional type hints
 
-				Section section = Section.parse(expr, "Can't understand this section: " + expr, (SectionNode) subNode, items);
+				Section section = ScriptCache.parseSection(expr, (SectionNode) subNode, items, "Can't understand this section: " + expr);
 				if (section == null)
 					continue;
 
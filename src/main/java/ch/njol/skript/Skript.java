@@ -915,6 +915,14 @@ public class Skript extends Listener implements Plugin {
 		
 		BaseSkript.getScheduler().cancelTasks(this);
 		
+		if (SkriptTimings.enabled()) {
+			try {
+				info("Timings were exported to " + SkriptTimings.export(new File(getDataFolder(), "timings")));
+			} catch (IOException e) {
+				Skript.exception(e, "Could not export timings");
+			}
+		}
+		
 		for (Closeable c : closeOnDisable) {
 			try {
 				c.close();
@@ -1014,6 +1022,11 @@ public class Skript extends Listener implements Plugin {
 		acceptRegistrations = false;
 		
 		Classes.onRegistrationsStop();
+
+		SkriptParser.compilePatterns(getStatements().iterator());
+		SkriptParser.compilePatterns(getExpressions());
+		SkriptParser.compilePatterns(getEvents().iterator());
+		SkriptParser.compilePatterns(getStructures().iterator());
 	}
 	
 	// ================ ADDONS ================
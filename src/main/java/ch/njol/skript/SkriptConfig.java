@@ -27,6 +27,7 @@ import ch.njol.skript.timings.SkriptTimings;
 import ch.njol.skript.util.FileUtils;
 import ch.njol.skript.util.Timespan;
 import ch.njol.skript.util.Version;
+import ch.njol.skript.util.VirtualThreads;
 import ch.njol.skript.variables.Variables;
 import com.ultreon.libs.events.v0.EventPriority;
 import org.jetbrains.annotations.Nullable;
@@ -133,7 +134,6 @@ public class SkriptConfig {
     public static final Option<Boolean> disableVariableStartingWithExpressionWarnings =
             new Option<Boolean>("disable starting a variable's name with an expression warnings", false);
 
-    @Deprecated
     public static final Option<Boolean> enableScriptCaching = new Option<Boolean>("enable script caching", false)
             .optional(true);
 
@@ -147,18 +147,19 @@ public class SkriptConfig {
 
     public static final Option<Boolean> enableTimings = new Option<Boolean>("enable timings", false)
             .setter(t -> {
-                if (!Skript.classExists("co.aikar.timings.Timings")) { // Check for Timings
-                    if (t) // Warn the server admin that timings won't work
-                        Skript.warning("Timings cannot be enabled! You are running Bukkit/Spigot, but Paper is required.");
-                    SkriptTimings.setEnabled(false); // Just to be sure, deactivate timings support completely
-                    return;
-                }
-                // If we get here, we can safely enable timings
-                if (t)
-                    Skript.info("Timings support enabled!");
-                SkriptTimings.setEnabled(t); // Config option will be used
+                if (t && !SkriptTimings.enabled())
+                    Skript.info("Timings enabled, they will be exported to the 'timings' folder when Skript is disabled.");
+                SkriptTimings.setEnabled(t);
             });
 
+    public static final Option<Integer> timingsSampleRate = new Option<Integer>("timings sample rate", 1)
+            .setter(SkriptTimings::setSampleRate)
+            .optional(true);
+
+    public static final Option<Boolean> useVirtualThreads = new Option<Boolean>("use virtual threads", false)
+            .setter(VirtualThreads::setEnabled)
+            .optional(true);
+
     public static final Option<Boolean> caseInsensitiveVariables = new Option<Boolean>("case-insensitive variables", true)
             .setter(t -> Variables.caseInsensitiveVariables = t);
 
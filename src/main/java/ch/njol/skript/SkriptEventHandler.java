@@ -22,20 +22,21 @@ import ch.njol.skript.lang.SkriptEvent;
 import ch.njol.skript.lang.Trigger;
 import ch.njol.skript.timings.SkriptTimings;
 import ch.njol.skript.util.Task;
+import ch.njol.skript.util.VirtualThreads;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.Multimap;
 import com.google.common.eventbus.EventBus;
 import com.ultreon.libs.events.v0.EventPriority;
-import com.ultreon.libs.events.v0.SubscribeEvent;
 import dev.ultreon.baseskript.BaseSkript;
 import dev.ultreon.baseskript.event.Cancellable;
-import dev.ultreon.baseskript.event.EventExecutor;
 import dev.ultreon.baseskript.event.Listener;
 
+import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
 
 public final class SkriptEventHandler {
 
@@ -50,16 +51,10 @@ public final class SkriptEventHandler {
 
 		public final EventPriority priority;
 
-		public final EventExecutor executor = (listener, event) -> check(event, ((PriorityListener) listener).priority);
-
 		public PriorityListener(EventPriority priority) {
 			this.priority = priority;
 		}
 
-		@SubscribeEvent
-		public void onEvent(Object event) {
-			check(event, priority);
-		}
 	}
 
 	/**
@@ -70,18 +65,15 @@ public final class SkriptEventHandler {
 	 * @param priority The priority of the Event.
 	 */
 	private static void check(Object event, EventPriority priority) {
-		List<Trigger> triggers = getTriggers(event.getClass());
-		if (triggers.isEmpty())
+		Trigger[] triggers = getTriggers(event.getClass())[priority.ordinal()];
+		if (triggers.length == 0)
 			return;
 
 		if (Skript.logVeryHigh()) {
 			boolean hasTrigger = false;
 			for (Trigger trigger : triggers) {
 				SkriptEvent triggerEvent = trigger.getEvent();
-				if (
-					triggerEvent.getEventPriority() == priority
-						&& triggerEvent.canExecuteAsynchronously() ? triggerEvent.check(event) : Boolean.TRUE.equals(Task.callSync(() -> triggerEvent.check(event)))
-				) {
+				if (triggerEvent.canExecuteAsynchronously() ? triggerEvent.check(event) : Boolean.TRUE.equals(Task.callSync(() -> triggerEvent.check(event)))) {
 					hasTrigger = true;
 					break;
 				}
@@ -98,62 +90,118 @@ public final class SkriptEventHandler {
 			return;
 		}
 
+		boolean cancellable = event instanceof Cancellable;
+		List<Trigger> syncTriggers = null;
 		for (Trigger trigger : triggers) {
-			SkriptEvent triggerEvent = trigger.getEvent();
-			if (triggerEvent.getEventPriority() != priority)
-				continue;
-
-			// these methods need to be run on whatever thread the trigger is
-			Runnable execute = () -> {
-				Object timing = SkriptTimings.start(trigger.getDebugLabel());
-				trigger.execute(event);
-				SkriptTimings.stop(timing);
-			};
-
 			if (trigger.getEvent().canExecuteAsynchronously()) {
-				if (triggerEvent.check(event))
-					execute.run();
+				if (cancellable) { // a cancellation must be seen by the later priorities and the publisher
+					run(trigger, event);
+				} else {
+					VirtualThreads.execute(() -> run(trigger, event));
+				}
+			} else if (BaseSkript.isPrimaryThread()) {
+				run(trigger, event);
 			} else { // Ensure main thread
+				if (syncTriggers == null)
+					syncTriggers = new ArrayList<>(triggers.length);
+				syncTriggers.add(trigger);
+			}
+		}
+
+		if (syncTriggers != null) {
+			// Queued together instead of waiting for the main thread once per trigger
+			List<Trigger> queued = syncTriggers;
+			if (cancellable) { // wait for them, for the same reason
 				Task.callSync(() -> {
-					if (triggerEvent.check(event))
-						execute.run();
-					return null; // we don't care about a return value
+					for (Trigger trigger : queued)
+						run(trigger, event);
+					return null;
+				});
+			} else {
+				BaseSkript.getScheduler().runSync(() -> {
+					for (Trigger trigger : queued)
+						run(trigger, event);
 				});
 			}
 		}
 	}
 
 	/**
-	 * A utility method to get all Triggers registered under the provided Event class.
-	 * @param event The event to find pairs from.
-	 * @return A List containing all Triggers registered under the provided Event class.
+	 * Checks the provided Trigger's event and executes the Trigger if the check passes.
+	 * Must be called on whatever thread the Trigger runs on.
 	 */
-	private static List<Trigger> getTriggers(Class<? extends Object> event) {
-		return triggers.asMap().entrySet().stream()
-			.filter(entry -> entry.getKey().isAssignableFrom(event))
-			.flatMap(entry -> entry.getValue().stream())
-			.collect(Collectors.toList()); // forces evaluation now and prevents us from having to call getTriggers again if very high logging is enabled
+	private static void run(Trigger trigger, Object event) {
+		if (!trigger.getEvent().check(event))
+			return;
+		Object timing = SkriptTimings.start(trigger.getDebugLabel());
+		trigger.execute(event);
+		SkriptTimings.stop(timing);
+	}
+
+	/**
+	 * Gets the Triggers to run for the provided Event class, bucketed by the ordinal of their {@link EventPriority}.
+	 * The result is computed once per Event class and cached in {@link #dispatch} until a Trigger is (un)registered.
+	 * @param event The event to find Triggers for.
+	 * @return The Triggers registered under the provided Event class or one of its supertypes, per priority.
+	 */
+	static Trigger[][] getTriggers(Class<? extends Object> event) {
+		Trigger[][] buckets = dispatch.get(event);
+		if (buckets != null)
+			return buckets;
+
+		synchronized (triggers) {
+			buckets = dispatch.get(event);
+			if (buckets != null)
+				return buckets;
+
+			List<List<Trigger>> lists = new ArrayList<>(PRIORITIES.length);
+			for (int i = 0; i < PRIORITIES.length; i++)
+				lists.add(new ArrayList<>());
+			for (Entry<Class<? extends Object>, Trigger> entry : triggers.entries()) {
+				if (entry.getKey().isAssignableFrom(event))
+					lists.get(entry.getValue().getEvent().getEventPriority().ordinal()).add(entry.getValue());
+			}
+
+			buckets = new Trigger[PRIORITIES.length][];
+			for (int i = 0; i < PRIORITIES.length; i++) {
+				List<Trigger> list = lists.get(i);
+				buckets[i] = list.isEmpty() ? NO_TRIGGERS : list.toArray(NO_TRIGGERS);
+			}
+			dispatch.put(event, buckets);
+			return buckets;
+		}
 	}
 
+	private static final EventPriority[] PRIORITIES = EventPriority.values();
+
+	private static final Trigger[] NO_TRIGGERS = new Trigger[0];
+
+	/**
+	 * Caches the result of {@link #getTriggers(Class)} per concrete Event class.
+	 * Only modified while holding the lock of {@link #triggers}, and cleared whenever that Multimap changes.
+	 */
+	private static final Map<Class<? extends Object>, Trigger[][]> dispatch = new ConcurrentHashMap<>();
+
 	/**
 	 * Stores one {@link PriorityListener} per {@link EventPriority}.
 	 */
 	private static final PriorityListener[] listeners;
 
 	static {
-		EventPriority[] priorities = EventPriority.values();
-		listeners = new PriorityListener[priorities.length];
-		for (int i = 0; i < priorities.length; i++) {
-			listeners[i] = new PriorityListener(priorities[i]);
+		listeners = new PriorityListener[PRIORITIES.length];
+		for (int i = 0; i < PRIORITIES.length; i++) {
+			listeners[i] = new PriorityListener(PRIORITIES[i]);
 		}
 
+		// Every published event goes through check once per priority, which finds its triggers in the dispatch cache
 		for (PriorityListener listener : listeners)
-			BaseSkript.getEventBus().subscribe(listener);
+			BaseSkript.getEventBus().subscribe(listener.priority, false, Object.class, event -> check(event, listener.priority));
 	}
 
 	/**
 	 * A Multimap tracking what Triggers are paired with what Events.
 	 * Each Event effectively maps to an ArrayList of Triggers.
+	 * Modifications are synchronized on this Multimap and invalidate {@link #dispatch}.
 	 */
 	private static final Multimap<Class<? extends Object>, Trigger> triggers = ArrayListMultimap.create();
 
@@ -171,7 +219,6 @@ public final class SkriptEventHandler {
 	}
 
 	/**
-	 * Registers a {@link PriorityListener} with Bukkit for the provided Event.
 	 * Marks that the provided Trigger should be executed when the provided Event occurs.
 	 * @param trigger The Trigger to run when the Event occurs.
 	 * @param event The Event to listen for.
@@ -179,12 +226,11 @@ public final class SkriptEventHandler {
 	 * @see #unregisterBukkitEvents(Trigger)
 	 */
 	public static void registerBukkitEvent(Trigger trigger, Class<? extends Object> event) {
-
-		EventPriority priority = trigger.getEvent().getEventPriority();
-
-		if (!isEventRegistered(event, trigger)) { // Check if event is registered
+		synchronized (triggers) {
+			if (isEventRegistered(event, trigger)) // Check if event is registered
+				return;
 			triggers.put(event, trigger);
-			BaseSkript.getEventBus().subscribe(priority, false, event, o -> check(o, priority));
+			dispatch.clear();
 		}
 	}
 
@@ -200,30 +246,13 @@ public final class SkriptEventHandler {
 	 * @param trigger The Trigger to unregister events for.
 	 */
 	public static void unregisterBukkitEvents(Trigger trigger) {
-		Iterator<Entry<Class<? extends Object>, Trigger>> entryIterator = triggers.entries().iterator();
-		entryLoop: while (entryIterator.hasNext()) {
-			Entry<Class<? extends Object>, Trigger> entry = entryIterator.next();
-			if (entry.getValue() != trigger)
-				continue;
-			Class<? extends Object> event = entry.getKey();
-
-			// Remove the trigger from the map
-			entryIterator.remove();
-
-			// check if we can unregister the listener
-			EventPriority priority = trigger.getEvent().getEventPriority();
-			for (Trigger eventTrigger : triggers.get(event)) {
-				if (eventTrigger.getEvent().getEventPriority() == priority)
-					continue entryLoop;
-			}
-
-			// We can attempt to unregister this listener
-			Skript skript = Skript.getInstance();
-			for (PriorityListener listener : listeners) {
-				if (listener.priority != priority)
-					continue;
-				BaseSkript.getEventBus().unsubscribe(listener);
+		synchronized (triggers) {
+			Iterator<Entry<Class<? extends Object>, Trigger>> entryIterator = triggers.entries().iterator();
+			while (entryIterator.hasNext()) {
+				if (entryIterator.next().getValue() == trigger)
+					entryIterator.remove();
 			}
+			dispatch.clear();
 		}
 	}
 }
@@ -27,16 +27,13 @@ import ch.njol.skript.lang.*;
 import ch.njol.skript.lang.SkriptParser.ParseResult;
 import ch.njol.skript.timings.SkriptTimings;
 import ch.njol.skript.util.Timespan;
+import ch.njol.skript.util.VirtualThreads;
 import ch.njol.skript.variables.Variables;
 import ch.njol.util.Kleenean;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import dev.ultreon.baseskript.BaseSkript;
 
-import java.util.Collections;
-import java.util.Set;
-import java.util.WeakHashMap;
-
 @Name("Delay")
 @Description("Delays the script's execution by a given timespan. Please note that delays are not persistent, e.g. trying to create a tempban script with <code>ban player → wait 7 days → unban player</code> will not work if you restart your server anytime within these 7 days. You also have to be careful even when using small delays!")
 @Examples({
@@ -76,7 +73,8 @@ public class Delay extends Effect {
 		long start = Skript.debug() ? System.nanoTime() : 0;
 		TriggerItem next = getNext();
 		if (next != null && Skript.getInstance().isEnabled()) { // See https://github.com/SkriptLang/Skript/issues/3702
-			addDelayedEvent(event);
+			ExecutionContext context = ExecutionContext.of(event);
+			context.setDelayed();
 
 			Timespan duration = this.duration.getSingle(event);
 			if (duration == null)
@@ -85,25 +83,45 @@ public class Delay extends Effect {
 			// Back up local variables
 			Object localVars = Variables.removeLocals(event);
 			
-			BaseSkript.getScheduler().scheduleSyncDelayedTask(Skript.getInstance(), () -> {
+			Runnable continuation = () -> {
 				Skript.debug(getIndentation() + "... continuing after " + (System.nanoTime() - start) / 1_000_000_000. + "s");
 
-				// Re-set local variables
-				if (localVars != null)
-					Variables.setLocalVariables(event, localVars);
-
-				Object timing = null; // Timings reference must be kept so that it can be stopped after TriggerItem execution
-				if (SkriptTimings.enabled()) { // getTrigger call is not free, do it only if we must
-					Trigger trigger = getTrigger();
-					if (trigger != null)
-						timing = SkriptTimings.start(trigger.getDebugLabel());
+				context.enter();
+				try {
+					// Re-set local variables
+					if (localVars != null)
+						Variables.setLocalVariables(event, localVars);
+
+					Object timing = null; // Timings reference must be kept so that it can be stopped after TriggerItem execution
+					if (SkriptTimings.enabled()) { // getTrigger call is not free, do it only if we must
+						Trigger trigger = getTrigger();
+						if (trigger != null)
+							timing = SkriptTimings.start(trigger.getDebugLabel());
+					}
+
+					int delays = context.getDelays();
+					TriggerItem.walk(next, event);
+					// Clean up local vars, unless another delay took them with it and may already have put them back
+					if (context.getDelays() == delays)
+						Variables.removeLocals(event);
+
+					SkriptTimings.stop(timing); // Stop timing if it was even started
+				} finally {
+					context.exit();
 				}
+			};
+
+			if (VirtualThreads.isEnabled()) {
+				// Asynchronous triggers continue on a virtual thread, the main thread only hands them over
+				Trigger trigger = getTrigger();
+				if (trigger != null && trigger.getEvent().canExecuteAsynchronously()) {
+					Runnable resume = continuation;
+					continuation = () -> VirtualThreads.execute(resume);
+				}
+			}
 
-				TriggerItem.walk(next, event);
-				Variables.removeLocals(event); // Clean up local vars, we may be exiting now
-
-				SkriptTimings.stop(timing); // Stop timing if it was even started
-			}, Math.max(duration.getTicks(), 1)); // Minimum delay is one tick, less than it is useless!
+			BaseSkript.getScheduler().scheduleSyncDelayedTask(Skript.getInstance(), continuation,
+				Math.max(duration.getTicks(), 1)); // Minimum delay is one tick, less than it is useless!
 		}
 		return null;
 	}
@@ -118,16 +136,14 @@ public class Delay extends Effect {
 		return "wait for " + duration.toString(event, debug) + (event == null ? "" : "...");
 	}
 
-	private static final Set<Object> DELAYED =
-		Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<Object, Boolean>()));
-
 	/**
 	 * The main method for checking if the execution of {@link TriggerItem}s has been delayed.
 	 * @param event The event to check for a delay.
 	 * @return Whether {@link TriggerItem} execution has been delayed.
 	 */
 	public static boolean isDelayed(Object event) {
-		return DELAYED.contains(event);
+		ExecutionContext context = ExecutionContext.get(event);
+		return context != null && context.isDelayed();
 	}
 
 	/**
@@ -135,7 +151,7 @@ public class Delay extends Effect {
 	 * @param event The event to mark as delayed.
 	 */
 	public static void addDelayedEvent(Object event) {
-		DELAYED.add(event);
+		ExecutionContext.of(event).setDelayed();
 	}
 
 }
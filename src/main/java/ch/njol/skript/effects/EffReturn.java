@@ -58,7 +58,7 @@ public class EffReturn extends Effect {
 	@SuppressWarnings("unchecked")
 	@Override
 	public boolean init(Expression<?> @NotNull [] exprs, int matchedPattern, @NotNull Kleenean isDelayed, @NotNull ParseResult parseResult) {
-		ScriptFunction<?> f = Functions.currentFunction;
+		ScriptFunction<?> f = Functions.getCurrentFunction();
 		if (f == null) {
 			Skript.error("The return statement can only be used in a function");
 			return false;
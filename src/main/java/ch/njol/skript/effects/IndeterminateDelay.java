@@ -19,6 +19,7 @@
 package ch.njol.skript.effects;
 
 import ch.njol.skript.Skript;
+import ch.njol.skript.lang.ExecutionContext;
 import ch.njol.skript.lang.TriggerItem;
 import ch.njol.skript.util.Timespan;
 import ch.njol.skript.variables.Variables;
@@ -39,7 +40,8 @@ public class IndeterminateDelay extends Delay {
 		TriggerItem next = getNext();
 
 		if (next != null && Skript.getInstance().isEnabled()) { // See https://github.com/SkriptLang/Skript/issues/3702
-			Delay.addDelayedEvent(event);
+			ExecutionContext context = ExecutionContext.of(event);
+			context.setDelayed();
 			Timespan duration = this.duration.getSingle(event);
 			if (duration == null)
 				return null;
@@ -50,11 +52,16 @@ public class IndeterminateDelay extends Delay {
 			BaseSkript.getScheduler().scheduleSyncDelayedTask(Skript.getInstance(), () -> {
 				Skript.debug(getIndentation() + "... continuing after " + (System.nanoTime() - start) / 1_000_000_000. + "s");
 
-				// Re-set local variables
-				if (localVars != null)
-					Variables.setLocalVariables(event, localVars);
+				context.enter();
+				try {
+					// Re-set local variables
+					if (localVars != null)
+						Variables.setLocalVariables(event, localVars);
 
-				TriggerItem.walk(next, event);
+					TriggerItem.walk(next, event);
+				} finally {
+					context.exit();
+				}
 			}, duration.getTicks());
 		}
 
@@ -0,0 +1,253 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.lang;
+
+import com.google.common.collect.MapMaker;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The state of one execution of a trigger, such as the state of its running loops
+ * and whether the execution has been delayed.
+ * <p>
+ * {@link Trigger#execute(Object)} creates a context for each execution and binds it to the thread running it,
+ * and a delayed execution binds it again to the thread it continues on. As {@link TriggerItem#walk(TriggerItem, Object)}
+ * only passes the event along, a context is found as the innermost one bound to the current thread for that event,
+ * so triggers of the same event running at the same time each have their own.
+ * Walks outside of a trigger execution, e.g. of code that a section runs with another event,
+ * share one context per event instead, which is kept as long as the event is.
+ * <p>
+ * A context is only bound to one thread at a time, which is the one continuing its execution.
+ */
+public final class ExecutionContext {
+
+	/**
+	 * The contexts of walks outside of a trigger execution, per event.
+	 */
+	private static final Map<Object, ExecutionContext> contexts = new MapMaker().weakKeys().makeMap();
+
+	/**
+	 * The contexts bound to the current thread, innermost last.
+	 */
+	private static final ThreadLocal<List<ExecutionContext>> bound = ThreadLocal.withInitial(ArrayList::new);
+
+	/**
+	 * Creates the context of a new execution for the given event, which still has to be {@link #enter() entered}.
+	 */
+	public static ExecutionContext create(Object event) {
+		return new ExecutionContext(event);
+	}
+
+	/**
+	 * Gets the context of the given event, creating it if it doesn't exist yet.
+	 */
+	public static ExecutionContext of(Object event) {
+		ExecutionContext context = get(event);
+		if (context == null)
+			context = contexts.computeIfAbsent(event, e -> new ExecutionContext(null));
+		return context;
+	}
+
+	/**
+	 * Gets the context of the given event, if it has one.
+	 */
+	@Nullable
+	public static ExecutionContext get(Object event) {
+		ExecutionContext context = current(event);
+		return context != null ? context : contexts.get(event);
+	}
+
+	/**
+	 * Gets the context of the trigger execution for the given event that the current thread is running, if any.
+	 */
+	@Nullable
+	public static ExecutionContext current(Object event) {
+		List<ExecutionContext> bound = ExecutionContext.bound.get();
+		for (int i = bound.size() - 1; i >= 0; i--) {
+			ExecutionContext context = bound.get(i);
+			if (context.event == event)
+				return context;
+		}
+		return null;
+	}
+
+	private static final LoopState[] NO_LOOPS = new LoopState[0];
+
+	/**
+	 * The states of the loops currently running, usually only a few, hence an array searched by identity.
+	 */
+	private LoopState[] loops = NO_LOOPS;
+	private int loopCount = 0;
+
+	/**
+	 * How often this execution has been delayed, so that a continuation can tell whether it scheduled another one.
+	 * Only the thread bound to the context changes it.
+	 */
+	private volatile int delays = 0;
+
+	/**
+	 * The event of the execution, or null for the shared context of an event,
+	 * which mustn't reference its event as it's only weakly kept.
+	 */
+	@Nullable
+	private final Object event;
+
+	private ExecutionContext(@Nullable Object event) {
+		this.event = event;
+	}
+
+	/**
+	 * Binds this context to the current thread, until {@link #exit()} is called on it.
+	 */
+	public void enter() {
+		bound.get().add(this);
+	}
+
+	/**
+	 * Unbinds this context from the current thread.
+	 */
+	public void exit() {
+		List<ExecutionContext> bound = ExecutionContext.bound.get();
+		for (int i = bound.size() - 1; i >= 0; i--) {
+			if (bound.get(i) == this) {
+				bound.remove(i);
+				return;
+			}
+		}
+	}
+
+	/**
+	 * @return Whether this execution has been delayed.
+	 */
+	public boolean isDelayed() {
+		return delays > 0;
+	}
+
+	/**
+	 * @return How often this execution has been delayed so far.
+	 */
+	public int getDelays() {
+		return delays;
+	}
+
+	public void setDelayed() {
+		delays++;
+	}
+
+	/**
+	 * Gets the state of the given loop, if it's currently running.
+	 */
+	@Nullable
+	public LoopState getLoop(LoopSection loop) {
+		for (int i = 0; i < loopCount; i++) {
+			if (loops[i].loop == loop)
+				return loops[i];
+		}
+		return null;
+	}
+
+	/**
+	 * Gets the state of the given loop, starting it if it isn't running.
+	 */
+	public LoopState startLoop(LoopSection loop) {
+		LoopState state = getLoop(loop);
+		if (state != null)
+			return state;
+		if (loopCount == loops.length)
+			loops = Arrays.copyOf(loops, Math.max(4, loopCount * 2));
+		state = new LoopState(loop);
+		loops[loopCount++] = state;
+		return state;
+	}
+
+	/**
+	 * Forgets the state of the given loop.
+	 */
+	public void exitLoop(LoopSection loop) {
+		for (int i = 0; i < loopCount; i++) {
+			if (loops[i].loop == loop) {
+				loops[i] = loops[--loopCount];
+				loops[loopCount] = null;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * The state of a running loop.
+	 */
+	public static final class LoopState {
+
+		private final LoopSection loop;
+
+		@Nullable
+		private Iterator<?> iterator;
+
+		@Nullable
+		private Object current;
+
+		private long counter = 0;
+
+		private LoopState(LoopSection loop) {
+			this.loop = loop;
+		}
+
+		@Nullable
+		public Iterator<?> getIterator() {
+			return iterator;
+		}
+
+		public void setIterator(@Nullable Iterator<?> iterator) {
+			this.iterator = iterator;
+		}
+
+		/**
+		 * @return The value of the current iteration, if the loop iterates over values.
+		 */
+		@Nullable
+		public Object getCurrent() {
+			return current;
+		}
+
+		public void setCurrent(@Nullable Object current) {
+			this.current = current;
+		}
+
+		/**
+		 * @return The amount of iterations started so far.
+		 */
+		public long getCounter() {
+			return counter;
+		}
+
+		/**
+		 * Starts the next iteration.
+		 */
+		public void increment() {
+			counter++;
+		}
+
+	}
+
+}
@@ -18,8 +18,8 @@
  */
 package ch.njol.skript.lang;
 
-import java.util.Map;
-import java.util.WeakHashMap;
+import ch.njol.skript.lang.ExecutionContext.LoopState;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Represents a loop section.
@@ -29,14 +29,23 @@ import java.util.WeakHashMap;
  */
 public abstract class LoopSection extends Section implements SyntaxElement, Debuggable {
 
-	protected final transient Map<Object, Long> currentLoopCounter = new WeakHashMap<Object, Long>();
-
 	/**
 	 * @param event The event where the loop is used to return its loop iterations
 	 * @return The loop iteration number
 	 */
 	public long getLoopCounter(Object event) {
-		return currentLoopCounter.getOrDefault(event, 1L);
+		LoopState state = getLoopState(event);
+		return state == null || state.getCounter() == 0 ? 1L : state.getCounter();
+	}
+
+	/**
+	 * @param event The event where the loop is used
+	 * @return The state of this loop for the given event, or null if it isn't running
+	 */
+	@Nullable
+	protected LoopState getLoopState(Object event) {
+		ExecutionContext context = ExecutionContext.get(event);
+		return context == null ? null : context.getLoop(this);
 	}
 
 	/**
@@ -49,7 +58,9 @@ public abstract class LoopSection extends Section implements SyntaxElement, Debu
 	 * @param event The event where the loop is used to reset its relevant properties
 	 */
 	public void exit(Object event) {
-		currentLoopCounter.remove(event);
+		ExecutionContext context = ExecutionContext.get(event);
+		if (context != null)
+			context.exitLoop(this);
 	}
 
 }
@@ -178,6 +178,16 @@ public abstract class Section extends TriggerSection implements SyntaxElement {
 			() -> (Section) SkriptParser.parse(expr, (Iterator) Skript.getSections().iterator(), defaultError));
 	}
 
+	/**
+	 * Parses a section as only the given pattern of the given section syntax,
+	 * see {@link SkriptParser#parse(String, SyntaxElementInfo, int)}.
+	 */
+	@Nullable
+	public static Section parse(String expr, SyntaxElementInfo<? extends Section> info, int patternIndex, SectionNode sectionNode, List<TriggerItem> triggerItems) {
+		SectionContext sectionContext = ParserInstance.get().getData(SectionContext.class);
+		return sectionContext.modify(sectionNode, triggerItems, () -> SkriptParser.parse(expr, info, patternIndex));
+	}
+
 	static {
 		ParserInstance.registerData(SectionContext.class, SectionContext::new);
 	}
@@ -33,6 +33,7 @@ import ch.njol.skript.log.ErrorQuality;
 import ch.njol.skript.log.LogEntry;
 import ch.njol.skript.log.ParseLogHandler;
 import ch.njol.skript.log.SkriptLogger;
+import ch.njol.skript.patterns.KeywordIndex;
 import ch.njol.skript.patterns.MalformedPatternException;
 import ch.njol.skript.patterns.PatternCompiler;
 import ch.njol.skript.patterns.SkriptPattern;
@@ -78,6 +79,12 @@ public class SkriptParser {
 
 	public final ParseContext context;
 
+	/**
+	 * The expression with the keywords it contains, created on the first match attempt.
+	 */
+	@Nullable
+	private KeywordIndex.Line line;
+
 	public SkriptParser(String expr) {
 		this(expr, ALL_FLAGS);
 	}
@@ -205,53 +212,44 @@ public class SkriptParser {
 		}
 	}
 
+	/**
+	 * Parses a string as only the given pattern of the given syntax element,
+	 * for when it is already known which pattern the string should match.
+	 * <p>
+	 * Unlike {@link #parse(String, Iterator, String)} this doesn't print anything if the string can't be parsed this way.
+	 */
+	@Nullable
+	public static <T extends SyntaxElement> T parse(String expr, SyntaxElementInfo<? extends T> info, int patternIndex) {
+		expr = expr.trim();
+		if (expr.isEmpty())
+			return null;
+		ParseLogHandler log = SkriptLogger.startParseLogHandler();
+		try {
+			T element = new SkriptParser(expr).parse(info, patternIndex);
+			if (element != null) {
+				log.printLog();
+				return element;
+			}
+			log.clear();
+			log.clearError();
+			return null;
+		} finally {
+			log.stop();
+		}
+	}
+
 	@Nullable
 	private <T extends SyntaxElement> T parse(Iterator<? extends SyntaxElementInfo<? extends T>> source) {
 		ParseLogHandler log = SkriptLogger.startParseLogHandler();
 		try {
 			while (source.hasNext()) {
 				SyntaxElementInfo<? extends T> info = source.next();
-				patternsLoop: for (int patternIndex = 0; patternIndex < info.patterns.length; patternIndex++) {
+				for (int patternIndex = 0; patternIndex < info.patterns.length; patternIndex++) {
 					log.clear();
-					try {
-						String pattern = info.patterns[patternIndex];
-						assert pattern != null;
-						ParseResult parseResult;
-						try {
-							parseResult = parse_i(pattern);
-						} catch (MalformedPatternException e) {
-							String message = "pattern compiling exception, element class: " + info.getElementClass().getName();
-							try {
-								Plugin providingPlugin = Plugin.getProvidingPlugin(info.getElementClass());
-								message += " (provided by " + providingPlugin.getName() + ")";
-							} catch (IllegalArgumentException | IllegalStateException ignored) {}
-							throw new RuntimeException(message, e);
-
-						}
-						if (parseResult != null) {
-							assert parseResult.source != null; // parse results from parse_i have a source
-							List<TypePatternElement> types = null;
-							for (int i = 0; i < parseResult.exprs.length; i++) {
-								if (parseResult.exprs[i] == null) {
-									if (types == null)
-										types = parseResult.source.getElements(TypePatternElement.class);
-									ExprInfo exprInfo = types.get(i).getExprInfo();
-									if (!exprInfo.isOptional) {
-										DefaultExpression<?> expr = getDefaultExpression(exprInfo, info.patterns[patternIndex]);
-										if (!expr.init())
-											continue patternsLoop;
-										parseResult.exprs[i] = expr;
-									}
-								}
-							}
-							T element = info.getElementClass().newInstance();
-							if (element.init(parseResult.exprs, patternIndex, getParser().getHasDelayBefore(), parseResult)) {
-								log.printLog();
-								return element;
-							}
-						}
-					} catch (InstantiationException | IllegalAccessException e) {
-						assert false;
+					T element = parse(info, patternIndex);
+					if (element != null) {
+						log.printLog();
+						return element;
 					}
 				}
 			}
@@ -262,6 +260,55 @@ public class SkriptParser {
 		}
 	}
 
+	/**
+	 * Tries to parse this parser's expression as the given pattern of the given syntax element.
+	 * A successful match is remembered as the {@link ParserInstance#getLastMatch() last match} of the parser instance.
+	 */
+	@Nullable
+	private <T extends SyntaxElement> T parse(SyntaxElementInfo<? extends T> info, int patternIndex) {
+		try {
+			String pattern = info.patterns[patternIndex];
+			assert pattern != null;
+			ParseResult parseResult;
+			try {
+				parseResult = parse_i(pattern);
+			} catch (MalformedPatternException e) {
+				String message = "pattern compiling exception, element class: " + info.getElementClass().getName();
+				try {
+					Plugin providingPlugin = Plugin.getProvidingPlugin(info.getElementClass());
+					message += " (provided by " + providingPlugin.getName() + ")";
+				} catch (IllegalArgumentException | IllegalStateException ignored) {}
+				throw new RuntimeException(message, e);
+
+			}
+			if (parseResult != null) {
+				assert parseResult.source != null; // parse results from parse_i have a source
+				List<TypePatternElement> types = null;
+				for (int i = 0; i < parseResult.exprs.length; i++) {
+					if (parseResult.exprs[i] == null) {
+						if (types == null)
+							types = parseResult.source.getElements(TypePatternElement.class);
+						ExprInfo exprInfo = types.get(i).getExprInfo();
+						if (!exprInfo.isOptional) {
+							DefaultExpression<?> expr = getDefaultExpression(exprInfo, info.patterns[patternIndex]);
+							if (!expr.init())
+								return null;
+							parseResult.exprs[i] = expr;
+						}
+					}
+				}
+				T element = info.getElementClass().newInstance();
+				if (element.init(parseResult.exprs, patternIndex, getParser().getHasDelayBefore(), parseResult)) {
+					getParser().setLastMatch(new NonNullPair<>(info, patternIndex));
+					return element;
+				}
+			}
+		} catch (InstantiationException | IllegalAccessException e) {
+			assert false;
+		}
+		return null;
+	}
+
 	private static <T extends SyntaxElement> @NotNull DefaultExpression<?> getDefaultExpression(ExprInfo exprInfo, String pattern) {
 		DefaultExpression<?> expr = exprInfo.classes[0].getDefaultExpression();
 		if (expr == null)
@@ -623,7 +670,11 @@ public class SkriptParser {
 	public <T> Expression<? extends T> parseExpression(Class<? extends T>... types) {
 		if (expr.length() == 0)
 			return null;
+		return parseMemoized(Arrays.asList(types), () -> parseExpression_i(types));
+	}
 
+	@Nullable
+	private <T> Expression<? extends T> parseExpression_i(Class<? extends T>[] types) {
 		assert types != null && types.length > 0;
 		assert types.length == 1 || !CollectionUtils.contains(types, Object.class);
 
@@ -750,7 +801,47 @@ public class SkriptParser {
 	public Expression<?> parseExpression(ExprInfo exprInfo) {
 		if (expr.length() == 0)
 			return null;
+		List<?> types = Arrays.asList(Arrays.asList(exprInfo.classes), Booleans.asList(exprInfo.isPlural), exprInfo.flagMask);
+		return parseMemoized(types, () -> parseExpression_i(exprInfo));
+	}
+
+	/**
+	 * Parses this parser's expression with the given parser function, unless the same expression already failed to parse
+	 * as the same types on the current line, in which case the log of that failure is printed again instead.
+	 * <p>
+	 * Only failures are remembered, as parsed expressions may be changed by whatever uses them and thus can't be shared.
+	 *
+	 * @param types Identifies the types the expression is parsed as
+	 * @see ParserInstance#getParseMemo()
+	 */
+	@Nullable
+	private <E extends Expression<?>> E parseMemoized(List<?> types, Supplier<E> parser) {
+		Map<Object, ParseLogHandler> memo = getParser().getParseMemo();
+		if (memo == null)
+			return parser.get();
 
+		List<?> key = Arrays.asList(expr, flags, context, types);
+		ParseLogHandler log = SkriptLogger.startParseLogHandler();
+		try {
+			ParseLogHandler failure = memo.get(key);
+			if (failure != null) {
+				log.restore(failure);
+				log.printLog();
+				return null;
+			}
+
+			E parsedExpression = parser.get();
+			if (parsedExpression == null)
+				memo.put(key, log.backup());
+			log.printLog();
+			return parsedExpression;
+		} finally {
+			log.stop();
+		}
+	}
+
+	@Nullable
+	private Expression<?> parseExpression_i(ExprInfo exprInfo) {
 		boolean isObject = exprInfo.classes.length == 1 && exprInfo.classes[0].getC() == Object.class;
 		ParseLogHandler log = SkriptLogger.startParseLogHandler();
 		try {
@@ -1274,10 +1365,28 @@ public class SkriptParser {
 
 	private static final Map<String, SkriptPattern> patterns = new ConcurrentHashMap<String, SkriptPattern>();
 
+	/**
+	 * Compiles the patterns of the given syntax elements ahead of time, so the keywords of all of them
+	 * are in the {@link KeywordIndex} before the first script is parsed.
+	 * Malformed patterns are skipped, they are reported when they are first used for parsing.
+	 */
+	public static void compilePatterns(Iterator<? extends SyntaxElementInfo<?>> infos) {
+		while (infos.hasNext()) {
+			for (String pattern : infos.next().patterns) {
+				try {
+					patterns.computeIfAbsent(pattern, PatternCompiler::compile);
+				} catch (MalformedPatternException ignored) {}
+			}
+		}
+	}
+
 	@Nullable
 	private ParseResult parse_i(String pattern) {
 		SkriptPattern skriptPattern = patterns.computeIfAbsent(pattern, PatternCompiler::compile);
-		ch.njol.skript.patterns.MatchResult matchResult = skriptPattern.match(expr, flags, context);
+		KeywordIndex.Line line = this.line;
+		if (line == null)
+			this.line = line = new KeywordIndex.Line(expr);
+		ch.njol.skript.patterns.MatchResult matchResult = skriptPattern.match(line, flags, context);
 		if (matchResult == null)
 			return null;
 		return matchResult.toParseResult();
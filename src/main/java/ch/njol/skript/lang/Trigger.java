@@ -48,10 +48,24 @@ public class Trigger extends TriggerSection {
 	 * @return false if an exception occurred.
 	 */
 	public boolean execute(Object event) {
-		boolean success = TriggerItem.walk(this, event);
-
-		// Clear local variables
-		Variables.removeLocals(event);
+		// Locals set for the event beforehand, e.g. the parameters of a function, are taken over by this execution
+		Object locals = ExecutionContext.current(event) == null ? Variables.removeLocals(event) : null;
+
+		ExecutionContext context = ExecutionContext.create(event);
+		boolean success;
+		context.enter();
+		try {
+			if (locals != null)
+				Variables.setLocalVariables(event, locals);
+
+			success = TriggerItem.walk(this, event);
+
+			// Clear local variables, unless a Delay took them with it: it may already have put them back on another thread
+			if (!context.isDelayed())
+				Variables.removeLocals(event);
+		} finally {
+			context.exit();
+		}
 		/*
 		 * Local variables can be used in delayed effects by backing reference
 		 * of VariablesMap up. Basically:
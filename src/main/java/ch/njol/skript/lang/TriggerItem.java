@@ -19,6 +19,7 @@
 package ch.njol.skript.lang;
 
 import ch.njol.skript.Skript;
+import ch.njol.skript.timings.SkriptTimings;
 import ch.njol.skript.util.SkriptColor;
 import ch.njol.util.StringUtils;
 import org.jetbrains.annotations.Nullable;
@@ -84,8 +85,17 @@ public abstract class TriggerItem implements Debuggable {
 	public static boolean walk(TriggerItem start, Object event) {
 		TriggerItem triggerItem = start;
 		try {
-			while (triggerItem != null)
-				triggerItem = triggerItem.walk(event);
+			if (SkriptTimings.enabled() && SkriptTimings.sample()) {
+				while (triggerItem != null) {
+					long startTime = System.nanoTime();
+					TriggerItem next = triggerItem.walk(event);
+					SkriptTimings.record(triggerItem, System.nanoTime() - startTime);
+					triggerItem = next;
+				}
+			} else {
+				while (triggerItem != null)
+					triggerItem = triggerItem.walk(event);
+			}
 
 			return true;
 		} catch (StackOverflowError err) {
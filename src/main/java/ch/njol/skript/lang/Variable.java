@@ -32,6 +32,7 @@ import ch.njol.skript.registrations.Classes;
 import ch.njol.skript.structures.StructVariables.DefaultVariables;
 import ch.njol.skript.util.StringMode;
 import ch.njol.skript.util.Utils;
+import ch.njol.skript.variables.LocalScope;
 import ch.njol.skript.variables.TypeHints;
 import ch.njol.skript.variables.Variables;
 import ch.njol.util.Checker;
@@ -84,8 +85,19 @@ public class Variable<T> implements Expression<T> {
 	@Nullable
 	private final Variable<?> source;
 
+	/**
+	 * The slot of this local variable, if its name is known while parsing.
+	 */
+	@Nullable
+	private final LocalScope.Slot slot;
+
 	@SuppressWarnings("unchecked")
 	private Variable(VariableString name, Class<? extends T>[] types, boolean local, boolean list, @Nullable Variable<?> source) {
+		this(name, types, local, list, source, local && !list && name.isSimple() ? LocalScope.slotFor(name.toString(null)) : null);
+	}
+
+	@SuppressWarnings("unchecked")
+	private Variable(VariableString name, Class<? extends T>[] types, boolean local, boolean list, @Nullable Variable<?> source, @Nullable LocalScope.Slot slot) {
 		assert types.length > 0;
 
 		assert name.isSimple() || name.getMode() == StringMode.VARIABLE_NAME;
@@ -103,6 +115,7 @@ public class Variable<T> implements Expression<T> {
 		this.superType = (Class<T>) Utils.getSuperType(types);
 
 		this.source = source;
+		this.slot = slot;
 	}
 
 	/**
@@ -281,7 +294,7 @@ public class Variable<T> implements Expression<T> {
 	@Override
 	@SuppressWarnings("unchecked")
 	public <R> Variable<R> getConvertedExpression(Class<R>... to) {
-		return new Variable<R>(name, to, local, list, this);
+		return new Variable<R>(name, to, local, list, this, slot);
 	}
 
 	/**
@@ -299,7 +312,11 @@ public class Variable<T> implements Expression<T> {
 			// prevents e.g. {%expr%} where "%expr%" ends with "::*" from returning a Map
 			if (name.endsWith(Variable.SEPARATOR + "*") != list)
 				return null;
-			Object value = !list ? convertIfOldPlayer(name, event, Variables.getVariable(name, event, local)) : Variables.getVariable(name, event, local);
+			Object value;
+			if (slot != null)
+				value = convertIfOldPlayer(name, event, Variables.getVariable(slot, event));
+			else
+				value = !list ? convertIfOldPlayer(name, event, Variables.getVariable(name, event, local)) : Variables.getVariable(name, event, local);
 			if (value != null)
 				return value;
 
@@ -368,7 +385,7 @@ public class Variable<T> implements Expression<T> {
 		Object val = Variables.getVariable(name + "*", event, local);
 		if (val == null)
 			return new EmptyIterator<Pair<String, Object>>();
-		assert val instanceof TreeMap;
+		assert val instanceof Map;
 		// temporary list to prevent CMEs
 		@SuppressWarnings("unchecked")
 		Iterator<String> keys = new ArrayList<String>(((Map<String, Object>) val).keySet()).iterator();
@@ -386,7 +403,7 @@ public class Variable<T> implements Expression<T> {
 					key = keys.next();
 					if (key != null) {
 						next = convertIfOldPlayer(name + key, event, Variables.getVariable(name + key, event, local));
-						if (next != null && !(next instanceof TreeMap))
+						if (next != null && !(next instanceof Map))
 							return true;
 					}
 				}
@@ -422,7 +439,7 @@ public class Variable<T> implements Expression<T> {
 		Object value = Variables.getVariable(name + "*", event, local);
 		if (value == null)
 			return new EmptyIterator<T>();
-		assert value instanceof TreeMap;
+		assert value instanceof Map;
 		// temporary list to prevent CMEs
 		Iterator<String> keys = new ArrayList<String>(((Map<String, Object>) value).keySet()).iterator();
 		return new Iterator<T>() {
@@ -441,7 +458,7 @@ public class Variable<T> implements Expression<T> {
 					if (key != null) {
 						next = Converters.convert(Variables.getVariable(name + key, event, local), types);
 						next = (T) convertIfOldPlayer(name + key, event, next);
-						if (next != null && !(next instanceof TreeMap))
+						if (next != null && !(next instanceof Map))
 							return true;
 					}
 				}
@@ -478,7 +495,10 @@ public class Variable<T> implements Expression<T> {
 	}
 
 	private void set(Object event, @Nullable Object value) {
-		Variables.setVariable(name.toString(event), value, event, local);
+		if (slot != null)
+			Variables.setVariable(slot, value, event);
+		else
+			Variables.setVariable(name.toString(event), value, event, local);
 	}
 
 	private void setIndex(Object event, String index, @Nullable Object value) {
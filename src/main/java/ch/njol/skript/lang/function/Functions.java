@@ -31,6 +31,7 @@ import org.jetbrains.annotations.Nullable;
 import org.skriptlang.skript.lang.script.Script;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Static methods to work with functions.
@@ -45,13 +46,41 @@ public abstract class Functions {
 
 	private Functions() {}
 
+	/**
+	 * The function whose body is being parsed, per thread as scripts may be loaded on multiple threads at once.
+	 */
+	private static final ThreadLocal<ScriptFunction<?>> parsedFunction = new ThreadLocal<ScriptFunction<?>>();
+
+	/**
+	 * The function whose body was last started to be parsed on any thread.
+	 * @deprecated Functions may be parsed on multiple threads at once, use {@link #getCurrentFunction()}.
+	 */
+	@Deprecated
+	@Nullable
+	public static volatile ScriptFunction<?> currentFunction = null;
+
+	/**
+	 * @return The function whose body is currently being parsed on this thread, if any.
+	 */
 	@Nullable
-	public static ScriptFunction<?> currentFunction = null;
+	public static ScriptFunction<?> getCurrentFunction() {
+		return parsedFunction.get();
+	}
+
+	@SuppressWarnings("deprecation")
+	static void setCurrentFunction(@Nullable ScriptFunction<?> function) {
+		if (function == null) {
+			parsedFunction.remove();
+		} else {
+			parsedFunction.set(function);
+		}
+		currentFunction = function;
+	}
 
 	/**
 	 * Function namespaces.
 	 */
-	private static final Map<Namespace.Key, Namespace> namespaces = new HashMap<Namespace.Key, Namespace>();
+	private static final Map<Namespace.Key, Namespace> namespaces = new ConcurrentHashMap<Namespace.Key, Namespace>();
 
 	/**
 	 * Namespace of Java functions.
@@ -66,7 +95,7 @@ public abstract class Functions {
 	/**
 	 * Namespaces of functions that are globally available.
 	 */
-	private static final Map<String, Namespace> globalFunctions = new HashMap<String, Namespace>();
+	private static final Map<String, Namespace> globalFunctions = new ConcurrentHashMap<String, Namespace>();
 
 	static boolean callFunctionEvents = false;
 
@@ -351,7 +380,7 @@ public abstract class Functions {
 		return namespaces.get(new Namespace.Key(Namespace.Origin.SCRIPT, script));
 	}
 
-	private final static Collection<FunctionReference<?>> toValidate = new ArrayList<FunctionReference<?>>();
+	private final static Collection<FunctionReference<?>> toValidate = Collections.synchronizedList(new ArrayList<FunctionReference<?>>());
 
 	/**
 	 * Remember to call {@link #validateFunctions()} after calling this
@@ -372,9 +401,11 @@ public abstract class Functions {
 		// Queue references to signatures we have for revalidation
 		// Can't validate here, because other scripts might be loaded soon
 		for (Signature<?> sign : namespace.getSignatures()) {
-			for (FunctionReference<?> ref : sign.calls) {
-				if (!script.equals(ref.script)) {
-					toValidate.add(ref);
+			synchronized (sign.calls) {
+				for (FunctionReference<?> ref : sign.calls) {
+					if (!script.equals(ref.script)) {
+						toValidate.add(ref);
+					}
 				}
 			}
 		}
@@ -397,16 +428,20 @@ public abstract class Functions {
 			}
 		}
 
-		for (FunctionReference<?> ref : signature.calls) {
-			if (!signature.script.equals(ref.script))
-				toValidate.add(ref);
+		synchronized (signature.calls) {
+			for (FunctionReference<?> ref : signature.calls) {
+				if (!signature.script.equals(ref.script))
+					toValidate.add(ref);
+			}
 		}
 	}
 
 	public static void validateFunctions() {
-		for (FunctionReference<?> c : toValidate)
-			c.validateFunction(false);
-		toValidate.clear();
+		synchronized (toValidate) {
+			for (FunctionReference<?> c : toValidate)
+				c.validateFunction(false);
+			toValidate.clear();
+		}
 	}
 
 	/**
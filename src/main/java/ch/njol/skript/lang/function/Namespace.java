@@ -21,9 +21,9 @@ package ch.njol.skript.lang.function;
 import org.jetbrains.annotations.Nullable;
 
 import java.util.Collection;
-import java.util.HashMap;
 import java.util.Map;
 import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Contains a set of functions.
@@ -152,8 +152,8 @@ public class Namespace {
 	private final Map<Info, Function<?>> functions;
 
 	public Namespace() {
-		this.signatures = new HashMap<Info, Signature<?>>();
-		this.functions = new HashMap<Info, Function<?>>();
+		this.signatures = new ConcurrentHashMap<Info, Signature<?>>();
+		this.functions = new ConcurrentHashMap<Info, Function<?>>();
 	}
 	
 	@Nullable
@@ -34,10 +34,12 @@ public class ScriptFunction<T> extends Function<T> {
 	
 	private final Trigger trigger;
 	
+	// Return statements in the body need the function while it's parsed, but only keep it to use once it is executed
+	@SuppressWarnings("this-escape")
 	public ScriptFunction(Signature<T> sign, Script script, SectionNode node) {
 		super(sign);
 		
-		Functions.currentFunction = this;
+		Functions.setCurrentFunction(this);
 		try {
 			trigger = new Trigger(
 				script,
@@ -47,7 +49,7 @@ public class ScriptFunction<T> extends Function<T> {
 			);
 			trigger.setLineNumber(node.getLine());
 		} finally {
-			Functions.currentFunction = null;
+			Functions.setCurrentFunction(null);
 		}
 	}
 	
@@ -89,7 +89,7 @@ public class Signature<T> {
 		this.single = single;
 		this.originClassPath = originClassPath;
 
-		calls = Collections.newSetFromMap(new WeakHashMap<FunctionReference<?>, Boolean>());
+		calls = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<FunctionReference<?>, Boolean>()));
 	}
 
 	public Signature(String script, String name, Parameter<?>[] parameters, boolean local, @Nullable ClassInfo<T> returnType, boolean single) {
@@ -25,11 +25,15 @@ import ch.njol.skript.config.Node;
 import ch.njol.skript.lang.Expression;
 import ch.njol.skript.lang.SkriptEvent;
 import ch.njol.skript.lang.SkriptParser;
+import ch.njol.skript.lang.SyntaxElementInfo;
 import ch.njol.skript.lang.TriggerSection;
 import ch.njol.skript.log.HandlerList;
+import ch.njol.skript.log.ParseLogHandler;
 import ch.njol.skript.structures.StructOptions.OptionsData;
 import ch.njol.util.Kleenean;
+import ch.njol.util.NonNullPair;
 import ch.njol.util.coll.CollectionUtils;
+import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.skriptlang.skript.lang.script.Script;
@@ -41,6 +45,7 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Function;
 
 public final class ParserInstance {
@@ -191,6 +196,7 @@ public final class ParserInstance {
 	 */
 	public void setCurrentEvents(Class<? extends Object> @Nullable [] currentEvents) {
 		this.currentEvents = currentEvents;
+		clearParseMemo();
 		getDataInstances().forEach(data -> data.onCurrentEventsChange(currentEvents));
 	}
 
@@ -264,6 +270,7 @@ public final class ParserInstance {
 	 */
 	public void setCurrentSections(List<TriggerSection> currentSections) {
 		this.currentSections = currentSections;
+		clearParseMemo();
 	}
 
 	/**
@@ -341,6 +348,8 @@ public final class ParserInstance {
 	 * @see ch.njol.skript.util.AsyncEffect
 	 */
 	public void setHasDelayBefore(Kleenean hasDelayBefore) {
+		if (this.hasDelayBefore != hasDelayBefore)
+			clearParseMemo();
 		this.hasDelayBefore = hasDelayBefore;
 	}
 
@@ -376,7 +385,10 @@ public final class ParserInstance {
 	 * Null means to mark it as no node currently being handled (that the ParserInstance is aware of).
 	 */
 	public void setNode(@Nullable Node node) {
-		this.node = (node == null || node.getParent() == null) ? null : node;
+		node = (node == null || node.getParent() == null) ? null : node;
+		if (this.node != node)
+			clearParseMemo();
+		this.node = node;
 	}
 
 	/**
@@ -388,6 +400,56 @@ public final class ParserInstance {
 		return node;
 	}
 
+	// Parse memo API
+
+	@Nullable
+	private Map<Object, ParseLogHandler> parseMemo;
+
+	/**
+	 * Used by {@link SkriptParser} to remember which expressions failed to parse, and the log of each failure,
+	 * so that the same text isn't parsed as the same types again while backtracking over the patterns of a line.
+	 * <p>
+	 * The memo only lives as long as the current node, events, sections and delay state,
+	 * as those decide what can be parsed. It is cleared whenever one of them changes.
+	 *
+	 * @return The memo for the current node, or null if there is no current node to scope it to.
+	 */
+	@ApiStatus.Internal
+	@Nullable
+	public Map<Object, ParseLogHandler> getParseMemo() {
+		if (node == null)
+			return null;
+		if (parseMemo == null)
+			parseMemo = new HashMap<>();
+		return parseMemo;
+	}
+
+	private void clearParseMemo() {
+		if (parseMemo != null)
+			parseMemo.clear();
+	}
+
+	@Nullable
+	private NonNullPair<SyntaxElementInfo<?>, Integer> lastMatch;
+
+	/**
+	 * @param lastMatch The syntax element and the index of its pattern that {@link SkriptParser} last parsed something as.
+	 */
+	@ApiStatus.Internal
+	public void setLastMatch(@Nullable NonNullPair<SyntaxElementInfo<?>, Integer> lastMatch) {
+		this.lastMatch = lastMatch;
+	}
+
+	/**
+	 * @return The syntax element and the index of its pattern that {@link SkriptParser} last parsed something as.
+	 * As syntax elements are initialised after their contents, this is the outermost element right after parsing a line.
+	 */
+	@ApiStatus.Internal
+	@Nullable
+	public NonNullPair<SyntaxElementInfo<?>, Integer> getLastMatch() {
+		return lastMatch;
+	}
+
 	private String indentation = "";
 
 	public void setIndentation(String indentation) {
@@ -429,7 +491,8 @@ public final class ParserInstance {
 		
 	}
 	
-	private static final Map<Class<? extends Data>, Function<ParserInstance, ? extends Data>> dataRegister = new HashMap<Class<? extends Data>, Function<ParserInstance, ? extends Data>>();
+	// Data classes may be registered lazily, e.g. by a static initializer, while scripts are loading in parallel
+	private static final Map<Class<? extends Data>, Function<ParserInstance, ? extends Data>> dataRegister = new ConcurrentHashMap<Class<? extends Data>, Function<ParserInstance, ? extends Data>>();
 	// Should be Map<Class<? extends Data>, ? extends Data>, but that caused issues (with generics) in #getData(Class)
 	private final Map<Class<? extends Data>, Data> dataMap = new HashMap<Class<? extends Data>, Data>();
 	
@@ -0,0 +1,123 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.patterns;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Assigns an id to every distinct keyword of the compiled {@link SkriptPattern}s,
+ * i.e. to every literal that a match of a pattern must contain.
+ * <p>
+ * Many patterns share keywords (e.g. 'of', 'to' or 'the'), so instead of every pattern checking its own keywords
+ * against the input, a {@link Line} remembers for every keyword id whether the input contains it.
+ * This way each keyword is looked for at most once per input, however many patterns are tried on it.
+ */
+public final class KeywordIndex {
+
+	private KeywordIndex() {}
+
+	private static final Map<String, Integer> ids = new HashMap<String, Integer>();
+
+	/**
+	 * The keywords by id. Replaced by a copy whenever keywords are added, so a snapshot covers exactly the ids it has.
+	 */
+	private static volatile String[] keywords = new String[0];
+
+	/**
+	 * Gets the ids of the given keywords, assigning new ids to keywords that haven't been seen yet.
+	 */
+	static synchronized int[] getIds(String[] keywords) {
+		int[] result = new int[keywords.length];
+		String[] known = null;
+		for (int i = 0; i < keywords.length; i++) {
+			Integer id = ids.get(keywords[i]);
+			if (id == null) {
+				id = ids.size();
+				ids.put(keywords[i], id);
+				if (known == null)
+					known = Arrays.copyOf(KeywordIndex.keywords, KeywordIndex.keywords.length + keywords.length - i);
+				known[id] = keywords[i];
+			}
+			result[i] = id;
+		}
+		if (known != null)
+			KeywordIndex.keywords = Arrays.copyOf(known, ids.size());
+		return result;
+	}
+
+	/**
+	 * @return The amount of distinct keywords of all patterns compiled so far
+	 */
+	public static int size() {
+		return keywords.length;
+	}
+
+	/**
+	 * An input to match patterns against, which caches its lower case form and which keywords it contains.
+	 * Not thread-safe, a Line is meant to be used by a single parser.
+	 */
+	public static final class Line {
+
+		private final String expr;
+		private final String lowerExpr;
+
+		private final String[] keywords = KeywordIndex.keywords;
+
+		/**
+		 * Per keyword id: 0 if not checked yet, 1 if this line contains the keyword, 2 if it doesn't.
+		 */
+		private final byte[] contained = new byte[keywords.length];
+
+		/**
+		 * @param expr The input, which must already be trimmed
+		 */
+		public Line(String expr) {
+			this.expr = expr;
+			this.lowerExpr = expr.toLowerCase(Locale.ENGLISH);
+		}
+
+		public String getExpr() {
+			return expr;
+		}
+
+		/**
+		 * @return Whether this line contains all the given keywords
+		 */
+		boolean containsAll(String[] keywords, int[] ids) {
+			for (int i = 0; i < ids.length; i++) {
+				int id = ids[i];
+				if (id >= contained.length) { // keyword from a pattern compiled after this line was created
+					if (!lowerExpr.contains(keywords[i]))
+						return false;
+					continue;
+				}
+				if (contained[id] == 0)
+					contained[id] = lowerExpr.contains(this.keywords[id]) ? (byte) 1 : (byte) 2;
+				if (contained[id] == 2)
+					return false;
+			}
+			return true;
+		}
+
+	}
+
+}
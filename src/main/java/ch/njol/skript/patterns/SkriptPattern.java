@@ -34,6 +34,7 @@ public class SkriptPattern {
 	private final int expressionAmount;
 
 	private final String[] keywords;
+	private final int[] keywordIds;
 	@Nullable
 	private List<TypePatternElement> types;
 
@@ -41,6 +42,7 @@ public class SkriptPattern {
 		this.first = first;
 		this.expressionAmount = expressionAmount;
 		keywords = getKeywords(first);
+		keywordIds = KeywordIndex.getIds(keywords);
 	}
 
 	@Nullable
@@ -51,12 +53,33 @@ public class SkriptPattern {
 			if (!lowerExpr.contains(keyword))
 				return null;
 
-		expr = expr.trim();
+		return matchTrimmed(expr.trim(), flags, parseContext);
+	}
+
+	/**
+	 * Matches the given line against this pattern, using the keywords the line is already known to (not) contain.
+	 *
+	 * @see #match(String, int, ParseContext)
+	 */
+	@Nullable
+	public MatchResult match(KeywordIndex.Line line, int flags, ParseContext parseContext) {
+		if (!line.containsAll(keywords, keywordIds))
+			return null;
 
+		return matchTrimmed(line.getExpr(), flags, parseContext);
+	}
+
+	/**
+	 * Matches the given input against this pattern once its keywords have been checked.
+	 *
+	 * @param expr The input, which must already be trimmed
+	 */
+	@Nullable
+	private MatchResult matchTrimmed(String expr, int flags, ParseContext parseContext) {
 		MatchResult matchResult = new MatchResult();
 		matchResult.source = this;
 		matchResult.expr = expr;
-		matchResult.expressions = new Expression[expressionAmount];
+		matchResult.expressions = new Expression<?>[expressionAmount];
 		matchResult.parseContext = parseContext;
 		matchResult.flags = flags;
 		return first.match(expr, matchResult);
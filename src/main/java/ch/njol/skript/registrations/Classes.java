@@ -46,6 +46,7 @@ import java.lang.reflect.Array;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
 
 /**
@@ -59,7 +60,8 @@ public abstract class Classes {
 	private static ClassInfo<?>[] classInfos = null;
 	private final static List<ClassInfo<?>> tempClassInfos = new ArrayList<ClassInfo<?>>();
 	private final static HashMap<Class<?>, ClassInfo<?>> exactClassInfos = new HashMap<Class<?>, ClassInfo<?>>();
-	private final static HashMap<Class<?>, ClassInfo<?>> superClassInfos = new HashMap<Class<?>, ClassInfo<?>>();
+	// filled lazily, also by scripts loading in parallel
+	private final static Map<Class<?>, ClassInfo<?>> superClassInfos = new ConcurrentHashMap<Class<?>, ClassInfo<?>>();
 	private final static HashMap<String, ClassInfo<?>> classInfosByCodeName = new HashMap<String, ClassInfo<?>>();
 	
 	/**
@@ -675,15 +677,13 @@ public abstract class Classes {
 	private final static Charset UTF_8 = StandardCharsets.UTF_8;
 
 	/**
-	 * Must be called on the appropriate thread for the given value (i.e. the main thread currently)
+	 * Must be called on the appropriate thread for the given value,
+	 * i.e. the main thread if its serializer {@link Serializer#mustSyncDeserialization() must be synced}.
 	 */
 	public static SerializedVariable.@Nullable Value serialize(@Nullable Object o) {
 		if (o == null)
 			return null;
 		
-		// temporary
-		assert BaseSkript.isPrimaryThread();
-		
 		ClassInfo<?> ci = getSuperClassInfo(o.getClass());
 		if (ci.getSerializeAs() != null) {
 			ci = getExactClassInfo(ci.getSerializeAs());
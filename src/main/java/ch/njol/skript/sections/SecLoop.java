@@ -25,6 +25,8 @@ import ch.njol.skript.doc.Description;
 import ch.njol.skript.doc.Examples;
 import ch.njol.skript.doc.Name;
 import ch.njol.skript.doc.Since;
+import ch.njol.skript.lang.ExecutionContext;
+import ch.njol.skript.lang.ExecutionContext.LoopState;
 import ch.njol.skript.lang.Expression;
 import ch.njol.skript.lang.LoopSection;
 import ch.njol.skript.lang.SkriptParser.ParseResult;
@@ -39,8 +41,6 @@ import org.jetbrains.annotations.Nullable;
 
 import java.util.Iterator;
 import java.util.List;
-import java.util.Map;
-import java.util.WeakHashMap;
 
 @Name("Loop")
 @Description({
@@ -88,9 +88,6 @@ public class SecLoop extends LoopSection {
 	@SuppressWarnings("NotNullFieldNotInitialized")
 	private Expression<?> expr;
 
-	private final transient Map<Object, Object> current = new WeakHashMap<Object, Object>();
-	private final transient Map<Object, Iterator<?>> currentIter = new WeakHashMap<Object, Iterator<?>>();
-
 	@Nullable
 	private TriggerItem actualNext;
 
@@ -129,14 +126,17 @@ public class SecLoop extends LoopSection {
 	@Override
 	@Nullable
 	protected TriggerItem walk(Object event) {
-		Iterator<?> iter = currentIter.get(event);
+		LoopState state = getLoopState(event);
+		Iterator<?> iter = state == null ? null : state.getIterator();
 		if (iter == null) {
 			iter = expr instanceof Variable ? ((Variable<?>) expr).variablesIterator(event) : expr.iterator(event);
 			if (iter != null) {
-				if (iter.hasNext())
-					currentIter.put(event, iter);
-				else
+				if (iter.hasNext()) {
+					state = ExecutionContext.of(event).startLoop(this);
+					state.setIterator(iter);
+				} else {
 					iter = null;
+				}
 			}
 		}
 		if (iter == null || !iter.hasNext()) {
@@ -144,8 +144,9 @@ public class SecLoop extends LoopSection {
 			debug(event, false);
 			return actualNext;
 		} else {
-			current.put(event, iter.next());
-			currentLoopCounter.put(event, (currentLoopCounter.getOrDefault(event, 0L)) + 1);
+			assert state != null;
+			state.setCurrent(iter.next());
+			state.increment();
 			return walk(event, true);
 		}
 	}
@@ -157,7 +158,8 @@ public class SecLoop extends LoopSection {
 
 	@Nullable
 	public Object getCurrent(Object event) {
-		return current.get(event);
+		LoopState state = getLoopState(event);
+		return state == null ? null : state.getCurrent();
 	}
 
 	public Expression<?> getLoopedExpression() {
@@ -176,11 +178,4 @@ public class SecLoop extends LoopSection {
 		return actualNext;
 	}
 
-	@Override
-	public void exit(Object event) {
-		current.remove(event);
-		currentIter.remove(event);
-		super.exit(event);
-	}
-
 }
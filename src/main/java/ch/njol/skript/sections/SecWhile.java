@@ -25,6 +25,8 @@ import ch.njol.skript.doc.Examples;
 import ch.njol.skript.doc.Name;
 import ch.njol.skript.doc.Since;
 import ch.njol.skript.lang.Condition;
+import ch.njol.skript.lang.ExecutionContext;
+import ch.njol.skript.lang.ExecutionContext.LoopState;
 import ch.njol.skript.lang.Expression;
 import ch.njol.skript.lang.LoopSection;
 import ch.njol.skript.lang.SkriptParser.ParseResult;
@@ -66,7 +68,6 @@ public class SecWhile extends LoopSection {
 	private TriggerItem actualNext;
 
 	private boolean doWhile;
-	private boolean ranDoWhile = false;
 
 	@Override
 	public boolean init(Expression<?>[] exprs,
@@ -90,9 +91,11 @@ public class SecWhile extends LoopSection {
 	@Nullable
 	@Override
 	protected TriggerItem walk(Object event) {
-		if ((doWhile && !ranDoWhile) || condition.check(event)) {
-			ranDoWhile = true;
-			currentLoopCounter.put(event, (currentLoopCounter.getOrDefault(event, 0L)) + 1);
+		LoopState state = getLoopState(event);
+		if ((doWhile && state == null) || condition.check(event)) { // a do while loop always runs its first iteration
+			if (state == null)
+				state = ExecutionContext.of(event).startLoop(this);
+			state.increment();
 			return walk(event, true);
 		} else {
 			exit(event);
@@ -117,10 +120,4 @@ public class SecWhile extends LoopSection {
 		return (doWhile ? "do " : "") + "while " + condition.toString(event, debug);
 	}
 
-	@Override
-	public void exit(Object event) {
-		ranDoWhile = false;
-		super.exit(event);
-	}
-
 }
@@ -19,39 +19,100 @@
 package ch.njol.skript.timings;
 
 import ch.njol.skript.Skript;
+import ch.njol.skript.lang.Trigger;
+import ch.njol.skript.lang.TriggerItem;
+import com.google.common.collect.MapMaker;
+import com.google.gson.stream.JsonWriter;
 import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+
 /**
  * Static utils for Skript timings.
+ * <p>
+ * When enabled, the execution of triggers and of each of their items is timed, see {@link TimingStats}.
+ * Only one in {@link #setSampleRate(int) sample rate} executions are timed so the profiler can be left on.
+ * The results can be exported as JSON, and as collapsed stacks for flamegraph tools.
  */
 public class SkriptTimings {
 	
 	private static volatile boolean enabled;
+	private static volatile int sampleRate = 1;
 	@SuppressWarnings("null")
 	private static Skript skript; // Initialized on Skript load, before any timings would be used anyway
 	
+	private static final Map<String, TimingStats> triggers = new ConcurrentHashMap<>();
+	
+	/**
+	 * Weak, so that the items of unloaded scripts can be collected.
+	 */
+	private static final Map<TriggerItem, TimingStats> items = new MapMaker().weakKeys().makeMap();
+	
+	/**
+	 * A started timing of a trigger, see {@link #start(String)}.
+	 */
+	private static final class Timing {
+		private final TimingStats stats;
+		private final long start = System.nanoTime();
+		
+		private Timing(TimingStats stats) {
+			this.stats = stats;
+		}
+	}
+	
+	/**
+	 * Starts timing the execution of a trigger, if timings are enabled and this execution is sampled.
+	 * 
+	 * @param name The debug label of the trigger
+	 * @return The timing to pass to {@link #stop(Object)}
+	 */
 	@Nullable
 	public static Object start(String name) {
-		if (!enabled()) // Timings disabled :(
+		if (!enabled() || !sample())
 			return null;
-//		Timing timing = Timings.of(skript, name);
-//		timing.startTimingIfSync(); // No warning spam in async code
-//		assert timing != null;
-//		return timing;
-		return null;
+		TimingStats stats = triggers.get(name);
+		if (stats == null)
+			stats = triggers.computeIfAbsent(name, k -> new TimingStats());
+		return new Timing(stats);
 	}
 	
 	public static void stop(@Nullable Object timing) {
-		if (timing == null) // Timings disabled...
-		{
-		}
-//		((Timing) timing).stopTimingIfSync();
+		if (timing == null) // Timings disabled or not sampled
+			return;
+		Timing started = (Timing) timing;
+		started.stats.record(System.nanoTime() - started.start);
+	}
+	
+	/**
+	 * @return Whether the current execution should be timed, given that timings are enabled
+	 */
+	public static boolean sample() {
+		int sampleRate = SkriptTimings.sampleRate;
+		return sampleRate <= 1 || ThreadLocalRandom.current().nextInt(sampleRate) == 0;
+	}
+	
+	/**
+	 * Records the time one walk of a trigger item took, excluding the items it leads to.
+	 */
+	public static void record(TriggerItem item, long nanos) {
+		TimingStats stats = items.get(item);
+		if (stats == null)
+			stats = items.computeIfAbsent(item, k -> new TimingStats());
+		stats.record(nanos);
 	}
 	
 	public static boolean enabled() {
-		// First check if we can run timings (enabled in settings + running Paper)
-		// After that (we know that class exists), check if server has timings running
-//		return enabled && Timings.isTimingsEnabled();
 		return enabled;
 	}
 	
@@ -59,6 +120,140 @@ public class SkriptTimings {
 		enabled = flag;
 	}
 	
+	/**
+	 * @param rate Time one in this many executions
+	 */
+	public static void setSampleRate(int rate) {
+		sampleRate = Math.max(rate, 1);
+	}
+	
+	public static int getSampleRate() {
+		return sampleRate;
+	}
+	
+	/**
+	 * @return The recorded timings of triggers, by their debug labels
+	 */
+	public static Map<String, TimingStats> getTriggerTimings() {
+		return triggers;
+	}
+	
+	/**
+	 * @return The recorded timings of trigger items
+	 */
+	public static Map<TriggerItem, TimingStats> getItemTimings() {
+		return items;
+	}
+	
+	/**
+	 * Discards all recorded timings.
+	 */
+	public static void reset() {
+		triggers.clear();
+		items.clear();
+	}
+	
+	/**
+	 * Writes the recorded timings as JSON. Times are in nanoseconds.
+	 */
+	public static void exportJson(Writer out) throws IOException {
+		JsonWriter json = new JsonWriter(out);
+		json.setIndent("  ");
+		json.beginObject();
+		json.name("sampleRate").value(sampleRate);
+		
+		json.name("triggers").beginArray();
+		for (Map.Entry<String, TimingStats> entry : triggers.entrySet()) {
+			json.beginObject();
+			json.name("trigger").value(entry.getKey());
+			writeStats(json, entry.getValue());
+			json.endObject();
+		}
+		json.endArray();
+		
+		json.name("items").beginArray();
+		for (Map.Entry<TriggerItem, TimingStats> entry : new ArrayList<>(items.entrySet())) {
+			TriggerItem item = entry.getKey();
+			Trigger trigger = item.getTrigger();
+			json.beginObject();
+			json.name("trigger").value(trigger == null ? null : trigger.getDebugLabel());
+			json.name("item").value(label(item));
+			writeStats(json, entry.getValue());
+			json.endObject();
+		}
+		json.endArray();
+		
+		json.endObject();
+		json.flush();
+	}
+	
+	private static void writeStats(JsonWriter json, TimingStats stats) throws IOException {
+		json.name("count").value(stats.getCount());
+		json.name("total").value(stats.getTotal());
+		json.name("min").value(stats.getMin());
+		json.name("max").value(stats.getMax());
+		json.name("mean").value(stats.getMean());
+		json.name("p50").value(stats.getPercentile(50));
+		json.name("p90").value(stats.getPercentile(90));
+		json.name("p99").value(stats.getPercentile(99));
+		json.name("p999").value(stats.getPercentile(99.9));
+	}
+	
+	/**
+	 * Writes the total time of each trigger item as collapsed stacks, one line per item with the trigger
+	 * and the sections it's in as frames, as read by flamegraph tools. Times are in microseconds.
+	 */
+	public static void exportCollapsedStacks(Writer out) throws IOException {
+		for (Map.Entry<TriggerItem, TimingStats> entry : new ArrayList<>(items.entrySet())) {
+			TriggerItem item = entry.getKey();
+			long micros = entry.getValue().getTotal() / 1000;
+			if (micros == 0)
+				continue;
+			
+			List<String> frames = new ArrayList<>();
+			for (TriggerItem frame = item; frame != null; frame = frame.getParent())
+				frames.add(frame instanceof Trigger ? ((Trigger) frame).getDebugLabel() : label(frame));
+			
+			StringBuilder line = new StringBuilder();
+			for (int i = frames.size() - 1; i >= 0; i--) {
+				line.append(frames.get(i).replace(';', ',').replace('\n', ' '));
+				if (i > 0)
+					line.append(';');
+			}
+			out.write(line.append(' ').append(micros).append('\n').toString());
+		}
+		out.flush();
+	}
+	
+	private static String label(TriggerItem item) {
+		if (item instanceof Trigger)
+			return ((Trigger) item).getDebugLabel();
+		try {
+			return item.toString(null, false);
+		} catch (RuntimeException e) { // toString without an event isn't supported by everything
+			return item.getClass().getSimpleName();
+		}
+	}
+	
+	/**
+	 * Exports the recorded timings into a JSON and a collapsed stacks file in the given directory.
+	 * 
+	 * @return The JSON file
+	 */
+	public static File export(File directory) throws IOException {
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("Cannot create the directory " + directory);
+		String name = "timings-" + new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss").format(new Date());
+		File json = new File(directory, name + ".json");
+		try (Writer out = Files.newBufferedWriter(json.toPath(), StandardCharsets.UTF_8)) {
+			exportJson(out);
+		}
+		try (Writer out = Files.newBufferedWriter(new File(directory, name + ".folded").toPath(), StandardCharsets.UTF_8)) {
+			exportCollapsedStacks(out);
+		}
+		return json;
+	}
+	
 	public static void setSkript(Skript plugin) {
 		skript = plugin;
 	}
@@ -0,0 +1,142 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.timings;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The recorded timings of one trigger or trigger item.
+ * <p>
+ * Durations are kept in a log-linear histogram like HdrHistogram's: every power of two is split into
+ * {@value #SUB_BUCKETS} buckets, so percentiles are accurate to about 6% at any scale in a fixed amount of memory.
+ */
+public final class TimingStats {
+
+	private static final int SUB_BITS = 4;
+	private static final int SUB_BUCKETS = 1 << SUB_BITS;
+	private static final int BUCKETS = (64 - SUB_BITS) * SUB_BUCKETS;
+
+	private final LongAdder count = new LongAdder();
+	private final LongAdder total = new LongAdder();
+	private final AtomicLong min = new AtomicLong(Long.MAX_VALUE);
+	private final AtomicLong max = new AtomicLong();
+	private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+	TimingStats() {}
+
+	/**
+	 * Records one invocation.
+	 *
+	 * @param nanos how long the invocation took
+	 */
+	void record(long nanos) {
+		if (nanos < 0)
+			nanos = 0;
+		count.increment();
+		total.add(nanos);
+		if (nanos < min.get())
+			min.accumulateAndGet(nanos, Math::min);
+		if (nanos > max.get())
+			max.accumulateAndGet(nanos, Math::max);
+		histogram.incrementAndGet(bucketOf(nanos));
+	}
+
+	private static int bucketOf(long value) {
+		if (value < SUB_BUCKETS)
+			return (int) value;
+		int exponent = 63 - Long.numberOfLeadingZeros(value);
+		int sub = (int) (value >>> (exponent - SUB_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BITS + 1) * SUB_BUCKETS + sub;
+	}
+
+	private static long lowestValueOf(int bucket) {
+		int row = bucket / SUB_BUCKETS, sub = bucket % SUB_BUCKETS;
+		if (row == 0)
+			return sub;
+		return (long) (SUB_BUCKETS + sub) << (row - 1);
+	}
+
+	/**
+	 * @return The amount of recorded invocations
+	 */
+	public long getCount() {
+		return count.sum();
+	}
+
+	/**
+	 * @return The total time of all recorded invocations, in nanoseconds
+	 */
+	public long getTotal() {
+		return total.sum();
+	}
+
+	/**
+	 * @return The shortest recorded invocation in nanoseconds, or 0 if none were recorded
+	 */
+	public long getMin() {
+		long min = this.min.get();
+		return min == Long.MAX_VALUE ? 0 : min;
+	}
+
+	/**
+	 * @return The longest recorded invocation, in nanoseconds
+	 */
+	public long getMax() {
+		return max.get();
+	}
+
+	/**
+	 * @return The average time of the recorded invocations, in nanoseconds
+	 */
+	public long getMean() {
+		long count = getCount();
+		return count == 0 ? 0 : getTotal() / count;
+	}
+
+	/**
+	 * @param percentile The percentile, between 0 and 100
+	 * @return The time in nanoseconds that the given percentage of recorded invocations didn't exceed, approximately
+	 */
+	public long getPercentile(double percentile) {
+		long count = 0;
+		long[] counts = new long[BUCKETS];
+		for (int i = 0; i < BUCKETS; i++)
+			count += counts[i] = histogram.get(i);
+		if (count == 0)
+			return 0;
+		if (percentile >= 100)
+			return getMax();
+
+		long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+		long seen = 0;
+		for (int i = 0; i < BUCKETS; i++) {
+			seen += counts[i];
+			if (seen >= rank) {
+				// the middle of the bucket, but never beyond what was actually recorded
+				long low = lowestValueOf(i);
+				long high = i + 1 < BUCKETS ? lowestValueOf(i + 1) - 1 : Long.MAX_VALUE;
+				return Math.min(low + (high - low) / 2, getMax());
+			}
+		}
+		return getMax();
+	}
+
+}
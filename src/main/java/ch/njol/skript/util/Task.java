@@ -26,6 +26,7 @@ import dev.ultreon.baseskript.Plugin;
 
 import java.util.concurrent.Callable;
 import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 
@@ -163,6 +164,7 @@ public abstract class Task implements Runnable, Closeable {
 				return c.call();
 			} catch (final Exception e) {
 				Skript.exception(e);
+				return null;
 			}
 		}
 		final Future<T> f = BaseSkript.getScheduler().callSyncMethod(p, c);
@@ -178,4 +180,29 @@ public abstract class Task implements Runnable, Closeable {
 		return null;
 	}
 	
+	/**
+	 * Calls a method on the main thread without waiting for it.
+	 * <p>
+	 * If called from the main thread, the method is called immediately. Otherwise it's queued
+	 * and called together with all other queued methods at the start of the next tick.
+	 * 
+	 * @param c The method
+	 * @return A future completed with what the method returned, or exceptionally with what it threw
+	 */
+	public static <T> CompletableFuture<T> callSyncAsync(final Callable<T> c) {
+		final CompletableFuture<T> future = new CompletableFuture<>();
+		final Runnable call = () -> {
+			try {
+				future.complete(c.call());
+			} catch (final Throwable t) {
+				future.completeExceptionally(t);
+			}
+		};
+		if (BaseSkript.isPrimaryThread())
+			call.run();
+		else
+			BaseSkript.getScheduler().runSync(call);
+		return future;
+	}
+	
 }
@@ -0,0 +1,91 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.util;
+
+import ch.njol.skript.Skript;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Runs asynchronous triggers and their delayed continuations on virtual threads,
+ * if enabled with the {@code use virtual threads} option and supported by the running Java version.
+ * <p>
+ * Virtual threads are only available on Java 21 and later, so the executor is created reflectively.
+ */
+public final class VirtualThreads {
+
+	private VirtualThreads() {}
+
+	@Nullable
+	private static volatile ExecutorService executor;
+
+	private static boolean closeRegistered = false;
+
+	/**
+	 * @return Whether triggers that can run asynchronously should be run on virtual threads.
+	 */
+	public static boolean isEnabled() {
+		return executor != null;
+	}
+
+	/**
+	 * Enables or disables running triggers on virtual threads.
+	 * If they are not supported by the running Java version, a warning is printed and they stay disabled.
+	 */
+	public static synchronized void setEnabled(boolean enabled) {
+		ExecutorService current = executor;
+		if (enabled == (current != null))
+			return;
+
+		if (!enabled) {
+			executor = null;
+			current.shutdown(); // already started triggers may finish
+			return;
+		}
+
+		try {
+			executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException e) {
+			Skript.warning("Virtual threads require Java 21 or later, triggers will run on platform threads.");
+			return;
+		}
+		if (!closeRegistered) {
+			closeRegistered = true;
+			Skript.closeOnDisable(() -> setEnabled(false));
+		}
+	}
+
+	/**
+	 * Runs the given task on a new virtual thread, or on the current thread if virtual threads aren't enabled.
+	 */
+	public static void execute(Runnable task) {
+		ExecutorService executor = VirtualThreads.executor;
+		if (executor != null) {
+			try {
+				executor.execute(task);
+				return;
+			} catch (RejectedExecutionException ignored) {} // disabled in the meantime
+		}
+		task.run();
+	}
+
+}
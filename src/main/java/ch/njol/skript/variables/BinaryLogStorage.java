@@ -0,0 +1,663 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.variables;
+
+import ch.njol.skript.Skript;
+import ch.njol.skript.config.SectionNode;
+import ch.njol.skript.log.SkriptLogger;
+import ch.njol.skript.registrations.Classes;
+import ch.njol.skript.util.ExceptionUtils;
+import ch.njol.skript.util.FileUtils;
+import ch.njol.skript.util.Task;
+import ch.njol.skript.variables.SerializedVariable.Value;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+
+/**
+ * A variable storage that appends every change to a binary log file,
+ * and periodically compacts that log into a snapshot file.
+ * <p>
+ * Both files consist of a header followed by length-prefixed records:
+ * <pre>
+ * record: [int payload length] [int CRC32 of payload] [payload]
+ * payload: [int name length] [name] [int type length, -1 for deletion] [type] [int data length] [data]
+ * </pre>
+ * The configured file is the snapshot, the log is stored next to it with a {@code .log} suffix.
+ * Compaction seals the current log, then merges it into a new snapshot in the background,
+ * without needing the variables or any of their locks.
+ */
+public class BinaryLogStorage extends VariablesStorage {
+
+	/**
+	 * The magic number at the start of a snapshot file ({@code SKVS}).
+	 */
+	private static final int SNAPSHOT_MAGIC = 0x534B5653;
+
+	/**
+	 * The magic number at the start of a log file ({@code SKVL}).
+	 */
+	private static final int LOG_MAGIC = 0x534B564C;
+
+	/**
+	 * The version of the file format.
+	 */
+	private static final int FORMAT_VERSION = 1;
+
+	/**
+	 * The length of the file header, the magic number and the format version.
+	 */
+	private static final int HEADER_LENGTH = 8;
+
+	/**
+	 * The length of a record header, the payload length and its checksum.
+	 */
+	private static final int RECORD_HEADER_LENGTH = 8;
+
+	/**
+	 * The size the log must reach, in bytes, before it is compacted into the snapshot.
+	 */
+	private static final long COMPACTION_THRESHOLD = 16 * 1024 * 1024;
+
+	/**
+	 * The delay for the compaction task.
+	 */
+	private static final long COMPACTION_TASK_DELAY = 60 * 20;
+
+	/**
+	 * The period for the compaction task, how long (in ticks) between each check.
+	 */
+	private static final long COMPACTION_TASK_PERIOD = 60 * 20;
+
+	/**
+	 * The file changes are appended to.
+	 */
+	@Nullable
+	private File logFile;
+
+	/**
+	 * The log that is currently being merged into the snapshot.
+	 * Only exists while a compaction is running, or if one was interrupted.
+	 */
+	@Nullable
+	private File sealedLogFile;
+
+	/**
+	 * The channel used to append to the {@link #logFile}.
+	 * <p>
+	 * Must only be used while holding the {@link #connectionLock}.
+	 */
+	@Nullable
+	private FileChannel logChannel;
+
+	/**
+	 * The size of the {@link #logFile}, in bytes.
+	 * Any bytes after this, e.g. a partially written record, are discarded when connecting.
+	 * <p>
+	 * Must only be used while holding the {@link #connectionLock}.
+	 */
+	private long logLength;
+
+	/**
+	 * Whether a compaction is currently running.
+	 */
+	private final AtomicBoolean compacting = new AtomicBoolean();
+
+	/**
+	 * The compaction task.
+	 *
+	 * @see #COMPACTION_THRESHOLD
+	 */
+	@Nullable
+	private Task compactionTask;
+
+	/**
+	 * Create a new binary log storage of the given name.
+	 *
+	 * @param name the name.
+	 */
+	BinaryLogStorage(String name) {
+		super(name);
+	}
+
+	/**
+	 * Loads the variables from the snapshot and the logs.
+	 * <p>
+	 * Doesn't lock the connection, as required by
+	 * {@link Variables#variableLoaded(String, Object, VariablesStorage)}.
+	 */
+	@Override
+	protected boolean load_i(SectionNode sectionNode) {
+		SkriptLogger.setNode(null);
+
+		if (file == null) {
+			assert false : this;
+			return false;
+		}
+
+		Map<String, @Nullable Value> variables;
+		try {
+			variables = readVariables();
+		} catch (IOException e) {
+			Skript.error("An I/O error occurred while loading the variables: " + ExceptionUtils.toString(e));
+			Skript.error("This means that some to all variables could not be loaded!");
+			return false;
+		}
+
+		// Connect before passing on the variables, as they may be removed from this storage right away
+		if (!connect())
+			return false;
+
+		int unsuccessfulVariableCount = 0;
+		StringBuilder invalid = new StringBuilder();
+		for (Entry<String, @Nullable Value> entry : variables.entrySet()) {
+			Value value = entry.getValue();
+			if (value == null)
+				continue; // Deleted
+
+			Object deserializedValue = deserialize(entry.getKey(), value.type, value.data);
+			if (deserializedValue == null) {
+				// Couldn't deserialize variable
+				if (invalid.length() != 0)
+					invalid.append(", ");
+
+				invalid.append(entry.getKey());
+				unsuccessfulVariableCount++;
+				continue;
+			}
+
+			Variables.variableLoaded(entry.getKey(), deserializedValue, this);
+		}
+
+		if (unsuccessfulVariableCount > 0) {
+			Skript.error(unsuccessfulVariableCount + " variable" + (unsuccessfulVariableCount == 1 ? "" : "s") +
+					" could not be loaded!");
+			Skript.error("Affected variables: " + invalid);
+		}
+
+		// Start the compaction task
+		compactionTask = new Task(Skript.getInstance(), COMPACTION_TASK_DELAY, COMPACTION_TASK_PERIOD, true) {
+			@Override
+			public void run() {
+				compact();
+			}
+		};
+
+		return true;
+	}
+
+	/**
+	 * Reads the snapshot, then the logs, in the order they were written.
+	 * Must only be called once the {@link #file} is set, and before connecting.
+	 *
+	 * @return the latest value of each variable, or {@code null} if it was deleted.
+	 */
+	Map<String, @Nullable Value> readVariables() throws IOException {
+		File file = this.file;
+		assert file != null;
+
+		File logFile = this.logFile = new File(file.getPath() + ".log");
+		File sealedLogFile = this.sealedLogFile = new File(file.getPath() + ".log.old");
+
+		Map<String, @Nullable Value> variables = new LinkedHashMap<>();
+		readSnapshot(file, variables);
+		if (sealedLogFile.exists())
+			replayLog(sealedLogFile, variables);
+		logLength = logFile.exists() ? replayLog(logFile, variables) : 0;
+		return variables;
+	}
+
+	@Override
+	protected void allLoaded() {
+		// no transaction support
+	}
+
+	@Override
+	protected boolean requiresFile() {
+		return true;
+	}
+
+	@Override
+	protected File getFile(String fileName) {
+		return new File(fileName);
+	}
+
+	@Override
+	protected final boolean connect() {
+		synchronized (connectionLock) {
+			assert logFile != null; // file should be non-null after load
+
+			if (logChannel != null)
+				return true;
+
+			try {
+				FileChannel channel = FileChannel.open(logFile.toPath(),
+					StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				if (logLength < HEADER_LENGTH) {
+					// New or empty log, write the header
+					channel.truncate(0);
+					writeFully(channel, header(LOG_MAGIC));
+					logLength = HEADER_LENGTH;
+				} else {
+					// Drop anything after the last complete record
+					channel.truncate(logLength);
+				}
+				channel.position(logLength);
+				logChannel = channel;
+				return true;
+			} catch (IOException e) {
+				//noinspection ThrowableNotThrown
+				Skript.exception(e, "Cannot open the variable log of the database '" + databaseName + "'");
+				return false;
+			}
+		}
+	}
+
+	@Override
+	protected final void disconnect() {
+		synchronized (connectionLock) {
+			FileChannel channel = logChannel;
+			if (channel == null)
+				return;
+
+			logChannel = null;
+			try {
+				channel.force(false);
+				channel.close();
+			} catch (IOException e) {
+				Skript.error("Unable to close the variable log of the database '" + databaseName + "': " + ExceptionUtils.toString(e));
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		super.close();
+
+		if (compactionTask != null)
+			compactionTask.cancel();
+		disconnect();
+	}
+
+	@Override
+	protected boolean save(String name, @Nullable String type, byte @Nullable [] value) {
+		Value serializedValue = type == null || value == null ? null : new Value(type, value);
+		return append(Collections.singletonList(new SerializedVariable(name, serializedValue)));
+	}
+
+	/**
+	 * Appends the whole batch to the log with a single write,
+	 * and only forces it to disk once.
+	 */
+	@Override
+	protected void saveBatch(Collection<SerializedVariable> variables) {
+		append(variables);
+	}
+
+	/**
+	 * Appends the given variables to the log, and forces them to disk.
+	 *
+	 * @param variables the variables to append.
+	 * @return whether the variables were written.
+	 */
+	private boolean append(Collection<SerializedVariable> variables) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			for (SerializedVariable variable : variables)
+				writeRecord(out, variable);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e); // a ByteArrayOutputStream doesn't throw
+		}
+		ByteBuffer buffer = ByteBuffer.wrap(bytes.toByteArray());
+
+		synchronized (connectionLock) {
+			if (logChannel == null && !connect())
+				return false;
+			FileChannel channel = logChannel;
+			assert channel != null;
+
+			try {
+				writeFully(channel, buffer);
+				channel.force(false);
+				logLength += buffer.limit();
+				return true;
+			} catch (IOException e) {
+				Skript.error("Unable to write variables to the database '" + databaseName + "': " + ExceptionUtils.toString(e));
+				return false;
+			}
+		}
+	}
+
+	/**
+	 * Merges the log into the snapshot, if it has grown large enough.
+	 * <p>
+	 * The log is sealed and replaced by an empty log while holding the {@link #connectionLock},
+	 * the rest of the work is done without any lock. A sealed log left over from an earlier
+	 * compaction is merged first.
+	 */
+	public void compact() {
+		if (!compacting.compareAndSet(false, true))
+			return;
+
+		File file = this.file;
+		File logFile = this.logFile;
+		File sealedLogFile = this.sealedLogFile;
+		assert file != null && logFile != null && sealedLogFile != null;
+
+		try {
+			synchronized (connectionLock) {
+				if (!sealedLogFile.exists()) {
+					if (logLength < COMPACTION_THRESHOLD)
+						return;
+
+					// Seal the current log and start a new one
+					disconnect();
+					FileUtils.move(logFile, sealedLogFile, false);
+					logLength = 0;
+					if (!connect())
+						return;
+				}
+			}
+
+			long start = System.currentTimeMillis();
+
+			// Only the changes in the sealed log are held in memory, the snapshot is streamed
+			Map<String, @Nullable Value> changes = new LinkedHashMap<>();
+			replayLog(sealedLogFile, changes);
+
+			File tempFile = new File(file.getParentFile(), file.getName() + ".temp");
+			int written = 0;
+			try (FileOutputStream fileOut = new FileOutputStream(tempFile);
+				 DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOut))) {
+				out.write(header(SNAPSHOT_MAGIC).array());
+
+				// Copy all variables of the old snapshot that haven't changed since
+				if (file.length() > 0) {
+					try (DataInputStream in = openForReading(file, SNAPSHOT_MAGIC)) {
+						SerializedVariable variable;
+						while ((variable = readRecord(in)) != null) {
+							if (!changes.containsKey(variable.name)) {
+								writeRecord(out, variable);
+								written++;
+							}
+						}
+					}
+				}
+
+				// ..., then the latest value of everything that did change
+				for (Entry<String, @Nullable Value> change : changes.entrySet()) {
+					if (change.getValue() != null) {
+						writeRecord(out, new SerializedVariable(change.getKey(), change.getValue()));
+						written++;
+					}
+				}
+
+				out.flush();
+				fileOut.getFD().sync();
+			}
+
+			synchronized (connectionLock) {
+				FileUtils.move(tempFile, file, true);
+				Files.delete(sealedLogFile.toPath());
+			}
+
+			Skript.debug("Compacted the database '" + databaseName + "' to " + written + " variables in " +
+				(System.currentTimeMillis() - start) + " ms");
+		} catch (IOException e) {
+			Skript.error("Unable to compact the database '" + databaseName + "' (no variables are lost): " +
+				ExceptionUtils.toString(e));
+		} finally {
+			compacting.set(false);
+		}
+	}
+
+	/**
+	 * Reads all variables in the given snapshot into the given map.
+	 *
+	 * @param snapshot the snapshot file, may be empty.
+	 * @param variables the map to put the variables in.
+	 */
+	private static void readSnapshot(File snapshot, Map<String, @Nullable Value> variables) throws IOException {
+		if (snapshot.length() == 0)
+			return; // No snapshot yet
+
+		try (DataInputStream in = openForReading(snapshot, SNAPSHOT_MAGIC)) {
+			SerializedVariable variable;
+			while ((variable = readRecord(in)) != null)
+				variables.put(variable.name, variable.value);
+		}
+	}
+
+	/**
+	 * Applies all changes in the given log to the given map,
+	 * putting {@code null} for deleted variables.
+	 * <p>
+	 * A truncated or corrupt record ends the log, as it can only be caused by a crash while writing it.
+	 *
+	 * @param log the log file.
+	 * @param variables the map to apply the changes to.
+	 * @return the length of the valid part of the log, in bytes.
+	 */
+	private static long replayLog(File log, Map<String, @Nullable Value> variables) throws IOException {
+		if (log.length() < HEADER_LENGTH)
+			return 0;
+
+		long length = HEADER_LENGTH;
+		try (DataInputStream in = openForReading(log, LOG_MAGIC)) {
+			while (true) {
+				SerializedVariable variable;
+				try {
+					variable = readRecord(in);
+				} catch (EOFException | StreamCorruptedException e) {
+					Skript.warning("The end of the variable log '" + log.getName() + "' is incomplete, " +
+						"the last changes before the server stopped may be lost.");
+					break;
+				}
+				if (variable == null)
+					break;
+
+				// Remove first, so that the variable moves to the end
+				variables.remove(variable.name);
+				variables.put(variable.name, variable.value);
+				length += RECORD_HEADER_LENGTH + payloadLength(variable);
+			}
+		}
+		return length;
+	}
+
+	/**
+	 * Opens the given file for reading, and checks its header.
+	 *
+	 * @param file the file.
+	 * @param magic the expected magic number.
+	 * @return the stream, positioned after the header.
+	 */
+	private static DataInputStream openForReading(File file, int magic) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())));
+		try {
+			if (in.readInt() != magic)
+				throw new StreamCorruptedException(file.getName() + " is not a variables file");
+			int version = in.readInt();
+			if (version != FORMAT_VERSION)
+				throw new StreamCorruptedException(file.getName() + " has an unsupported format version " + version);
+		} catch (IOException e) {
+			in.close();
+			throw e;
+		}
+		return in;
+	}
+
+	/**
+	 * Creates the file header for the given magic number.
+	 *
+	 * @param magic the magic number.
+	 * @return the header, ready to be written.
+	 */
+	private static ByteBuffer header(int magic) {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_LENGTH);
+		header.putInt(magic).putInt(FORMAT_VERSION);
+		header.flip();
+		return header;
+	}
+
+	/**
+	 * Reads the next record.
+	 *
+	 * @param in the stream.
+	 * @return the variable, or {@code null} if the end of the stream was reached.
+	 * @throws EOFException if the record is truncated.
+	 * @throws StreamCorruptedException if the record's length or checksum is invalid, or its payload is malformed.
+	 */
+	@Nullable
+	private static SerializedVariable readRecord(DataInputStream in) throws IOException {
+		int length;
+		try {
+			length = in.readInt();
+		} catch (EOFException e) {
+			return null; // Clean end of the file
+		}
+		int checksum = in.readInt();
+		// The three lengths alone take 12 bytes, which also rejects the zeroes a crash may leave at the end of a file.
+		// The stream is backed by a file, so the available bytes are all that is left of it.
+		if (length < 12 || length > in.available())
+			throw new StreamCorruptedException("Invalid record length " + length);
+
+		byte[] payload = new byte[length];
+		in.readFully(payload);
+
+		CRC32 crc = new CRC32();
+		crc.update(payload, 0, length);
+		if ((int) crc.getValue() != checksum)
+			throw new StreamCorruptedException("Record checksum mismatch");
+
+		ByteBuffer buffer = ByteBuffer.wrap(payload);
+		String name = readString(buffer);
+		if (name == null)
+			throw new StreamCorruptedException("Record without a variable name");
+		String type = readString(buffer);
+		byte[] data = new byte[readLength(buffer)];
+		buffer.get(data);
+		if (buffer.hasRemaining())
+			throw new StreamCorruptedException("Record longer than its contents");
+
+		return new SerializedVariable(name, type == null ? null : new Value(type, data));
+	}
+
+	/**
+	 * Writes the given variable as a record.
+	 *
+	 * @param out the stream.
+	 * @param variable the variable, with a {@code null} value for a deletion.
+	 */
+	private static void writeRecord(DataOutputStream out, SerializedVariable variable) throws IOException {
+		Value value = variable.value;
+		byte[] name = variable.name.getBytes(StandardCharsets.UTF_8);
+		byte[] type = value == null ? null : value.type.getBytes(StandardCharsets.UTF_8);
+		byte[] data = value == null ? new byte[0] : value.data;
+
+		ByteBuffer payload = ByteBuffer.allocate(12 + name.length + (type == null ? 0 : type.length) + data.length);
+		payload.putInt(name.length).put(name);
+		if (type == null) {
+			payload.putInt(-1);
+		} else {
+			payload.putInt(type.length).put(type);
+		}
+		payload.putInt(data.length).put(data);
+
+		CRC32 crc = new CRC32();
+		crc.update(payload.array(), 0, payload.capacity());
+
+		out.writeInt(payload.capacity());
+		out.writeInt((int) crc.getValue());
+		out.write(payload.array());
+	}
+
+	/**
+	 * Calculates the length of the payload of the record of the given variable.
+	 *
+	 * @param variable the variable.
+	 * @return the length, in bytes.
+	 */
+	private static int payloadLength(SerializedVariable variable) {
+		Value value = variable.value;
+		int length = 12 + variable.name.getBytes(StandardCharsets.UTF_8).length;
+		if (value != null)
+			length += value.type.getBytes(StandardCharsets.UTF_8).length + value.data.length;
+		return length;
+	}
+
+	/**
+	 * Reads a length-prefixed UTF-8 string.
+	 *
+	 * @param buffer the buffer.
+	 * @return the string, or {@code null} if its length was {@code -1}.
+	 */
+	@Nullable
+	private static String readString(ByteBuffer buffer) throws StreamCorruptedException {
+		if (buffer.remaining() >= 4 && buffer.getInt(buffer.position()) == -1) {
+			buffer.getInt();
+			return null;
+		}
+
+		byte[] bytes = new byte[readLength(buffer)];
+		buffer.get(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Reads the length of the next part of a record's payload,
+	 * and checks that the rest of the payload is long enough to hold it.
+	 *
+	 * @param buffer the buffer holding the payload.
+	 * @return the length.
+	 * @throws StreamCorruptedException if the length is negative or longer than the rest of the payload.
+	 */
+	private static int readLength(ByteBuffer buffer) throws StreamCorruptedException {
+		if (buffer.remaining() < 4)
+			throw new StreamCorruptedException("Record payload too short");
+		int length = buffer.getInt();
+		if (length < 0 || length > buffer.remaining())
+			throw new StreamCorruptedException("Invalid length " + length + " in record payload");
+		return length;
+	}
+
+	/**
+	 * Writes all remaining bytes of the buffer to the channel.
+	 *
+	 * @param channel the channel.
+	 * @param buffer the buffer.
+	 */
+	private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+	}
+
+}
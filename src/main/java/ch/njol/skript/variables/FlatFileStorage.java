@@ -19,6 +19,8 @@
 package ch.njol.skript.variables;
 
 import ch.njol.skript.Skript;
+import ch.njol.skript.classes.ClassInfo;
+import ch.njol.skript.classes.Serializer;
 import ch.njol.skript.config.SectionNode;
 import ch.njol.skript.lang.Variable;
 import ch.njol.skript.log.SkriptLogger;
@@ -28,12 +30,21 @@ import ch.njol.util.NotifyingReference;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
-import java.util.TreeMap;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -70,8 +81,7 @@ public class FlatFileStorage extends VariablesStorage {
 	 * to the {@link #file}.
 	 * <p>
 	 * A Lock on this object must be acquired after connectionLock
-	 * if that lock is used
-	 * (and thus also after {@link Variables#getReadLock()}).
+	 * if that lock is used.
 	 */
 	private final NotifyingReference<PrintWriter> changesWriter = new NotifyingReference<PrintWriter>();
 
@@ -128,7 +138,6 @@ public class FlatFileStorage extends VariablesStorage {
 	 * Doesn't lock the connection, as required by
 	 * {@link Variables#variableLoaded(String, Object, VariablesStorage)}.
 	 */
-	@SuppressWarnings("deprecation")
 	@Override
 	protected boolean load_i(SectionNode sectionNode) {
 		SkriptLogger.setNode(null);
@@ -140,12 +149,178 @@ public class FlatFileStorage extends VariablesStorage {
 
 		// Keep track of loading errors
 		IOException ioException = null;
+		LoadState state = new LoadState();
+
+		// Files older than 2.1 need the legacy deserialization, which must run on the main thread
+		boolean update2_1 = false;
+
+		long start = System.nanoTime();
+		try {
+			Version csvSkriptVersion = readVersion(file);
+			update2_1 = csvSkriptVersion != null && csvSkriptVersion.isSmallerThan(new Version(2, 1));
+
+			if (update2_1) {
+				loadSequentially(file, state);
+			} else {
+				loadInParallel(file, state);
+			}
+		} catch (IOException e) {
+			loadError = true;
+			ioException = e;
+		}
+
+		if (Skript.logHigh()) {
+			double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+			double megabytes = file.length() / (1024.0 * 1024.0);
+			Skript.info("Read " + state.variableLines + " variables (" + Skript.toString(megabytes) + " MB) from " +
+				file.getName() + " in " + Skript.toString(seconds) + " seconds " +
+				"(" + Skript.toString(seconds == 0 ? 0 : megabytes / seconds) + " MB/s)");
+		}
+
+		int unsuccessfulVariableCount = state.unsuccessfulVariableCount;
+		StringBuilder invalid = state.invalid;
+
+		if (ioException != null || unsuccessfulVariableCount > 0 || update2_1) {
+			// Something's wrong (or just an old version)
+			if (unsuccessfulVariableCount > 0) {
+				Skript.error(unsuccessfulVariableCount + " variable" + (unsuccessfulVariableCount == 1 ? "" : "s") +
+						" could not be loaded!");
+				Skript.error("Affected variables: " + invalid);
+			}
+
+			if (ioException != null) {
+				Skript.error("An I/O error occurred while loading the variables: " + ExceptionUtils.toString(ioException));
+				Skript.error("This means that some to all variables could not be loaded!");
+			}
+
+			try {
+				if (update2_1) {
+					Skript.info("[2.1] updating " + file.getName() + " to the new format...");
+				}
+
+				// Back up CSV file
+				File backupFile = FileUtils.backup(file);
+				Skript.info("Created a backup of " + file.getName() + " as " + backupFile.getName());
+
+				loadError = false;
+			} catch (IOException ex) {
+				Skript.error("Could not backup " + file.getName() + ": " + ex.getMessage());
+			}
+		}
+
+		if (update2_1) {
+			// Save variables in new format
+			saveVariables(false);
+			Skript.info(file.getName() + " successfully updated.");
+		}
+
+		connect();
+
+		// Start the save task
+		saveTask = new Task(Skript.getInstance(), SAVE_TASK_DELAY, SAVE_TASK_PERIOD, true) {
+			@Override
+			public void run() {
+				// Due to concurrency, the amount of changes may change between the get and set call
+				//  but that's not a big issue
+				if (changes.get() >= REQUIRED_CHANGES_FOR_RESAVE) {
+					saveVariables(false);
+					changes.set(0);
+				}
+			}
+		};
+
+		return ioException == null;
+	}
+
+	/**
+	 * The size of the chunks the CSV file is split into for parallel loading, in bytes.
+	 * Chunks are extended to the end of the line they end in.
+	 */
+	private static final int LOAD_CHUNK_SIZE = 8 * 1024 * 1024;
+
+	/**
+	 * The amount of threads parsing and deserializing chunks while loading.
+	 */
+	private static final int LOAD_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * The maximum amount of bytes of the file that are parsed ahead of the chunk being merged,
+	 * limiting how much of the file is held in memory at once, however many threads there are.
+	 * A chunk is always parsed if none are pending, even if it's larger than this.
+	 */
+	private static final long MAX_PENDING_BYTES = 128L * 1024 * 1024;
+
+	/**
+	 * Keeps track of the progress and the errors while loading.
+	 */
+	private static final class LoadState {
+
+		/**
+		 * The amount of lines containing a variable.
+		 */
+		int variableLines = 0;
+
+		/**
+		 * The amount of variables that could not be loaded.
+		 */
 		int unsuccessfulVariableCount = 0;
-		StringBuilder invalid = new StringBuilder();
 
-		// The Skript version this CSV was created with
-		Version csvSkriptVersion;
+		/**
+		 * The names of the variables that could not be loaded.
+		 */
+		final StringBuilder invalid = new StringBuilder();
+
+		/**
+		 * Registers a variable that could not be loaded.
+		 *
+		 * @param name the variable name.
+		 */
+		void invalid(String name) {
+			if (invalid.length() != 0)
+				invalid.append(", ");
+
+			invalid.append(name);
+			unsuccessfulVariableCount++;
+		}
 
+	}
+
+	/**
+	 * Reads the Skript version the given CSV file was written with from its header.
+	 *
+	 * @param file the CSV file.
+	 * @return the version, or {@code null} if the header doesn't contain one.
+	 */
+	@Nullable
+	private static Version readVersion(File file) throws IOException {
+		try (BufferedReader reader = new BufferedReader(
+				new InputStreamReader(Files.newInputStream(file.toPath()), FILE_CHARSET))) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				line = line.trim();
+				if (line.startsWith("# version:")) {
+					try {
+						return new Version(line.substring("# version:".length()).trim());
+					} catch (IllegalArgumentException ignored) {
+						return null;
+					}
+				} else if (!line.isEmpty() && !line.startsWith("#")) {
+					return null; // End of the header
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Loads the given CSV file line by line on the current thread,
+	 * updating variables from old Skript versions.
+	 *
+	 * @param file the CSV file.
+	 * @param state the state to record progress and errors in.
+	 */
+	@SuppressWarnings("deprecation")
+	private void loadSequentially(File file, LoadState state) throws IOException {
 		// Some variables used to allow legacy CSV files to be loaded
 		Version v2_0_beta3 = new Version(2, 0, "beta 3");
 		boolean update2_0_beta3 = false;
@@ -167,7 +342,7 @@ public class FlatFileStorage extends VariablesStorage {
 						// Update the version accordingly
 
 						try {
-							csvSkriptVersion = new Version(line.substring("# version:".length()).trim());
+							Version csvSkriptVersion = new Version(line.substring("# version:".length()).trim());
 							update2_0_beta3 = csvSkriptVersion.isSmallerThan(v2_0_beta3);
 							update2_1 = csvSkriptVersion.isSmallerThan(v2_1);
 						} catch (IllegalArgumentException ignored) {
@@ -177,16 +352,14 @@ public class FlatFileStorage extends VariablesStorage {
 					continue;
 				}
 
+				state.variableLines++;
+
 				String[] split = splitCSV(line);
 				if (split == null || split.length != 3) {
 					// Invalid CSV line
 
 					Skript.error("invalid amount of commas in line " + lineNum + " ('" + line + "')");
-					if (invalid.length() != 0)
-						invalid.append(", ");
-
-					invalid.append(split == null ? "<unknown>" : split[0]);
-					unsuccessfulVariableCount++;
+					state.invalid(split == null ? "<unknown>" : split[0]);
 					continue;
 				}
 
@@ -203,11 +376,7 @@ public class FlatFileStorage extends VariablesStorage {
 
 					if (deserializedValue == null) {
 						// Couldn't deserialize variable
-						if (invalid.length() != 0)
-							invalid.append(", ");
-
-						invalid.append(split[0]);
-						unsuccessfulVariableCount++;
+						state.invalid(split[0]);
 						continue;
 					}
 
@@ -219,61 +388,249 @@ public class FlatFileStorage extends VariablesStorage {
 					Variables.variableLoaded(split[0], deserializedValue, this);
 				}
 			}
-		} catch (IOException e) {
-			loadError = true;
-			ioException = e;
 		}
+	}
 
-		if (ioException != null || unsuccessfulVariableCount > 0 || update2_1) {
-			// Something's wrong (or just an old version)
-			if (unsuccessfulVariableCount > 0) {
-				Skript.error(unsuccessfulVariableCount + " variable" + (unsuccessfulVariableCount == 1 ? "" : "s") +
-						" could not be loaded!");
-				Skript.error("Affected variables: " + invalid);
+	/**
+	 * Loads the given CSV file by reading it in chunks split at line boundaries.
+	 * The chunks are tokenized and deserialized on a fork-join pool,
+	 * then passed to {@link Variables#variableLoaded(String, Object, VariablesStorage)}
+	 * on the current thread, in the order they appear in the file.
+	 *
+	 * @param file the CSV file.
+	 * @param state the state to record progress and errors in.
+	 */
+	private void loadInParallel(File file, LoadState state) throws IOException {
+		ForkJoinPool pool = new ForkJoinPool(LOAD_THREADS);
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			long size = channel.size();
+			long position = 0;
+			int lineOffset = 0;
+
+			Deque<ForkJoinTask<ParsedChunk>> pending = new ArrayDeque<>();
+			Deque<Long> pendingSizes = new ArrayDeque<>();
+			long pendingBytes = 0;
+			while (position < size || !pending.isEmpty()) {
+				// Keep the pool busy, without reading too far ahead
+				while (position < size && pending.size() < LOAD_THREADS * 2
+						&& (pending.isEmpty() || pendingBytes + LOAD_CHUNK_SIZE <= MAX_PENDING_BYTES)) {
+					long end = findChunkEnd(channel, position, size);
+					ByteBuffer buffer = readChunk(channel, position, end);
+					pending.add(pool.submit(() -> parseChunk(buffer)));
+					pendingSizes.add(end - position);
+					pendingBytes += end - position;
+					position = end;
+				}
+
+				ParsedChunk chunk = pending.remove().join();
+				pendingBytes -= pendingSizes.remove();
+				for (ParsedLine parsedLine : chunk.lines)
+					merge(parsedLine, lineOffset, state);
+				lineOffset += chunk.lineCount;
 			}
+		} finally {
+			pool.shutdownNow();
+		}
+	}
 
-			if (ioException != null) {
-				Skript.error("An I/O error occurred while loading the variables: " + ExceptionUtils.toString(ioException));
-				Skript.error("This means that some to all variables could not be loaded!");
+	/**
+	 * Reads the given part of the file into a heap buffer.
+	 * The file isn't memory-mapped, as a mapping is only released on garbage collection,
+	 * and until then the file can't be replaced on some platforms, such as by {@link #saveVariables(boolean)}.
+	 *
+	 * @param channel the file channel.
+	 * @param start the start of the chunk.
+	 * @param end the end of the chunk, exclusive.
+	 * @return the chunk, ready to be read.
+	 */
+	private static ByteBuffer readChunk(FileChannel channel, long start, long end) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(end - start));
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, start + buffer.position()) < 0)
+				throw new EOFException("The file ended while reading it");
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Finds the end of the chunk starting at the given position,
+	 * i.e. the position after the first line break after {@link #LOAD_CHUNK_SIZE} bytes.
+	 *
+	 * @param channel the file channel.
+	 * @param start the start of the chunk.
+	 * @param size the size of the file.
+	 * @return the end of the chunk, exclusive.
+	 */
+	private static long findChunkEnd(FileChannel channel, long start, long size) throws IOException {
+		long position = start + LOAD_CHUNK_SIZE;
+		ByteBuffer buffer = ByteBuffer.allocate(4096);
+		while (position < size) {
+			buffer.clear();
+			int read = channel.read(buffer, position);
+			if (read <= 0)
+				break;
+
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n')
+					return position + i + 1;
 			}
+			position += read;
+		}
+		return size;
+	}
 
-			try {
-				if (update2_1) {
-					Skript.info("[2.1] updating " + file.getName() + " to the new format...");
-				}
+	/**
+	 * A chunk of the CSV file that has been parsed.
+	 */
+	private static final class ParsedChunk {
 
-				// Back up CSV file
-				File backupFile = FileUtils.backup(file);
-				Skript.info("Created a backup of " + file.getName() + " as " + backupFile.getName());
+		/**
+		 * The lines containing variables, in order.
+		 */
+		final List<ParsedLine> lines;
 
-				loadError = false;
-			} catch (IOException ex) {
-				Skript.error("Could not backup " + file.getName() + ": " + ex.getMessage());
-			}
+		/**
+		 * The total amount of lines in the chunk, including comments.
+		 */
+		final int lineCount;
+
+		ParsedChunk(List<ParsedLine> lines, int lineCount) {
+			this.lines = lines;
+			this.lineCount = lineCount;
 		}
 
-		if (update2_1) {
-			// Save variables in new format
-			saveVariables(false);
-			Skript.info(file.getName() + " successfully updated.");
+	}
+
+	/**
+	 * A line of the CSV file containing a variable that has been parsed.
+	 */
+	private static final class ParsedLine {
+
+		/**
+		 * The line number, relative to the start of the chunk.
+		 */
+		final int lineNumber;
+
+		/**
+		 * The trimmed line.
+		 */
+		final String line;
+
+		/**
+		 * The values of the line, {@code null} if the line isn't valid CSV.
+		 */
+		final String @Nullable [] split;
+
+		/**
+		 * Whether {@link #value} has been set,
+		 * i.e. the value didn't need to be deserialized on the main thread.
+		 */
+		boolean deserialized = false;
+
+		/**
+		 * The deserialized value, {@code null} if it could not be deserialized.
+		 */
+		@Nullable
+		Object value;
+
+		ParsedLine(int lineNumber, String line, String @Nullable [] split) {
+			this.lineNumber = lineNumber;
+			this.line = line;
+			this.split = split;
 		}
 
-		connect();
+	}
 
-		// Start the save task
-		saveTask = new Task(Skript.getInstance(), SAVE_TASK_DELAY, SAVE_TASK_PERIOD, true) {
-			@Override
-			public void run() {
-				// Due to concurrency, the amount of changes may change between the get and set call
-				//  but that's not a big issue
-				if (changes.get() >= REQUIRED_CHANGES_FOR_RESAVE) {
-					saveVariables(false);
-					changes.set(0);
-				}
+	/**
+	 * Tokenizes and deserializes all variable lines in the given chunk.
+	 * <p>
+	 * Runs on the loading pool.
+	 *
+	 * @param buffer the chunk.
+	 * @return the parsed chunk.
+	 */
+	private ParsedChunk parseChunk(ByteBuffer buffer) {
+		List<ParsedLine> lines = new ArrayList<>();
+		int lineCount = 0;
+		byte[] bytes = new byte[256];
+
+		while (buffer.hasRemaining()) {
+			// Find the end of the line
+			int start = buffer.position();
+			int end = start;
+			while (end < buffer.limit() && buffer.get(end) != '\n')
+				end++;
+			lineCount++;
+
+			int length = end - start;
+			if (bytes.length < length)
+				bytes = new byte[Math.max(length, bytes.length * 2)];
+			buffer.get(bytes, 0, length);
+			if (buffer.hasRemaining())
+				buffer.get(); // Skip the line break
+
+			String line = new String(bytes, 0, length, FILE_CHARSET).trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue; // Line doesn't contain variable
+
+			String[] split = splitCSV(line);
+			ParsedLine parsedLine = new ParsedLine(lineCount, line, split);
+			lines.add(parsedLine);
+			if (split == null || split.length != 3 || split[1].equals("null"))
+				continue;
+
+			ClassInfo<?> classInfo = Classes.getClassInfoNoError(split[1]);
+			Serializer<?> serializer = classInfo == null ? null : classInfo.getSerializer();
+			if (serializer != null && serializer.mustSyncDeserialization())
+				continue; // Will be deserialized on the main thread
+
+			parsedLine.deserialized = true;
+			try {
+				parsedLine.value = deserialize(split[0], split[1], decode(split[2]));
+			} catch (Exception e) {
+				// Couldn't deserialize variable, reported while merging
+				parsedLine.value = null;
 			}
-		};
+		}
 
-		return ioException == null;
+		return new ParsedChunk(lines, lineCount);
+	}
+
+	/**
+	 * Passes a parsed variable line on to the variables, or reports it if it was invalid.
+	 * <p>
+	 * Runs on the loading thread.
+	 *
+	 * @param parsedLine the parsed line.
+	 * @param lineOffset the amount of lines in the file before the chunk of this line.
+	 * @param state the state to record progress and errors in.
+	 */
+	private void merge(ParsedLine parsedLine, int lineOffset, LoadState state) {
+		state.variableLines++;
+
+		String[] split = parsedLine.split;
+		if (split == null || split.length != 3) {
+			// Invalid CSV line
+			Skript.error("invalid amount of commas in line " + (lineOffset + parsedLine.lineNumber) +
+				" ('" + parsedLine.line + "')");
+			state.invalid(split == null ? "<unknown>" : split[0]);
+			return;
+		}
+
+		if (split[1].equals("null")) {
+			Variables.variableLoaded(split[0], null, this);
+			return;
+		}
+
+		Object deserializedValue = parsedLine.deserialized ? parsedLine.value : Classes.deserialize(split[1], decode(split[2]));
+		if (deserializedValue == null) {
+			// Couldn't deserialize variable
+			state.invalid(split[0]);
+			return;
+		}
+
+		Variables.variableLoaded(split[0], deserializedValue, this);
 	}
 
 	@Override
@@ -386,9 +743,6 @@ public class FlatFileStorage extends VariablesStorage {
 		}
 
 		try {
-			// Acquire read lock
-			Variables.getReadLock().lock();
-
 			synchronized (connectionLock) {
 				try {
 					if (file == null) {
@@ -423,7 +777,8 @@ public class FlatFileStorage extends VariablesStorage {
 						pw.println("#");
 						pw.println("# version: " + Skript.getVersion());
 						pw.println();
-						save(pw, "", Variables.getVariables());
+						// Each stripe of variables is read locked while it's written
+						Variables.forEachVariablesTree(tree -> save(pw, "", tree));
 						pw.println();
 						pw.flush();
 						pw.close();
@@ -441,15 +796,8 @@ public class FlatFileStorage extends VariablesStorage {
 				}
 			}
 		} finally {
-			Variables.getReadLock().unlock();
-			boolean gotWriteLock = Variables.variablesLock.writeLock().tryLock();
-			if (gotWriteLock) { // Only process queue now if it doesn't require us to wait
-				try {
-					Variables.processChangeQueue();
-				} finally {
-					Variables.variablesLock.writeLock().unlock();
-				}
-			}
+			// Only processes the queues that don't require us to wait
+			Variables.processChangeQueue();
 		}
 	}
 
@@ -463,18 +811,19 @@ public class FlatFileStorage extends VariablesStorage {
 	 * @param map the variables map.
 	 */
 	@SuppressWarnings("unchecked")
-	private void save(PrintWriter pw, String parent, TreeMap<String, Object> map) {
-		// Iterate over all children
-		for (Entry<String, Object> childEntry : map.entrySet()) {
+	private void save(PrintWriter pw, String parent, Map<String, Object> map) {
+		// Iterate over all children, without deserializing lazily loaded variables
+		Set<Entry<String, Object>> entries = map instanceof VariablesMap.TreeNode ? ((VariablesMap.TreeNode) map).rawEntrySet() : map.entrySet();
+		for (Entry<String, Object> childEntry : entries) {
 			Object childNode = childEntry.getValue();
 			String childKey = childEntry.getKey();
 
 			if (childNode == null)
 				continue; // Leaf node
 
-			if (childNode instanceof TreeMap) {
-				// TreeMap found, recurse
-				save(pw, parent + childKey + Variable.SEPARATOR, (TreeMap<String, Object>) childNode);
+			if (childNode instanceof Map) {
+				// List variable found, recurse
+				save(pw, parent + childKey + Variable.SEPARATOR, (Map<String, Object>) childNode);
 			} else {
 				// Remove variable separator if needed
 				String name = childKey == null ? parent.substring(0, parent.length() - Variable.SEPARATOR.length()) : parent + childKey;
@@ -485,7 +834,7 @@ public class FlatFileStorage extends VariablesStorage {
 						if (storage.accept(name)) {
 							if (storage == this) {
 								// Serialize the value
-								SerializedVariable.Value serializedValue = Classes.serialize(childNode);
+								SerializedVariable.Value serializedValue = Variables.serialize(childNode);
 
 								// Write the CSV line
 								if (serializedValue != null)
@@ -536,46 +885,83 @@ public class FlatFileStorage extends VariablesStorage {
 		return decoded;
 	}
 
-	/**
-	 * A regex pattern of a line in a CSV file.
-	 */
-	private static final Pattern CSV_LINE_PATTERN = Pattern.compile("(?<=^|,)\\s*([^\",]*|\"([^\"]|\"\")*\")\\s*(,|$)");
-
 	/**
 	 * Splits the given CSV line into its values.
+	 * <p>
+	 * Values are separated by commas and trimmed. A value may be quoted,
+	 * in which case it may contain commas, and quotes are escaped by doubling them.
+	 * An unquoted value may not contain any quotes.
 	 *
 	 * @param line the CSV line.
-	 * @return the array of values.
-	 *
-	 * @see #CSV_LINE_PATTERN
+	 * @return the array of values, or {@code null} if the line is not valid CSV.
 	 */
 	@Nullable
 	static String[] splitCSV(String line) {
-		Matcher matcher = CSV_LINE_PATTERN.matcher(line);
-
-		int lastEnd = 0;
-		ArrayList<String> result = new ArrayList<String>();
-
-		while (matcher.find()) {
-			if (lastEnd != matcher.start())
-				return null; // other stuff inbetween finds
+		ArrayList<String> result = new ArrayList<String>(3);
+		int length = line.length();
+		int i = 0;
+
+		while (true) {
+			// Skip leading whitespace
+			while (i < length && isCSVWhitespace(line.charAt(i)))
+				i++;
+
+			if (i < length && line.charAt(i) == '"') {
+				// Quoted value, unescape it
+				StringBuilder value = new StringBuilder();
+				i++;
+				while (true) {
+					if (i >= length)
+						return null; // Unterminated quote
+
+					char c = line.charAt(i++);
+					if (c == '"') {
+						if (i < length && line.charAt(i) == '"') {
+							value.append('"');
+							i++;
+						} else {
+							break;
+						}
+					} else {
+						value.append(c);
+					}
+				}
+				result.add(value.toString());
 
-			String value = matcher.group(1);
-			if (value.startsWith("\""))
-				// Unescape value
-				result.add(value.substring(1, value.length() - 1).replace("\"\"", "\""));
-			else
-				result.add(value.trim());
+				// Only whitespace may follow the closing quote
+				while (i < length && isCSVWhitespace(line.charAt(i)))
+					i++;
+			} else {
+				int start = i;
+				while (i < length && line.charAt(i) != ',') {
+					if (line.charAt(i) == '"')
+						return null; // Quote inside an unquoted value
+					i++;
+				}
+				result.add(line.substring(start, i).trim());
+			}
 
-			lastEnd = matcher.end();
+			if (i == length)
+				break;
+			if (line.charAt(i) != ',')
+				return null; // Other stuff after a quoted value
+			i++; // Skip the comma
 		}
 
-		if (lastEnd != line.length())
-			return null; // other stuff after last find
-
 		return result.toArray(new String[0]);
 	}
 
+	/**
+	 * Checks whether the given character is whitespace around a CSV value,
+	 * i.e. matches the regex {@code \s}.
+	 *
+	 * @param c the character.
+	 * @return whether the character is whitespace.
+	 */
+	private static boolean isCSVWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
 	/**
 	 * A regex pattern to check if a string contains whitespace.
 	 * <p>
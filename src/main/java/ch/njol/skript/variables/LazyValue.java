@@ -0,0 +1,285 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.variables;
+
+import ch.njol.skript.Skript;
+import ch.njol.skript.registrations.Classes;
+import ch.njol.skript.util.Task;
+import ch.njol.skript.variables.SerializedVariable.Value;
+import org.jetbrains.annotations.Nullable;
+
+import java.lang.ref.WeakReference;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * The value of a global variable that was loaded without being deserialized,
+ * see the {@code lazy pattern} option of {@link VariablesStorage}.
+ * <p>
+ * The value is deserialized when it is first read, and serialized back
+ * into this object by the eviction task once it hasn't been read for a while.
+ * An evicted value is only weakly referenced until it's deserialized again, so that code
+ * still using it keeps seeing the same object when reading the variable again.
+ * Instances of this class are only found in the {@link VariablesMap} of global variables,
+ * {@link VariablesMap.TreeNode} hides them from anything reading the variables.
+ */
+final class LazyValue {
+
+	/**
+	 * The period of the eviction task, in ticks.
+	 */
+	private static final long EVICTION_PERIOD = 30 * 20;
+
+	/**
+	 * The lazy values that are currently deserialized.
+	 */
+	private static final Queue<LazyValue> resident = new ConcurrentLinkedQueue<LazyValue>();
+
+	/**
+	 * The amount of variables that were loaded lazily.
+	 */
+	private static final AtomicLong loaded = new AtomicLong();
+
+	/**
+	 * The amount of times a lazy value had to be deserialized.
+	 */
+	private static final AtomicLong faults = new AtomicLong();
+
+	/**
+	 * The amount of times a lazy value was serialized back after being idle.
+	 */
+	private static final AtomicLong evictions = new AtomicLong();
+
+	/**
+	 * The task evicting idle values, started once the first storage loads variables lazily.
+	 */
+	@Nullable
+	private static Task evictionTask;
+
+	/**
+	 * The name of the variable, to lock it while evicting the value.
+	 */
+	private final String name;
+
+	/**
+	 * The time in nanoseconds after which an unread value is evicted.
+	 */
+	private final long idleTime;
+
+	private String type;
+	private byte[] data;
+
+	/**
+	 * The deserialized value, or {@code null} if it's currently evicted.
+	 */
+	@Nullable
+	private volatile Object value;
+
+	/**
+	 * The value since it was evicted, as long as it's still in use elsewhere.
+	 * It is returned again instead of deserializing {@link #data}, and serialized in its place,
+	 * as it may have been changed in place after the eviction.
+	 */
+	@Nullable
+	private WeakReference<Object> evicted;
+
+	/**
+	 * Whether the value couldn't be deserialized, in which case the variable is treated as unset.
+	 */
+	private boolean invalid = false;
+
+	/**
+	 * The {@link System#nanoTime()} of the last read.
+	 */
+	private volatile long lastAccess;
+
+	/**
+	 * Creates a new lazy value from the given serialized form.
+	 *
+	 * @param name the name of the variable.
+	 * @param type the serialized type.
+	 * @param data the serialized data.
+	 * @param idleTime the time in milliseconds after which the value is evicted again after being read.
+	 */
+	LazyValue(String name, String type, byte[] data, long idleTime) {
+		this.name = name;
+		this.type = type;
+		this.data = data;
+		this.idleTime = TimeUnit.MILLISECONDS.toNanos(idleTime);
+		loaded.incrementAndGet();
+	}
+
+	/**
+	 * Gets the deserialized value, deserializing it if needed.
+	 *
+	 * @return the value, or {@code null} if it could not be deserialized.
+	 */
+	@Nullable
+	Object get() {
+		lastAccess = System.nanoTime();
+		Object value = this.value;
+		if (value != null)
+			return value;
+
+		synchronized (this) {
+			value = this.value;
+			if (value != null || invalid)
+				return value;
+
+			WeakReference<Object> evicted = this.evicted;
+			this.evicted = null;
+			value = evicted == null ? null : evicted.get();
+			if (value == null) {
+				value = Classes.deserialize(type, data);
+				if (value == null) {
+					invalid = true;
+					// Reads may happen on any thread, errors are logged on the main thread
+					String error = "The lazily loaded variable {" + name + "} of the type '" + type + "' could not be loaded and is treated as unset";
+					Task.callSyncAsync(() -> {
+						Skript.error(error);
+						return null;
+					});
+					return null;
+				}
+				faults.incrementAndGet();
+			}
+
+			this.value = value;
+			resident.add(this);
+			return value;
+		}
+	}
+
+	/**
+	 * Serializes this value, without deserializing it if it isn't yet.
+	 *
+	 * @return the serialized value, or {@code null} if the value could not be serialized.
+	 */
+	@Nullable
+	synchronized Value serialize() {
+		Object value = this.value;
+		if (value == null && evicted != null)
+			value = evicted.get();
+		if (value == null)
+			return invalid ? null : new Value(type, data);
+		return Classes.serialize(value);
+	}
+
+	/**
+	 * Serializes the value back into this object if it hasn't been read for the idle time.
+	 * The variable is locked meanwhile, so that it can't be read or changed while the value is evicted.
+	 *
+	 * @param now the current {@link System#nanoTime()}.
+	 * @return whether the value is no longer deserialized.
+	 */
+	private boolean evictIfIdle(long now) {
+		if (value == null)
+			return true;
+		if (now - lastAccess < idleTime)
+			return false;
+
+		Lock lock = Variables.getWriteLock(name);
+		lock.lock();
+		try {
+			synchronized (this) {
+				Object value = this.value;
+				if (value == null)
+					return true;
+				if (now - lastAccess < idleTime) // read in the meantime
+					return false;
+
+				// Serialize again, as the value may have been changed in place
+				Value serialized = Classes.serialize(value);
+				if (serialized == null)
+					return false;
+
+				type = serialized.type;
+				data = serialized.data;
+				evicted = new WeakReference<Object>(value);
+				this.value = null;
+				evictions.incrementAndGet();
+				return true;
+			}
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Starts the task evicting idle values, if it isn't running yet.
+	 */
+	static synchronized void startEvictionTask() {
+		if (evictionTask != null)
+			return;
+
+		Task task = new Task(Skript.getInstance(), EVICTION_PERIOD, EVICTION_PERIOD, true) {
+			@Override
+			public void run() {
+				long now = System.nanoTime();
+				int evicted = 0;
+				Iterator<LazyValue> iterator = resident.iterator();
+				while (iterator.hasNext()) {
+					if (iterator.next().evictIfIdle(now)) {
+						iterator.remove();
+						evicted++;
+					}
+				}
+
+				if (evicted > 0)
+					Skript.debug("Evicted " + evicted + " idle lazily loaded variables (" + resident.size() + " still loaded, " +
+						faults.get() + " loads on demand of " + loaded.get() + " lazily loaded variables so far)");
+			}
+		};
+		Skript.closeOnDisable(task);
+		evictionTask = task;
+	}
+
+	/**
+	 * @return the amount of variables that were loaded lazily.
+	 */
+	static long getLoaded() {
+		return loaded.get();
+	}
+
+	/**
+	 * @return the amount of times a lazily loaded variable was deserialized on demand.
+	 */
+	static long getFaults() {
+		return faults.get();
+	}
+
+	/**
+	 * @return the amount of times an idle lazily loaded variable was evicted.
+	 */
+	static long getEvictions() {
+		return evictions.get();
+	}
+
+	/**
+	 * @return the amount of lazily loaded variables that are currently deserialized.
+	 */
+	static int getResident() {
+		return resident.size();
+	}
+
+}
@@ -0,0 +1,178 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.variables;
+
+import ch.njol.skript.lang.Variable;
+import ch.njol.skript.lang.parser.ParserInstance;
+import org.jetbrains.annotations.Nullable;
+import org.skriptlang.skript.lang.structure.Structure;
+
+import java.util.IdentityHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The local variables of a structure, e.g. an event or a function, whose names are known while parsing.
+ * <p>
+ * Each of these variables gets a slot, which is an index into an array of the local variables
+ * of an execution, so that accessing them doesn't require looking up their name.
+ * Local variables with names only known during execution, as well as list variables, are still stored by name.
+ * If such a name belongs to a slot of the scope of the local variables, the slot is used instead,
+ * so that both ways of accessing a variable always agree.
+ */
+public final class LocalScope {
+
+	static {
+		ParserInstance.registerData(ScopeData.class, ScopeData::new);
+	}
+
+	/**
+	 * The slots of this scope, by variable name.
+	 */
+	private final Map<String, Integer> slots = new ConcurrentHashMap<String, Integer>();
+
+	/**
+	 * The amount of slots in this scope.
+	 */
+	private volatile int size = 0;
+
+	private LocalScope() {}
+
+	/**
+	 * Gets the slot of the given variable name.
+	 *
+	 * @param name the variable name, which must not contain {@link Variable#SEPARATOR}.
+	 * @return the index of the slot, or {@code -1} if the variable doesn't have a slot.
+	 */
+	int slotOf(String name) {
+		Integer slot = slots.get(name);
+		return slot == null ? -1 : slot;
+	}
+
+	/**
+	 * @return the amount of slots in this scope.
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Gets the slot of the given variable name, creating it if needed.
+	 *
+	 * @param name the variable name.
+	 * @return the slot.
+	 */
+	private synchronized Slot allocate(String name) {
+		Integer index = slots.get(name);
+		if (index == null) {
+			index = size;
+			slots.put(name, index);
+			size = index + 1;
+		}
+		return new Slot(this, index, name);
+	}
+
+	/**
+	 * Gets a slot for the given local variable in the structure that is currently being parsed.
+	 *
+	 * @param name the name of the local variable, without the {@link Variable#LOCAL_VARIABLE_TOKEN}.
+	 * @return the slot, or {@code null} if the variable is a list variable, or no structure is being parsed.
+	 */
+	@Nullable
+	public static Slot slotFor(String name) {
+		if (name.contains(Variable.SEPARATOR))
+			return null;
+
+		ParserInstance parser = ParserInstance.get();
+		if (!parser.isActive())
+			return null;
+
+		LocalScope scope = parser.getData(ScopeData.class).getScope();
+		if (scope == null)
+			return null;
+
+		if (Variables.caseInsensitiveVariables)
+			name = name.toLowerCase(Locale.ENGLISH);
+		return scope.allocate(name);
+	}
+
+	/**
+	 * The slot of a local variable in a {@link LocalScope}.
+	 */
+	public static final class Slot {
+
+		final LocalScope scope;
+		final int index;
+
+		/**
+		 * The name of the variable, in the case it's stored in.
+		 */
+		final String name;
+
+		private Slot(LocalScope scope, int index, String name) {
+			this.scope = scope;
+			this.index = index;
+			this.name = name;
+		}
+
+	}
+
+	/**
+	 * Keeps track of the scope of the structure that is currently being parsed.
+	 * <p>
+	 * Sections that are executed with different events, e.g. the section of a spawn effect,
+	 * get their own scope, as their local variables are separate from those of the structure.
+	 */
+	public static final class ScopeData extends ParserInstance.Data {
+
+		@Nullable
+		private Structure structure;
+
+		/**
+		 * The scopes of the current structure, by the identity of the current events.
+		 */
+		private final Map<Object, LocalScope> scopes = new IdentityHashMap<Object, LocalScope>();
+
+		public ScopeData(ParserInstance parserInstance) {
+			super(parserInstance);
+		}
+
+		/**
+		 * @return the scope for the current structure and events, or {@code null} if there is no current structure.
+		 */
+		@Nullable
+		LocalScope getScope() {
+			Structure structure = getParser().getCurrentStructure();
+			if (structure == null) {
+				this.structure = null;
+				scopes.clear();
+				return null;
+			}
+
+			if (structure != this.structure) {
+				this.structure = structure;
+				scopes.clear();
+			}
+			return scopes.computeIfAbsent(getParser().getCurrentEvents(), events -> new LocalScope());
+		}
+
+	}
+
+}
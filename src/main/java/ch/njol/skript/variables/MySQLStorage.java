@@ -16,39 +16,55 @@
  *
  * Copyright Peter Güttinger, SkriptLang team and contributors
  */
-//package ch.njol.skript.variables;
-//
-//import ch.njol.skript.config.SectionNode;
-//import ch.njol.skript.log.SkriptLogger;
-//
-//public class MySQLStorage extends SQLStorage {
-//
-//	MySQLStorage(String name) {
-//		super(name, "CREATE TABLE IF NOT EXISTS %s (" +
-//				"rowid        BIGINT  NOT NULL  AUTO_INCREMENT  PRIMARY KEY," +
-//				"name         VARCHAR(" + MAX_VARIABLE_NAME_LENGTH + ")  NOT NULL  UNIQUE," +
-//				"type         VARCHAR(" + MAX_CLASS_CODENAME_LENGTH + ")," +
-//				"value        BLOB(" + MAX_VALUE_SIZE + ")," +
-//				"update_guid  CHAR(36)  NOT NULL" +
-//				") CHARACTER SET ucs2 COLLATE ucs2_bin");
-//	}
-//
-//	@Override
-//	public Database initialize(SectionNode config) {
-//		String host = getValue(config, "host");
-//		Integer port = getValue(config, "port", Integer.class);
-//		String user = getValue(config, "user");
-//		String password = getValue(config, "password");
-//		String database = getValue(config, "database");
-//		setTableName(config.get("table", "variables21"));
-//		if (host == null || port == null || user == null || password == null || database == null)
-//			return null;
-//		return new MySQL(SkriptLogger.LOGGER, "[Skript]", host, port, database, user, password);
-//	}
-//
-//	@Override
-//	protected boolean requiresFile() {
-//		return false;
-//	}
-//
-//}
+package ch.njol.skript.variables;
+
+import ch.njol.skript.config.SectionNode;
+import org.jetbrains.annotations.Nullable;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+public class MySQLStorage extends SQLStorage {
+
+	@Nullable
+	private String url, user, password;
+
+	MySQLStorage(String name) {
+		super(name, "CREATE TABLE IF NOT EXISTS %s (" +
+				"rowid        BIGINT  NOT NULL  AUTO_INCREMENT  PRIMARY KEY," +
+				"name         VARCHAR(" + MAX_VARIABLE_NAME_LENGTH + ")  NOT NULL  UNIQUE," +
+				"type         VARCHAR(" + MAX_CLASS_CODENAME_LENGTH + ")," +
+				"value        BLOB(" + MAX_VALUE_SIZE + ")," +
+				"update_guid  CHAR(36)  NOT NULL" +
+				") CHARACTER SET ucs2 COLLATE ucs2_bin");
+	}
+
+	@Override
+	protected boolean initialize(SectionNode config) {
+		String host = getValue(config, "host");
+		Integer port = getValue(config, "port", Integer.class);
+		String user = getValue(config, "user");
+		String password = getValue(config, "password");
+		String database = getValue(config, "database");
+		if (host == null || port == null || user == null || password == null || database == null)
+			return false;
+		// Cursor fetching makes the fetch size apply, instead of reading the whole table at once
+		this.url = "jdbc:mysql://" + host + ":" + port + "/" + database + "?useCursorFetch=true";
+		this.user = user;
+		this.password = password;
+		return true;
+	}
+
+	@Override
+	protected Connection openConnection() throws SQLException {
+		assert url != null;
+		return DriverManager.getConnection(url, user, password);
+	}
+
+	@Override
+	protected boolean requiresFile() {
+		return false;
+	}
+
+}
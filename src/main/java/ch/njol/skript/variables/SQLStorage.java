@@ -16,771 +16,628 @@
  *
  * Copyright Peter Güttinger, SkriptLang team and contributors
  */
-//package ch.njol.skript.variables;
-//
-//import ch.njol.skript.Skript;
-//import ch.njol.skript.classes.ClassInfo;
-//import ch.njol.skript.classes.Serializer;
-//import ch.njol.skript.config.SectionNode;
-//import ch.njol.skript.log.SkriptLogger;
-//import ch.njol.skript.registrations.Classes;
-//import ch.njol.skript.util.Task;
-//import ch.njol.skript.util.Timespan;
-//import ch.njol.util.SynchronizedReference;
-//import lib.PatPeter.SQLibrary.Database;
-//import lib.PatPeter.SQLibrary.DatabaseException;
-//import lib.PatPeter.SQLibrary.SQLibrary;
-//import io.github.ultreon.skript.Bukkit;
-//import org.bukkit.plugin.Plugin;
-//import org.jetbrains.annotations.Nullable;
-//
-//import java.io.File;
-//import java.sql.PreparedStatement;
-//import java.sql.ResultSet;
-//import java.sql.SQLException;
-//import java.util.Map.Entry;
-//import java.util.UUID;
-//import java.util.concurrent.Callable;
-//
-///**
-// * TODO create a metadata table to store some properties (e.g. Skript version, Yggdrasil version) -- but what if some variables cannot be converted? move them to a different table?
-// * TODO create my own database connector or find a better one
-// *
-// * @author Peter Güttinger
-// */
-//public abstract class SQLStorage extends VariablesStorage {
-//
-//	public final static int MAX_VARIABLE_NAME_LENGTH = 380, // MySQL: 767 bytes max; cannot set max bytes, only max characters
-//			MAX_CLASS_CODENAME_LENGTH = 50, // checked when registering a class
-//			MAX_VALUE_SIZE = 10000;
-//
-//	private final static String SELECT_ORDER = "name, type, value, rowid";
-//
-//	private final static String OLD_TABLE_NAME = "variables";
-//
-//	@Nullable
-//	private String formattedCreateQuery;
-//	private final String createTableQuery;
-//	private String tableName;
-//
-//	final SynchronizedReference<Database> db = new SynchronizedReference<>(null);
-//
-//	private boolean monitor = false;
-//	long monitor_interval;
-//
-//	private final static String guid = UUID.randomUUID().toString();
-//
-//	/**
-//	 * The delay between transactions in milliseconds.
-//	 */
-//	private final static long TRANSACTION_DELAY = 500;
-//
-//	/**
-//	 * Creates a SQLStorage with a create table query.
-//	 *
-//	 * @param name The name to be sent through this constructor when newInstance creates this class.
-//	 * @param createTableQuery The create table query to send to the SQL engine.
-//	 */
-//	public SQLStorage(String name, String createTableQuery) {
-//		super(name);
-//		this.createTableQuery = createTableQuery;
-//		this.tableName = "variables21";
-//	}
-//
-//	public String getTableName() {
-//		return tableName;
-//	}
-//
-//	public void setTableName(String tableName) {
-//		this.tableName = tableName;
-//	}
-//
-//	/**
-//	 * Initializes an SQL database with the user provided configuration section for loading the database.
-//	 *
-//	 * @param config The configuration from the config.sk that defines this database.
-//	 * @return A Database implementation from SQLibrary.
-//	 */
-//	@Nullable
-//	public abstract Database initialize(SectionNode config);
-//
-//	/**
-//	 * Retrieve the create query with the tableName in it
-//	 * @return the create query with the tableName in it (%s -> tableName)
-//	 */
-//	@Nullable
-//	public String getFormattedCreateQuery() {
-//		if (formattedCreateQuery == null)
-//			formattedCreateQuery = String.format(createTableQuery, tableName);
-//		return formattedCreateQuery;
-//	}
-//
-//	/**
-//	 * Doesn't lock the database for reading (it's not used anywhere else, and locking while loading will interfere with loaded variables being deleted by
-//	 * {@link Variables#variableLoaded(String, Object, VariablesStorage)}).
-//	 */
-//	@Override
-//	protected boolean load_i(SectionNode n) {
-//		synchronized (db) {
-//			Plugin plugin = Bukkit.getPluginManager().getPlugin("SQLibrary");
-//			if (plugin == null || !(plugin instanceof SQLibrary)) {
-//				Skript.error("You need the plugin SQLibrary in order to use a database with Skript. You can download the latest version from https://dev.bukkit.org/projects/sqlibrary/files/");
-//				return false;
-//			}
-//
-//			final Boolean monitor_changes = getValue(n, "monitor changes", Boolean.class);
-//			final Timespan monitor_interval = getValue(n, "monitor interval", Timespan.class);
-//			if (monitor_changes == null || monitor_interval == null)
-//				return false;
-//			monitor = monitor_changes;
-//			this.monitor_interval = monitor_interval.getMilliSeconds();
-//
-//			final Database db;
-//			try {
-//				Database database = initialize(n);
-//				if (database == null)
-//					return false;
-//				this.db.set(db = database);
-//			} catch (final RuntimeException e) {
-//				if (e instanceof DatabaseException) {// not in a catch clause to not produce a ClassNotFoundException when this class is loaded and SQLibrary is not present
-//					Skript.error(e.getLocalizedMessage());
-//					return false;
-//				}
-//				throw e;
-//			}
-//
-//			SkriptLogger.setNode(null);
-//
-//			if (!connect(true))
-//				return false;
-//
-//			try {
-//				final boolean hasOldTable = db.isTable(OLD_TABLE_NAME);
-//				final boolean hadNewTable = db.isTable(getTableName());
-//
-//				if (getFormattedCreateQuery() == null){
-//					Skript.error("Could not create the variables table in the database. The query to create the variables table '" + tableName + "' in the database '" + databaseName + "' is null.");
-//					return false;
-//				}
-//
-//				try {
-//					db.query(getFormattedCreateQuery());
-//				} catch (final SQLException e) {
-//					Skript.error("Could not create the variables table '" + tableName + "' in the database '" + databaseName + "': " + e.getLocalizedMessage() + ". "
-//							+ "Please create the table yourself using the following query: " + String.format(createTableQuery, tableName).replace(",", ", ").replaceAll("\\s+", " "));
-//					return false;
-//				}
-//
-//				if (!prepareQueries()) {
-//					return false;
-//				}
-//
-//				// old
-//				// Table name support was added after the verison that used the legacy database format
-//				if (hasOldTable && !tableName.equals("variables")) {
-//					final ResultSet r1 = db.query("SELECT " + SELECT_ORDER + " FROM " + OLD_TABLE_NAME);
-//					assert r1 != null;
-//					try {
-//						oldLoadVariables(r1, hadNewTable);
-//					} finally {
-//						r1.close();
-//					}
-//				}
-//
-//				// new
-//				final ResultSet r2 = db.query("SELECT " + SELECT_ORDER + " FROM " + getTableName());
-//				assert r2 != null;
-//				try {
-//					loadVariables(r2);
-//				} finally {
-//					r2.close();
-//				}
-//
-//				// store old variables in new table and delete the old table
-//				if (hasOldTable) {
-//					if (!hadNewTable) {
-//						Skript.info("[2.1] Updating the database '" + databaseName + "' to the new format...");
-//						try {
-//							Variables.getReadLock().lock();
-//							for (final Entry<String, Object> v : Variables.getVariablesHashMap().entrySet()) {
-//								if (accept(v.getKey())) {// only one database was possible, so only checking this database is correct
-//									@SuppressWarnings("null")
-//									final SerializedVariable var = Variables.serialize(v.getKey(), v.getValue());
-//									final SerializedVariable.Value d = var.value;
-//									save(var.name, d == null ? null : d.type, d == null ? null : d.data);
-//								}
-//							}
-//							Skript.info("Updated and transferred " + Variables.getVariablesHashMap().size() + " variables to the new table.");
-//						} finally {
-//							Variables.getReadLock().unlock();
-//						}
-//					}
-//					db.query("DELETE FROM " + OLD_TABLE_NAME + " WHERE value IS NULL");
-//					db.query("DELETE FROM old USING " + OLD_TABLE_NAME + " AS old, " + getTableName() + " AS new WHERE old.name = new.name");
-//					final ResultSet r = db.query("SELECT * FROM " + OLD_TABLE_NAME + " LIMIT 1");
-//					try {
-//						if (r.next()) {// i.e. the old table is not empty
-//							Skript.error("Could not successfully convert & transfer all variables to the new table in the database '" + databaseName + "'. "
-//									+ "Variables that could not be transferred are left in the old table and Skript will reattempt to transfer them whenever it starts until the old table is empty or is manually deleted. "
-//									+ "Please note that variables recreated by scripts will count as converted and will be removed from the old table on the next restart.");
-//						} else {
-//							boolean error = false;
-//							try {
-//								disconnect(); // prevents SQLITE_LOCKED error
-//								connect();
-//								db.query("DROP TABLE " + OLD_TABLE_NAME);
-//							} catch (final SQLException e) {
-//								Skript.error("There was an error deleting the old variables table from the database '" + databaseName + "', please delete it yourself: " + e.getLocalizedMessage());
-//								error = true;
-//							}
-//							if (!error)
-//								Skript.info("Successfully deleted the old variables table from the database '" + databaseName + "'.");
-//							if (!hadNewTable)
-//								Skript.info("Database '" + databaseName + "' successfully updated.");
-//						}
-//					} finally {
-//						r.close();
-//					}
-//				}
-//			} catch (final SQLException e) {
-//				sqlException(e);
-//				return false;
-//			}
-//
-//			// periodically executes queries to keep the collection alive
-//			Skript.newThread(new Runnable() {
-//				@Override
-//				public void run() {
-//					while (!closed) {
-//						synchronized (SQLStorage.this.db) {
-//							try {
-//								final Database db = SQLStorage.this.db.get();
-//								if (db != null)
-//									db.query("SELECT * FROM " + getTableName() + " LIMIT 1");
-//							} catch (final SQLException e) {}
-//						}
-//						try {
-//							Thread.sleep(1000 * 10);
-//						} catch (final InterruptedException e) {}
-//					}
-//				}
-//			}, "Skript database '" + databaseName + "' connection keep-alive thread").start();
-//
-//			return true;
-//		}
-//	}
-//
-//	@Override
-//	protected void allLoaded() {
-//		Skript.debug("Database " + databaseName + " loaded. Queue size = " + changesQueue.size());
-//
-//		// start committing thread. Its first execution will also commit the first batch of changed variables.
-//		Skript.newThread(new Runnable() {
-//			@Override
-//			public void run() {
-//				long lastCommit;
-//				while (!closed) {
-//					synchronized (db) {
-//						final Database db = SQLStorage.this.db.get();
-//						try {
-//							if (db != null)
-//								db.getConnection().commit();
-//						} catch (final SQLException e) {
-//							sqlException(e);
-//						}
-//						lastCommit = System.currentTimeMillis();
-//					}
-//					try {
-//						Thread.sleep(Math.max(0, lastCommit + TRANSACTION_DELAY - System.currentTimeMillis()));
-//					} catch (final InterruptedException e) {}
-//				}
-//			}
-//		}, "Skript database '" + databaseName + "' transaction committing thread").start();
-//
-//		if (monitor) {
-//			Skript.newThread(new Runnable() {
-//				@Override
-//				public void run() {
-//					try { // variables were just downloaded, not need to check for modifications straight away
-//						Thread.sleep(monitor_interval);
-//					} catch (final InterruptedException e1) {}
-//
-//					long lastWarning = Long.MIN_VALUE;
-//					final int WARING_INTERVAL = 10;
-//
-//					while (!closed) {
-//						final long next = System.currentTimeMillis() + monitor_interval;
-//						checkDatabase();
-//						final long now = System.currentTimeMillis();
-//						if (next < now && lastWarning + WARING_INTERVAL * 1000 < now) {
-//							// TODO don't print this message when Skript loads (because scripts are loaded after variables and take some time)
-//							Skript.warning("Cannot load variables from the database fast enough (loading took " + ((now - next + monitor_interval) / 1000.) + "s, monitor interval = " + (monitor_interval / 1000.) + "s). " +
-//									"Please increase your monitor interval or reduce usage of variables. " +
-//									"(this warning will be repeated at most once every " + WARING_INTERVAL + " seconds)");
-//							lastWarning = now;
-//						}
-//						while (System.currentTimeMillis() < next) {
-//							try {
-//								Thread.sleep(next - System.currentTimeMillis());
-//							} catch (final InterruptedException e) {}
-//						}
-//					}
-//				}
-//			}, "Skript database '" + databaseName + "' monitor thread").start();
-//		}
-//
-//	}
-//
-//	@Override
-//	protected File getFile(String file) {
-//		if (!file.endsWith(".db"))
-//			file = file + ".db"; // required by SQLibrary
-//		return new File(file);
-//	}
-//
-//	@Override
-//	protected boolean connect() {
-//		return connect(false);
-//	}
-//
-//	private final boolean connect(final boolean first) {
-//		synchronized (db) {
-//			// isConnected doesn't work in SQLite
-////			if (db.isConnected())
-////				return;
-//			final Database db = this.db.get();
-//			if (db == null || !db.open()) {
-//				if (first)
-//					Skript.error("Cannot connect to the database '" + databaseName + "'! Please make sure that all settings are correct");// + (type == Type.MYSQL ? " and that the database software is running" : "") + ".");
-//				else
-//					Skript.exception("Cannot reconnect to the database '" + databaseName + "'!");
-//				return false;
-//			}
-//			try {
-//				db.getConnection().setAutoCommit(false);
-//			} catch (final SQLException e) {
-//				sqlException(e);
-//				return false;
-//			}
-//			return true;
-//		}
-//	}
-//
-//	/**
-//	 * (Re)creates prepared statements as they get closed as well when closing the connection
-//	 *
-//	 * @return
-//	 */
-//	private boolean prepareQueries() {
-//		synchronized (db) {
-//			final Database db = this.db.get();
-//			assert db != null;
-//			try {
-//				try {
-//					if (writeQuery != null)
-//						writeQuery.close();
-//				} catch (final SQLException e) {}
-//				writeQuery = db.prepare("REPLACE INTO " + getTableName() + " (name, type, value, update_guid) VALUES (?, ?, ?, ?)");
-//
-//				try {
-//					if (deleteQuery != null)
-//						deleteQuery.close();
-//				} catch (final SQLException e) {}
-//				deleteQuery = db.prepare("DELETE FROM " + getTableName() + " WHERE name = ?");
-//
-//				try {
-//					if (monitorQuery != null)
-//						monitorQuery.close();
-//				} catch (final SQLException e) {}
-//				monitorQuery = db.prepare("SELECT " + SELECT_ORDER + " FROM " + getTableName() + " WHERE rowid > ? AND update_guid != ?");
-//				try {
-//					if (monitorCleanUpQuery != null)
-//						monitorCleanUpQuery.close();
-//				} catch (final SQLException e) {}
-//				monitorCleanUpQuery = db.prepare("DELETE FROM " + getTableName() + " WHERE value IS NULL AND rowid < ?");
-//			} catch (final SQLException e) {
-//				Skript.exception(e, "Could not prepare queries for the database '" + databaseName + "': " + e.getLocalizedMessage());
-//				return false;
-//			}
-//		}
-//		return true;
-//	}
-//
-//	@Override
-//	protected void disconnect() {
-//		synchronized (db) {
-//			final Database db = this.db.get();
-////			if (!db.isConnected())
-////				return;
-//			if (db != null)
-//				db.close();
-//		}
-//	}
-//
-//	/**
-//	 * Params: name, type, value, GUID
-//	 * <p>
-//	 * Writes a variable to the database
-//	 */
-//	@Nullable
-//	private PreparedStatement writeQuery;
-//	/**
-//	 * Params: name
-//	 * <p>
-//	 * Deletes a variable from the database
-//	 */
-//	@Nullable
-//	private PreparedStatement deleteQuery;
-//	/**
-//	 * Params: rowID, GUID
-//	 * <p>
-//	 * Selects changed rows. values in order: {@value #SELECT_ORDER}
-//	 */
-//	@Nullable
-//	private PreparedStatement monitorQuery;
-//	/**
-//	 * Params: rowID
-//	 * <p>
-//	 * Deletes null variables from the database older than the given value
-//	 */
-//	@Nullable
-//	PreparedStatement monitorCleanUpQuery;
-//
-//	@Override
-//	protected boolean save(final String name, final @Nullable String type, final @Nullable byte[] value) {
-//		synchronized (db) {
-//			// REMIND get the actual maximum size from the database
-//			if (name.length() > MAX_VARIABLE_NAME_LENGTH)
-//				Skript.error("The name of the variable {" + name + "} is too long to be saved in a database (length: " + name.length() + ", maximum allowed: " + MAX_VARIABLE_NAME_LENGTH + ")! It will be truncated and won't bet available under the same name again when loaded.");
-//			if (value != null && value.length > MAX_VALUE_SIZE)
-//				Skript.error("The variable {" + name + "} cannot be saved in the database as its value's size (" + value.length + ") exceeds the maximum allowed size of " + MAX_VALUE_SIZE + "! An attempt to save the variable will be made nonetheless.");
-//			try {
-//				if (type == null) {
-//					assert value == null;
-//					final PreparedStatement deleteQuery = this.deleteQuery;
-//					assert deleteQuery != null;
-//					deleteQuery.setString(1, name);
-//					deleteQuery.executeUpdate();
-//				} else {
-//					int i = 1;
-//					final PreparedStatement writeQuery = this.writeQuery;
-//					assert writeQuery != null;
-//					writeQuery.setString(i++, name);
-//					writeQuery.setString(i++, type);
-//					writeQuery.setBytes(i++, value); // SQLite desn't support setBlob
-//					writeQuery.setString(i++, guid);
-//					writeQuery.executeUpdate();
-//				}
-//			} catch (final SQLException e) {
-//				sqlException(e);
-//				return false;
-//			}
-//		}
-//		return true;
-//	}
-//
-//	@Override
-//	public void close() {
-//		synchronized (db) {
-//			super.close();
-//			final Database db = this.db.get();
-//			if (db != null) {
-//				try {
-//					db.getConnection().commit();
-//				} catch (final SQLException e) {
-//					sqlException(e);
-//				}
-//				db.close();
-//				this.db.set(null);
-//			}
-//		}
-//	}
-//
-//	long lastRowID = -1;
-//
-//	protected void checkDatabase() {
-//		try {
-//			final long lastRowID; // local variable as this is used to clean the database below
-//			ResultSet r = null;
-//			try {
-//				synchronized (db) {
-//					if (closed || db.get() == null)
-//						return;
-//					lastRowID = this.lastRowID;
-//					final PreparedStatement monitorQuery = this.monitorQuery;
-//					assert monitorQuery != null;
-//					monitorQuery.setLong(1, lastRowID);
-//					monitorQuery.setString(2, guid);
-//					monitorQuery.execute();
-//					r = monitorQuery.getResultSet();
-//					assert r != null;
-//				}
-//				if (!closed)
-//					loadVariables(r);
-//			} finally {
-//				if (r != null)
-//					r.close();
-//			}
-//
-//			if (!closed) { // Skript may have been disabled in the meantime // TODO not fixed
-//				new Task(Skript.getInstance(), (long) Math.ceil(2. * monitor_interval / 50) + 100, true) { // 2 times the interval + 5 seconds
-//					@Override
-//					public void run() {
-//						try {
-//							synchronized (db) {
-//								if (closed || db.get() == null)
-//									return;
-//								final PreparedStatement monitorCleanUpQuery = SQLStorage.this.monitorCleanUpQuery;
-//								assert monitorCleanUpQuery != null;
-//								monitorCleanUpQuery.setLong(1, lastRowID);
-//								monitorCleanUpQuery.executeUpdate();
-//							}
-//						} catch (final SQLException e) {
-//							sqlException(e);
-//						}
-//					}
-//				};
-//			}
-//		} catch (final SQLException e) {
-//			sqlException(e);
-//		}
-//	}
-//
-////	private final static class VariableInfo {
-////		final String name;
-////		final byte[] value;
-////		final ClassInfo<?> ci;
-////
-////		public VariableInfo(final String name, final byte[] value, final ClassInfo<?> ci) {
-////			this.name = name;
-////			this.value = value;
-////			this.ci = ci;
-////		}
-////	}
-//
-////	final static LinkedList<VariableInfo> syncDeserializing = new LinkedList<VariableInfo>();
-//
-//	/**
-//	 * Doesn't lock the database - {@link #save(String, String, byte[])} does that // what?
-//	 */
-//	private void loadVariables(final ResultSet r) throws SQLException {
-////		assert !Thread.holdsLock(db);
-////		synchronized (syncDeserializing) {
-//
-//		final SQLException e = Task.callSync(new Callable<SQLException>() {
-//			@Override
-//			@Nullable
-//			public SQLException call() throws Exception {
-//				try {
-//					while (r.next()) {
-//						int i = 1;
-//						final String name = r.getString(i++);
-//						if (name == null) {
-//							Skript.error("Variable with NULL name found in the database '" + databaseName + "', ignoring it");
-//							continue;
-//						}
-//						final String type = r.getString(i++);
-//						final byte[] value = r.getBytes(i++); // Blob not supported by SQLite
-//						lastRowID = r.getLong(i++);
-//						if (value == null) {
-//							Variables.variableLoaded(name, null, SQLStorage.this);
-//						} else {
-//							final ClassInfo<?> c = Classes.getClassInfoNoError(type);
-//							@SuppressWarnings("unused")
-//							Serializer<?> s;
-//							if (c == null || (s = c.getSerializer()) == null) {
-//								Skript.error("Cannot load the variable {" + name + "} from the database '" + databaseName + "', because the type '" + type + "' cannot be recognised or cannot be stored in variables");
-//								continue;
-//							}
-////					if (s.mustSyncDeserialization()) {
-////						syncDeserializing.add(new VariableInfo(name, value, c));
-////					} else {
-//							final Object d = Classes.deserialize(c, value);
-//							if (d == null) {
-//								Skript.error("Cannot load the variable {" + name + "} from the database '" + databaseName + "', because it cannot be loaded as " + c.getName().withIndefiniteArticle());
-//								continue;
-//							}
-//							Variables.variableLoaded(name, d, SQLStorage.this);
-////					}
-//						}
-//					}
-//				} catch (final SQLException e) {
-//					return e;
-//				}
-//				return null;
-//			}
-//		});
-//		if (e != null)
-//			throw e;
-//
-////			if (!syncDeserializing.isEmpty()) {
-////				Task.callSync(new Callable<Void>() {
-////					@Override
-////					@Nullable
-////					public Void call() throws Exception {
-////						synchronized (syncDeserializing) {
-////							for (final VariableInfo o : syncDeserializing) {
-////								final Object d = Classes.deserialize(o.ci, o.value);
-////								if (d == null) {
-////									Skript.error("Cannot load the variable {" + o.name + "} from the database " + databaseName + ", because it cannot be loaded as a " + o.ci.getName());
-////									continue;
-////								}
-////								Variables.variableLoaded(o.name, d, DatabaseStorage.this);
-////							}
-////							syncDeserializing.clear();
-////							return null;
-////						}
-////					}
-////				});
-////			}
-////		}
-//	}
-//
-////	private final static class OldVariableInfo {
-////		final String name;
-////		final String value;
-////		final ClassInfo<?> ci;
-////
-////		public OldVariableInfo(final String name, final String value, final ClassInfo<?> ci) {
-////			this.name = name;
-////			this.value = value;
-////			this.ci = ci;
-////		}
-////	}
-//
-////	final static LinkedList<OldVariableInfo> oldSyncDeserializing = new LinkedList<OldVariableInfo>();
-//
-//	@Deprecated
-//	private void oldLoadVariables(final ResultSet r, final boolean hadNewTable) throws SQLException {
-////		synchronized (oldSyncDeserializing) {
-//
-//		final VariablesStorage temp = new VariablesStorage(databaseName + " old variables table") {
-//			@Override
-//			protected boolean save(final String name, @Nullable final String type, @Nullable final byte[] value) {
-//				assert type == null : name + "; " + type;
-//				return true;
-//			}
-//
-//			@Override
-//			boolean accept(@Nullable final String var) {
-//				assert false;
-//				return false;
-//			}
-//
-//			@Override
-//			protected boolean requiresFile() {
-//				assert false;
-//				return false;
-//			}
-//
-//			@Override
-//			protected boolean load_i(final SectionNode n) {
-//				assert false;
-//				return false;
-//			}
-//
-//			@Override
-//			protected File getFile(final String file) {
-//				assert false;
-//				return new File(file);
-//			}
-//
-//			@Override
-//			protected void disconnect() {
-//				assert false;
-//			}
-//
-//			@Override
-//			protected boolean connect() {
-//				assert false;
-//				return false;
-//			}
-//
-//			@Override
-//			protected void allLoaded() {
-//				assert false;
-//			}
-//		};
-//
-//		final SQLException e = Task.callSync(new Callable<SQLException>() {
-//			@SuppressWarnings("null")
-//			@Override
-//			@Nullable
-//			public SQLException call() throws Exception {
-//				try {
-//					while (r.next()) {
-//						int i = 1;
-//						final String name = r.getString(i++);
-//						if (name == null) {
-//							Skript.error("Variable with NULL name found in the database, ignoring it");
-//							continue;
-//						}
-//						final String type = r.getString(i++);
-//						final String value = r.getString(i++);
-//						lastRowID = r.getLong(i++);
-//						if (type == null || value == null) {
-//							Variables.variableLoaded(name, null, hadNewTable ? temp : SQLStorage.this);
-//						} else {
-//							final ClassInfo<?> c = Classes.getClassInfoNoError(type);
-//							Serializer<?> s;
-//							if (c == null || (s = c.getSerializer()) == null) {
-//								Skript.error("Cannot load the variable {" + name + "} from the database, because the type '" + type + "' cannot be recognised or not stored in variables");
-//								continue;
-//							}
-////					if (s.mustSyncDeserialization()) {
-////						oldSyncDeserializing.add(new OldVariableInfo(name, value, c));
-////					} else {
-//							final Object d = s.deserialize(value);
-//							if (d == null) {
-//								Skript.error("Cannot load the variable {" + name + "} from the database, because '" + value + "' cannot be parsed as a " + type);
-//								continue;
-//							}
-//							Variables.variableLoaded(name, d, SQLStorage.this);
-////					}
-//						}
-//					}
-//				} catch (final SQLException e) {
-//					return e;
-//				}
-//				return null;
-//			}
-//		});
-//		if (e != null)
-//			throw e;
-//
-////			if (!oldSyncDeserializing.isEmpty()) {
-////				Task.callSync(new Callable<Void>() {
-////					@Override
-////					@Nullable
-////					public Void call() throws Exception {
-////						synchronized (oldSyncDeserializing) {
-////							for (final OldVariableInfo o : oldSyncDeserializing) {
-////								final Serializer<?> s = o.ci.getSerializer();
-////								if (s == null) {
-////									assert false : o.ci;
-////									continue;
-////								}
-////								final Object d = s.deserialize(o.value);
-////								if (d == null) {
-////									Skript.error("Cannot load the variable {" + o.name + "} from the database, because '" + o.value + "' cannot be parsed as a " + o.ci.getCodeName());
-////									continue;
-////								}
-////								Variables.variableLoaded(o.name, d, DatabaseStorage.this);
-////							}
-////							oldSyncDeserializing.clear();
-////							return null;
-////						}
-////					}
-////				});
-////			}
-////		}
-//	}
-//
-//	void sqlException(final SQLException e) {
-//		Skript.error("database error: " + e.getLocalizedMessage());
-//		if (Skript.testing())
-//			e.printStackTrace();
-//		prepareQueries(); // a query has to be recreated after an error
-//	}
-//
-//}
+package ch.njol.skript.variables;
+
+import ch.njol.skript.Skript;
+import ch.njol.skript.classes.ClassInfo;
+import ch.njol.skript.config.SectionNode;
+import ch.njol.skript.log.SkriptLogger;
+import ch.njol.skript.registrations.Classes;
+import ch.njol.skript.util.Task;
+import ch.njol.skript.util.Timespan;
+import ch.njol.skript.variables.SerializedVariable.Value;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Types;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A variable storage that stores the variables in a table of an SQL database, accessed through JDBC.
+ * <p>
+ * Changes are written in batches through prepared statements, and committed in transactions
+ * at most every {@code commit interval}. If {@code monitor changes} is enabled,
+ * changes made by other servers using the same table are loaded periodically.
+ * <p>
+ * The JDBC driver of the database must be on the classpath.
+ *
+ * @author Peter Güttinger
+ */
+public abstract class SQLStorage extends VariablesStorage {
+
+	public final static int MAX_VARIABLE_NAME_LENGTH = 380, // MySQL: 767 bytes max; cannot set max bytes, only max characters
+			MAX_CLASS_CODENAME_LENGTH = 50, // checked when registering a class
+			MAX_VALUE_SIZE = 10000;
+
+	private final static String SELECT_ORDER = "name, type, value, rowid";
+
+	/**
+	 * The amount of rows fetched from the database at once while loading,
+	 * so that the whole table never has to be in memory.
+	 */
+	private final static int LOAD_FETCH_SIZE = 1000;
+
+	/**
+	 * The default delay between transactions in milliseconds.
+	 */
+	private final static long DEFAULT_TRANSACTION_DELAY = 500;
+
+	/**
+	 * The time in seconds to wait for the database when checking whether the connection is still valid.
+	 */
+	private final static int VALIDATION_TIMEOUT = 5;
+
+	/**
+	 * Identifies the changes made by this server, so that the monitor only loads changes of other servers.
+	 */
+	private final static String guid = UUID.randomUUID().toString();
+
+	private final String createTableQuery;
+	private String tableName;
+
+	/**
+	 * The connection to the database, or {@code null} if disconnected.
+	 * <p>
+	 * This and the prepared statements must only be used while holding the {@link #connectionLock}.
+	 */
+	@Nullable
+	private Connection connection;
+
+	/**
+	 * Params: name, type, value, GUID
+	 * <p>
+	 * Writes a variable to the database, a {@code null} type and value mark a deleted variable
+	 */
+	@Nullable
+	private PreparedStatement writeQuery;
+	/**
+	 * Params: name
+	 * <p>
+	 * Deletes a variable from the database
+	 */
+	@Nullable
+	private PreparedStatement deleteQuery;
+	/**
+	 * Params: rowID, GUID
+	 * <p>
+	 * Selects changed rows. values in order: {@value #SELECT_ORDER}
+	 */
+	@Nullable
+	private PreparedStatement monitorQuery;
+	/**
+	 * Params: rowID
+	 * <p>
+	 * Deletes null variables from the database older than the given value
+	 */
+	@Nullable
+	private PreparedStatement monitorCleanUpQuery;
+
+	/**
+	 * Whether changes have been written since the last commit.
+	 * <p>
+	 * Must only be used while holding the {@link #connectionLock}.
+	 */
+	private boolean uncommitted = false;
+
+	private boolean monitor = false;
+	private long monitorInterval;
+
+	/**
+	 * The delay between transactions in milliseconds.
+	 */
+	private long transactionDelay = DEFAULT_TRANSACTION_DELAY;
+
+	/**
+	 * The highest row ID that has been loaded, used by the monitor to find changed rows.
+	 */
+	private volatile long lastRowID = -1;
+
+	/**
+	 * Creates a SQLStorage with a create table query.
+	 *
+	 * @param name The name to be sent through this constructor when newInstance creates this class.
+	 * @param createTableQuery The create table query to send to the SQL engine, {@code %s} being replaced by the table name.
+	 */
+	public SQLStorage(String name, String createTableQuery) {
+		super(name);
+		this.createTableQuery = createTableQuery;
+		this.tableName = "variables21";
+	}
+
+	public String getTableName() {
+		return tableName;
+	}
+
+	public void setTableName(String tableName) {
+		this.tableName = tableName;
+	}
+
+	/**
+	 * Reads the configuration specific to this kind of database, e.g. its location and credentials.
+	 * An error should be printed by this method prior to returning {@code false}.
+	 *
+	 * @param config The configuration from the config.sk that defines this database.
+	 * @return whether the configuration is valid.
+	 */
+	protected abstract boolean initialize(SectionNode config);
+
+	/**
+	 * Opens a new connection to the database configured in {@link #initialize(SectionNode)}.
+	 *
+	 * @return the connection.
+	 * @throws SQLException if the connection could not be opened.
+	 */
+	protected abstract Connection openConnection() throws SQLException;
+
+	/**
+	 * Loads the variables with a forward-only cursor, fetching {@value #LOAD_FETCH_SIZE} rows at a time.
+	 * <p>
+	 * Variables loaded here may be removed from this database right away by
+	 * {@link Variables#variableLoaded(String, Object, VariablesStorage)}, which is fine as the connection lock is reentrant.
+	 */
+	@Override
+	protected boolean load_i(SectionNode n) {
+		Boolean monitorChanges = getValue(n, "monitor changes", Boolean.class);
+		Timespan monitorInterval = getValue(n, "monitor interval", Timespan.class);
+		if (monitorChanges == null || monitorInterval == null)
+			return false;
+		monitor = monitorChanges;
+		this.monitorInterval = monitorInterval.getMilliSeconds();
+
+		if (n.getValue("commit interval") != null) {
+			Timespan commitInterval = getValue(n, "commit interval", Timespan.class);
+			if (commitInterval == null)
+				return false;
+			transactionDelay = commitInterval.getMilliSeconds();
+		}
+
+		setTableName(n.get("table", "variables21"));
+		if (!initialize(n))
+			return false;
+
+		SkriptLogger.setNode(null);
+
+		synchronized (connectionLock) {
+			if (!connect(true))
+				return false;
+
+			try {
+				loadVariables();
+				commit();
+			} catch (SQLException e) {
+				sqlException(e);
+				return false;
+			}
+		}
+
+		return true;
+	}
+
+	/**
+	 * Loads all variables of the table.
+	 * <p>
+	 * Must be called on the main thread, while holding the {@link #connectionLock}.
+	 *
+	 * @throws SQLException if the variables could not be read.
+	 */
+	private void loadVariables() throws SQLException {
+		Connection connection = this.connection;
+		assert connection != null;
+
+		int loaded = 0;
+		try (Statement statement = connection.createStatement(ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+			statement.setFetchSize(LOAD_FETCH_SIZE);
+			try (ResultSet r = statement.executeQuery("SELECT " + SELECT_ORDER + " FROM " + getTableName())) {
+				while (r.next()) {
+					int i = 1;
+					String name = r.getString(i++);
+					String type = r.getString(i++);
+					byte[] value = r.getBytes(i++); // Blob not supported by SQLite
+					lastRowID = Math.max(lastRowID, r.getLong(i++));
+					if (loadVariable(name, type, value))
+						loaded++;
+				}
+			}
+		}
+		Skript.debug("Loaded " + loaded + " variables from the database '" + databaseName + "'");
+	}
+
+	/**
+	 * Deserializes a variable read from the database and passes it on to the variables.
+	 * <p>
+	 * Must be called on the main thread.
+	 *
+	 * @param name the name of the variable.
+	 * @param type the type of the variable, {@code null} if it was deleted.
+	 * @param value the serialized value of the variable, {@code null} if it was deleted.
+	 * @return whether a value was loaded.
+	 */
+	private boolean loadVariable(@Nullable String name, @Nullable String type, byte @Nullable [] value) {
+		if (name == null) {
+			Skript.error("Variable with NULL name found in the database '" + databaseName + "', ignoring it");
+			return false;
+		}
+
+		if (type == null || value == null) {
+			Variables.variableLoaded(name, null, this);
+			return false;
+		}
+
+		ClassInfo<?> c = Classes.getClassInfoNoError(type);
+		if (c == null || c.getSerializer() == null) {
+			Skript.error("Cannot load the variable {" + name + "} from the database '" + databaseName + "', because the type '" + type + "' cannot be recognised or cannot be stored in variables");
+			return false;
+		}
+
+		Object d = deserialize(name, type, value);
+		if (d == null) {
+			Skript.error("Cannot load the variable {" + name + "} from the database '" + databaseName + "', because it cannot be loaded as " + c.getName().withIndefiniteArticle());
+			return false;
+		}
+
+		Variables.variableLoaded(name, d, this);
+		return true;
+	}
+
+	@Override
+	protected void allLoaded() {
+		Skript.debug("Database " + databaseName + " loaded. Queue size = " + changesQueue.size());
+
+		// start committing thread. Its first execution will also commit the first batch of changed variables.
+		Skript.newThread(() -> {
+			long lastCommit;
+			while (!closed) {
+				synchronized (connectionLock) {
+					try {
+						commit();
+					} catch (SQLException e) {
+						sqlException(e);
+					}
+					lastCommit = System.currentTimeMillis();
+				}
+				try {
+					Thread.sleep(Math.max(0, lastCommit + transactionDelay - System.currentTimeMillis()));
+				} catch (InterruptedException ignored) {}
+			}
+		}, "Skript database '" + databaseName + "' transaction committing thread").start();
+
+		if (monitor) {
+			Skript.newThread(() -> {
+				try { // variables were just downloaded, not need to check for modifications straight away
+					Thread.sleep(monitorInterval);
+				} catch (InterruptedException ignored) {}
+
+				long lastWarning = Long.MIN_VALUE;
+				final int WARNING_INTERVAL = 10;
+
+				while (!closed) {
+					long next = System.currentTimeMillis() + monitorInterval;
+					checkDatabase();
+					long now = System.currentTimeMillis();
+					if (next < now && lastWarning + WARNING_INTERVAL * 1000 < now) {
+						Skript.warning("Cannot load variables from the database fast enough (loading took " + ((now - next + monitorInterval) / 1000.) + "s, monitor interval = " + (monitorInterval / 1000.) + "s). " +
+								"Please increase your monitor interval or reduce usage of variables. " +
+								"(this warning will be repeated at most once every " + WARNING_INTERVAL + " seconds)");
+						lastWarning = now;
+					}
+					while (!closed && System.currentTimeMillis() < next) {
+						try {
+							Thread.sleep(next - System.currentTimeMillis());
+						} catch (InterruptedException ignored) {}
+					}
+				}
+			}, "Skript database '" + databaseName + "' monitor thread").start();
+		}
+	}
+
+	@Override
+	protected File getFile(String file) {
+		if (!file.endsWith(".db"))
+			file = file + ".db";
+		return new File(file);
+	}
+
+	@Override
+	protected boolean connect() {
+		return connect(false);
+	}
+
+	/**
+	 * Connects to the database, creating the variables table if it doesn't exist yet.
+	 *
+	 * @param first whether this is the first connection, i.e. whether errors are likely caused by the configuration.
+	 * @return whether the connection could be established.
+	 */
+	private boolean connect(boolean first) {
+		synchronized (connectionLock) {
+			if (connection != null)
+				return true;
+
+			Connection connection;
+			try {
+				connection = openConnection();
+				connection.setAutoCommit(false);
+			} catch (SQLException e) {
+				if (first)
+					Skript.error("Cannot connect to the database '" + databaseName + "'! Please make sure that all settings are correct and that its JDBC driver is installed: " + e.getLocalizedMessage());
+				else
+					Skript.exception(e, "Cannot reconnect to the database '" + databaseName + "'!");
+				return false;
+			}
+
+			String createQuery = String.format(createTableQuery, getTableName());
+			try (Statement statement = connection.createStatement()) {
+				statement.executeUpdate(createQuery);
+				connection.commit();
+			} catch (SQLException e) {
+				Skript.error("Could not create the variables table '" + getTableName() + "' in the database '" + databaseName + "': " + e.getLocalizedMessage() + ". "
+						+ "Please create the table yourself using the following query: " + createQuery.replace(",", ", ").replaceAll("\\s+", " "));
+				closeQuietly(connection);
+				return false;
+			}
+
+			try {
+				writeQuery = connection.prepareStatement("REPLACE INTO " + getTableName() + " (name, type, value, update_guid) VALUES (?, ?, ?, ?)");
+				deleteQuery = connection.prepareStatement("DELETE FROM " + getTableName() + " WHERE name = ?");
+				monitorQuery = connection.prepareStatement("SELECT " + SELECT_ORDER + " FROM " + getTableName() + " WHERE rowid > ? AND update_guid != ?");
+				monitorCleanUpQuery = connection.prepareStatement("DELETE FROM " + getTableName() + " WHERE value IS NULL AND rowid < ?");
+			} catch (SQLException e) {
+				Skript.exception(e, "Could not prepare queries for the database '" + databaseName + "': " + e.getLocalizedMessage());
+				closeQuietly(connection);
+				return false;
+			}
+
+			this.connection = connection;
+			return true;
+		}
+	}
+
+	/**
+	 * Commits the pending changes, if there are any, and closes the connection.
+	 * The prepared statements are closed along with the connection.
+	 */
+	@Override
+	protected void disconnect() {
+		synchronized (connectionLock) {
+			Connection connection = this.connection;
+			if (connection == null)
+				return;
+
+			try {
+				commit();
+			} catch (SQLException e) {
+				Skript.error("Could not commit the last changes to the database '" + databaseName + "': " + e.getLocalizedMessage());
+			}
+
+			this.connection = null;
+			writeQuery = deleteQuery = monitorQuery = monitorCleanUpQuery = null;
+			closeQuietly(connection);
+		}
+	}
+
+	/**
+	 * Closes the given connection, ignoring any errors.
+	 *
+	 * @param connection the connection.
+	 */
+	private static void closeQuietly(Connection connection) {
+		try {
+			connection.close();
+		} catch (SQLException ignored) {}
+	}
+
+	/**
+	 * Commits the current transaction, if anything was written since the last commit.
+	 * <p>
+	 * Must be called while holding the {@link #connectionLock}.
+	 *
+	 * @throws SQLException if the transaction could not be committed.
+	 */
+	private void commit() throws SQLException {
+		Connection connection = this.connection;
+		if (connection == null || !uncommitted)
+			return;
+		uncommitted = false;
+		connection.commit();
+	}
+
+	@Override
+	protected boolean save(String name, @Nullable String type, byte @Nullable [] value) {
+		Value serializedValue = type == null || value == null ? null : new Value(type, value);
+		return write(Collections.singletonList(new SerializedVariable(name, serializedValue)));
+	}
+
+	/**
+	 * Writes the whole batch with one batched statement for changes and one for deletions.
+	 */
+	@Override
+	protected void saveBatch(Collection<SerializedVariable> variables) {
+		write(variables);
+	}
+
+	/**
+	 * Writes the given variables to the current transaction.
+	 * <p>
+	 * If the database is monitored, deleted variables are kept as rows without a value,
+	 * so that other servers can see the deletion. These rows are removed by the monitor later on.
+	 *
+	 * @param variables the variables, with at most one change per variable name.
+	 * @return whether the variables were written.
+	 */
+	private boolean write(Collection<SerializedVariable> variables) {
+		synchronized (connectionLock) {
+			if (connection == null && !connect())
+				return false;
+			PreparedStatement writeQuery = this.writeQuery, deleteQuery = this.deleteQuery;
+			assert writeQuery != null && deleteQuery != null;
+
+			try {
+				int writes = 0, deletes = 0;
+				for (SerializedVariable variable : variables) {
+					String name = variable.name;
+					Value value = variable.value;
+
+					// REMIND get the actual maximum size from the database
+					if (name.length() > MAX_VARIABLE_NAME_LENGTH)
+						Skript.error("The name of the variable {" + name + "} is too long to be saved in a database (length: " + name.length() + ", maximum allowed: " + MAX_VARIABLE_NAME_LENGTH + ")! It will be truncated and won't bet available under the same name again when loaded.");
+					if (value != null && value.data.length > MAX_VALUE_SIZE)
+						Skript.error("The variable {" + name + "} cannot be saved in the database as its value's size (" + value.data.length + ") exceeds the maximum allowed size of " + MAX_VALUE_SIZE + "! An attempt to save the variable will be made nonetheless.");
+
+					if (value == null && !monitor) {
+						deleteQuery.setString(1, name);
+						deleteQuery.addBatch();
+						deletes++;
+					} else {
+						int i = 1;
+						writeQuery.setString(i++, name);
+						if (value == null) {
+							writeQuery.setNull(i++, Types.VARCHAR);
+							writeQuery.setNull(i++, Types.BLOB);
+						} else {
+							writeQuery.setString(i++, value.type);
+							writeQuery.setBytes(i++, value.data); // SQLite doesn't support setBlob
+						}
+						writeQuery.setString(i++, guid);
+						writeQuery.addBatch();
+						writes++;
+					}
+				}
+
+				uncommitted = true;
+				if (writes > 0)
+					writeQuery.executeBatch();
+				if (deletes > 0)
+					deleteQuery.executeBatch();
+				return true;
+			} catch (SQLException e) {
+				sqlException(e);
+				return false;
+			}
+		}
+	}
+
+	@Override
+	public void close() {
+		super.close();
+		disconnect();
+	}
+
+	/**
+	 * A row changed by another server, read by {@link #checkDatabase()}.
+	 */
+	private static final class ChangedRow {
+
+		@Nullable
+		final String name, type;
+		final byte @Nullable [] value;
+
+		ChangedRow(@Nullable String name, @Nullable String type, byte @Nullable [] value) {
+			this.name = name;
+			this.type = type;
+			this.value = value;
+		}
+
+	}
+
+	/**
+	 * Loads the rows changed by other servers since the last check,
+	 * and removes deleted variables that every server had the time to see.
+	 * <p>
+	 * Runs on the monitor thread, the variables are passed on on the main thread.
+	 */
+	protected void checkDatabase() {
+		long lastRowID; // local variable as this is used to clean the database below
+		List<ChangedRow> changedRows = new ArrayList<>();
+		synchronized (connectionLock) {
+			Connection connection = this.connection;
+			PreparedStatement monitorQuery = this.monitorQuery;
+			if (closed || connection == null || monitorQuery == null)
+				return;
+
+			lastRowID = this.lastRowID;
+			long maxRowID = lastRowID;
+			try {
+				monitorQuery.setLong(1, lastRowID);
+				monitorQuery.setString(2, guid);
+				try (ResultSet r = monitorQuery.executeQuery()) {
+					while (r.next()) {
+						int i = 1;
+						changedRows.add(new ChangedRow(r.getString(i++), r.getString(i++), r.getBytes(i++)));
+						maxRowID = Math.max(maxRowID, r.getLong(i++));
+					}
+				}
+
+				// End the transaction, so that the next check can see new rows
+				uncommitted = true;
+				commit();
+			} catch (SQLException e) {
+				sqlException(e);
+				return;
+			}
+			this.lastRowID = maxRowID;
+		}
+
+		if (!changedRows.isEmpty()) {
+			Task.callSync(() -> {
+				for (ChangedRow row : changedRows)
+					loadVariable(row.name, row.type, row.value);
+				return null;
+			});
+		}
+
+		if (!closed) { // Skript may have been disabled in the meantime, the task checks again when it runs
+			new Task(Skript.getInstance(), (long) Math.ceil(2. * monitorInterval / 50) + 100, true) { // 2 times the interval + 5 seconds
+				@Override
+				public void run() {
+					synchronized (connectionLock) {
+						PreparedStatement monitorCleanUpQuery = SQLStorage.this.monitorCleanUpQuery;
+						if (closed || monitorCleanUpQuery == null)
+							return;
+						try {
+							monitorCleanUpQuery.setLong(1, lastRowID);
+							monitorCleanUpQuery.executeUpdate();
+							uncommitted = true;
+						} catch (SQLException e) {
+							sqlException(e);
+						}
+					}
+				}
+			};
+		}
+	}
+
+	/**
+	 * Reports the given error, and reconnects if the connection was lost.
+	 *
+	 * @param e the error.
+	 */
+	void sqlException(SQLException e) {
+		if (Skript.testing()) {
+			//noinspection ThrowableNotThrown
+			Skript.exception(e, "Error in the database '" + databaseName + "'");
+		} else {
+			Skript.error("Error in the database '" + databaseName + "': " + e.getLocalizedMessage());
+		}
+
+		synchronized (connectionLock) {
+			Connection connection = this.connection;
+			try {
+				if (connection == null || connection.isValid(VALIDATION_TIMEOUT))
+					return;
+			} catch (SQLException ignored) {}
+
+			disconnect();
+			connect();
+		}
+	}
+
+}
@@ -16,40 +16,41 @@
  *
  * Copyright Peter Güttinger, SkriptLang team and contributors
  */
-//package ch.njol.skript.variables;
-//
-//import ch.njol.skript.config.SectionNode;
-//import ch.njol.skript.log.SkriptLogger;
-//import lib.PatPeter.SQLibrary.Database;
-//import lib.PatPeter.SQLibrary.SQLite;
-//
-//import java.io.File;
-//
-//public class SQLiteStorage extends SQLStorage {
-//
-//	SQLiteStorage(String name) {
-//		super(name, "CREATE TABLE IF NOT EXISTS %s (" +
-//				"name         VARCHAR(" + MAX_VARIABLE_NAME_LENGTH + ")  NOT NULL  PRIMARY KEY," +
-//				"type         VARCHAR(" + MAX_CLASS_CODENAME_LENGTH + ")," +
-//				"value        BLOB(" + MAX_VALUE_SIZE + ")," +
-//				"update_guid  CHAR(36)  NOT NULL" +
-//				")");
-//	}
-//
-//	@Override
-//	public Database initialize(SectionNode config) {
-//		File f = file;
-//		if (f == null)
-//			return null;
-//		setTableName(config.get("table", "variables21"));
-//		String name = f.getName();
-//		assert name.endsWith(".db");
-//		return new SQLite(SkriptLogger.LOGGER, "[Skript]", f.getParent(), name.substring(0, name.length() - ".db".length()));
-//	}
-//
-//	@Override
-//	protected boolean requiresFile() {
-//		return true;
-//	}
-//
-//}
+package ch.njol.skript.variables;
+
+import ch.njol.skript.config.SectionNode;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+
+public class SQLiteStorage extends SQLStorage {
+
+	SQLiteStorage(String name) {
+		super(name, "CREATE TABLE IF NOT EXISTS %s (" +
+				"name         VARCHAR(" + MAX_VARIABLE_NAME_LENGTH + ")  NOT NULL  PRIMARY KEY," +
+				"type         VARCHAR(" + MAX_CLASS_CODENAME_LENGTH + ")," +
+				"value        BLOB(" + MAX_VALUE_SIZE + ")," +
+				"update_guid  CHAR(36)  NOT NULL" +
+				")");
+	}
+
+	@Override
+	protected boolean initialize(SectionNode config) {
+		return file != null;
+	}
+
+	@Override
+	protected Connection openConnection() throws SQLException {
+		File f = file;
+		assert f != null;
+		return DriverManager.getConnection("jdbc:sqlite:" + f.getPath());
+	}
+
+	@Override
+	protected boolean requiresFile() {
+		return true;
+	}
+
+}
@@ -37,25 +37,28 @@ import java.util.Map;
  */
 public class TypeHints {
 	
-	private static final Deque<Map<String, Class<?>>> typeHints = new ArrayDeque<Map<String, Class<?>>>();
-	
-	static {
-		clear(); // Initialize type hints
-	}
+	/**
+	 * The stack of type hints per thread, as scripts may be parsed on multiple threads at once.
+	 */
+	private static final ThreadLocal<Deque<Map<String, Class<?>>>> typeHints = ThreadLocal.withInitial(() -> {
+		Deque<Map<String, Class<?>>> typeHints = new ArrayDeque<Map<String, Class<?>>>();
+		typeHints.push(new HashMap<String, Class<?>>());
+		return typeHints;
+	});
 	
 	public static void add(String variable, Class<?> hint) {
 		if (hint.equals(Object.class)) // Ignore useless type hint
 			return;
 		
 		// Take top of stack, without removing it
-		Map<String, Class<?>> hints = typeHints.getFirst();
+		Map<String, Class<?>> hints = typeHints.get().getFirst();
 		hints.put(variable, hint);
 	}
 	
 	@Nullable
 	public static Class<?> get(String variable) {
 		// Go through stack of hints for different scopes
-		for (Map<String, Class<?>> hints : typeHints) {
+		for (Map<String, Class<?>> hints : typeHints.get()) {
 			Class<?> hint = hints.get(variable);
 			if (hint != null) // Found in this scope
 				return hint;
@@ -65,15 +68,16 @@ public class TypeHints {
 	}
 	
 	public static void enterScope() {
-		typeHints.push(new HashMap<String, Class<?>>());
+		typeHints.get().push(new HashMap<String, Class<?>>());
 	}
 	
 	public static void exitScope() {
-		typeHints.pop();
+		typeHints.get().pop();
 	}
 	
 	public static void clear() {
+		Deque<Map<String, Class<?>>> typeHints = TypeHints.typeHints.get();
 		typeHints.clear();
 		typeHints.push(new HashMap<String, Class<?>>());
 	}
-}
\ No newline at end of file
+}
@@ -22,9 +22,11 @@ import ch.njol.skript.Skript;
 import ch.njol.skript.SkriptAPIException;
 import ch.njol.skript.SkriptConfig;
 import ch.njol.skript.classes.ClassInfo;
+import ch.njol.skript.classes.Serializer;
 import ch.njol.skript.config.Config;
 import ch.njol.skript.config.Node;
 import ch.njol.skript.config.SectionNode;
+import ch.njol.skript.lang.ExecutionContext;
 import ch.njol.skript.lang.Variable;
 import ch.njol.skript.log.SkriptLogger;
 import ch.njol.skript.registrations.Classes;
@@ -47,9 +49,11 @@ import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReadWriteLock;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
 import java.util.regex.Pattern;
 
 /**
@@ -76,8 +80,9 @@ public class Variables {
 	// Register some things with Yggdrasil
 	static {
 		registerStorage(FlatFileStorage.class, "csv", "file", "flatfile");
-//		registerStorage(SQLiteStorage.class, "sqlite");
-//		registerStorage(MySQLStorage.class, "mysql");
+		registerStorage(BinaryLogStorage.class, "binary", "binarylog");
+		registerStorage(SQLiteStorage.class, "sqlite");
+		registerStorage(MySQLStorage.class, "mysql");
 //		yggdrasil.registerSingleClass(Kleenean.class, "Kleenean");
 		// Register ConfigurationSerializable, Bukkit's serialization system
 //		yggdrasil.registerClassResolver(new ConfigurationSerializer<ConfigurationSerializable>() {
@@ -144,8 +149,7 @@ public class Variables {
 	 * @return whether the loading was successful.
 	 */
 	public static boolean load() {
-		assert variables.treeMap.isEmpty();
-		assert variables.hashMap.isEmpty();
+		assert numVariables() == 0;
 		assert STORAGES.isEmpty();
 
 		Config config = SkriptConfig.getConfig();
@@ -279,6 +283,8 @@ public class Variables {
 				// Interrupt the loading logger thread to make it exit earlier
 				loadingLoggerThread.interrupt();
 
+				for (Thread serializerThread : serializerThreads)
+					serializerThread.start();
 				saveThread.start();
 			} catch (Exception e) {
 				throw Skript.exception(e, "Failed to load variables");
@@ -304,50 +310,115 @@ public class Variables {
 	}
 
 	/**
-	 * A lock for reading and writing variables.
+	 * The amount of {@link Stripe}s the global variables are split into, must be a power of two.
 	 */
-	static final ReadWriteLock variablesLock = new ReentrantReadWriteLock(true);
+	private static final int STRIPES = 32;
 
 	/**
-	 * The {@link VariablesMap} storing global variables,
-	 * must be locked with {@link #variablesLock}.
+	 * A part of the global variables, holding all variables whose names
+	 * start with the same top-level part (modulo hash collisions).
+	 * <p>
+	 * Each stripe has its own lock, so that e.g. a writer to {@code {stats::*}}
+	 * doesn't block readers of {@code {config::*}}. Since every list variable
+	 * lives below a single top-level part, a list variable is always
+	 * contained in a single stripe.
 	 */
-	static final VariablesMap variables = new VariablesMap();
+	private static final class Stripe {
 
-	/**
-	 * A map storing all local variables,
-	 * indexed by their {@link Event}.
-	 */
-	private static final Map<Object, VariablesMap> localVariables = new ConcurrentHashMap<Object, VariablesMap>();
+		/**
+		 * The lock for reading and writing the variables of this stripe.
+		 */
+		final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+		/**
+		 * The {@link VariablesMap} storing the variables of this stripe,
+		 * must be locked with {@link #lock}.
+		 */
+		final VariablesMap variables = new VariablesMap();
+
+		/**
+		 * Changes to variables of this stripe that have not yet been performed.
+		 */
+		final Queue<VariableChange> changeQueue = new ConcurrentLinkedQueue<VariableChange>();
+
+	}
 
 	/**
-	 * Gets the {@link TreeMap} of all global variables.
-	 * <p>
-	 * Remember to lock with {@link #getReadLock()} and to not make any changes!
+	 * The stripes storing global variables, see {@link #stripeOf(String)}.
 	 */
-	static TreeMap<String, Object> getVariables() {
-		return variables.treeMap;
+	private static final Stripe[] stripes = new Stripe[STRIPES];
+
+	static {
+		for (int i = 0; i < STRIPES; i++)
+			stripes[i] = new Stripe();
 	}
 
 	/**
-	 * Gets the {@link Map} of all global variables.
-	 * <p>
-	 * This map cannot be modified.
-	 * Remember to lock with {@link #getReadLock()}!
+	 * Gets the stripe the given global variable belongs to,
+	 * determined by the first part of its name.
+	 *
+	 * @param name the variable name, possibly a list variable.
+	 * @return the stripe.
 	 */
-	static Map<String, Object> getVariablesHashMap() {
-		return Collections.unmodifiableMap(variables.hashMap);
+	private static Stripe stripeOf(String name) {
+		int end = name.indexOf(Variable.SEPARATOR);
+		if (end == -1)
+			end = name.length();
+
+		// Same as String#hashCode, but without creating the substring
+		int hash = 0;
+		for (int i = 0; i < end; i++)
+			hash = 31 * hash + name.charAt(i);
+		hash ^= hash >>> 16;
+		return stripes[hash & (STRIPES - 1)];
 	}
 
 	/**
-	 * Gets the lock for reading variables.
+	 * Gets the write lock of the stripe of the given global variable,
+	 * which must be held to change how the variable is stored, e.g. to evict a {@link LazyValue}.
 	 *
+	 * @param name the variable name.
 	 * @return the lock.
+	 */
+	static Lock getWriteLock(String name) {
+		return stripeOf(name).lock.writeLock();
+	}
+
+	/**
+	 * A map storing all local variables,
+	 * indexed by the {@link ExecutionContext} of the trigger execution they belong to,
+	 * or by their {@link Event} outside of a trigger execution, see {@link #localsKey(Object)}.
+	 */
+	private static final Map<Object, VariablesMap> localVariables = new ConcurrentHashMap<Object, VariablesMap>();
+
+	/**
+	 * Gets the key of the local variables of the given event in {@link #localVariables}.
+	 * Locals belong to the trigger execution running on the current thread,
+	 * as triggers of the same event may be executed at the same time.
+	 */
+	private static Object localsKey(Object event) {
+		ExecutionContext context = ExecutionContext.current(event);
+		return context != null ? context : event;
+	}
+
+	/**
+	 * Passes the trees of all global variables to the given consumer, one per {@link Stripe}.
+	 * Each tree is sorted by the variable names, but the trees aren't sorted among each other.
+	 * <p>
+	 * The read lock of each stripe is held while its tree is consumed,
+	 * so the consumer must not make any changes, nor wait for other threads changing variables.
 	 *
-	 * @see #variablesLock
+	 * @param consumer the consumer of the trees.
 	 */
-	static Lock getReadLock() {
-		return variablesLock.readLock();
+	static void forEachVariablesTree(Consumer<Map<String, Object>> consumer) {
+		for (Stripe stripe : stripes) {
+			stripe.lock.readLock().lock();
+			try {
+				consumer.accept(stripe.variables.root);
+			} finally {
+				stripe.lock.readLock().unlock();
+			}
+		}
 	}
 
 	/**
@@ -360,7 +431,7 @@ public class Variables {
 	 */
 	@Nullable
 	public static VariablesMap removeLocals(Object event) {
-		return localVariables.remove(event);
+		return localVariables.remove(localsKey(event));
 	}
 
 	/**
@@ -376,7 +447,7 @@ public class Variables {
 	 */
 	public static void setLocalVariables(Object event, @Nullable Object map) {
 		if (map != null) {
-			localVariables.put(event, (VariablesMap) map);
+			localVariables.put(localsKey(event), (VariablesMap) map);
 		} else {
 			removeLocals(event);
 		}
@@ -391,7 +462,7 @@ public class Variables {
 	 */
 	@Nullable
 	public static Object copyLocalVariables(Object event) {
-		VariablesMap from = localVariables.get(event);
+		VariablesMap from = localVariables.get(localsKey(event));
 		if (from == null)
 			return null;
 
@@ -424,36 +495,50 @@ public class Variables {
 		}
 
 		if (local) {
-			VariablesMap map = localVariables.get(event);
+			VariablesMap map = localVariables.get(localsKey(event));
 			if (map == null)
 				return null;
 
 			return map.getVariable(n);
 		} else {
 			// Prevent race conditions from returning variables with incorrect values
-			if (!changeQueue.isEmpty()) {
+			if (!pendingChanges.isEmpty()) {
 				// Gets the last VariableChange made
-				VariableChange variableChange = changeQueue.stream()
-						.filter(change -> change.name.equals(n))
-						.reduce((first, second) -> second)
-								// Gets last value, as iteration is from head to tail,
-								//  and adding occurs at the tail (and we want the most recently added)
-						.orElse(null);
-
+				VariableChange variableChange = pendingChanges.get(n);
 				if (variableChange != null) {
 					return variableChange.value;
 				}
 			}
 
+			Stripe stripe = stripeOf(n);
+			stripe.lock.readLock().lock();
 			try {
-				variablesLock.readLock().lock();
-				return variables.getVariable(n);
+				return stripe.variables.getVariable(n);
 			} finally {
-				variablesLock.readLock().unlock();
+				stripe.lock.readLock().unlock();
 			}
 		}
 	}
 
+	/**
+	 * Returns the internal value of the local variable in the given slot.
+	 * <p>
+	 * <b>Do not modify the returned value!</b>
+	 *
+	 * @param slot the slot of the local variable.
+	 * @param event the event the local variable resides in.
+	 * @return the value, or {@code null} if the variable is not set.
+	 * @see #getVariable(String, Object, boolean)
+	 */
+	@Nullable
+	public static Object getVariable(LocalScope.Slot slot, Object event) {
+		VariablesMap map = localVariables.get(localsKey(event));
+		if (map == null)
+			return null;
+
+		return map.getVariable(slot);
+	}
+
 	/**
 	 * Deletes a variable.
 	 *
@@ -486,27 +571,60 @@ public class Variables {
 		// Check if conversion is needed due to ClassInfo#getSerializeAs
 		if (value != null) {
 			assert !name.endsWith("::*");
-
-			ClassInfo<?> ci = Classes.getSuperClassInfo(value.getClass());
-			Class<?> sas = ci.getSerializeAs();
-
-			if (sas != null) {
-				value = Converters.convert(value, sas);
-				assert value != null : ci + ", " + sas;
-			}
+			value = convertToSerializeAs(value);
 		}
 
 		if (local) {
 			assert event != null : name;
 
 			// Get the variables map and set the variable in it
-			VariablesMap map = localVariables.computeIfAbsent(event, e -> new VariablesMap());
+			VariablesMap map = localVariables.computeIfAbsent(localsKey(event), e -> new VariablesMap());
 			map.setVariable(name, value);
 		} else {
 			setVariable(name, value);
 		}
 	}
 
+	/**
+	 * Sets the local variable in the given slot.
+	 *
+	 * @param slot the slot of the local variable.
+	 * @param value the value, or {@code null} to delete the variable.
+	 * @param event the event the local variable resides in.
+	 * @see #setVariable(String, Object, Object, boolean)
+	 */
+	public static void setVariable(LocalScope.Slot slot, @Nullable Object value, Object event) {
+		if (value != null)
+			value = convertToSerializeAs(value);
+
+		VariablesMap map = localVariables.get(localsKey(event));
+		if (map == null) {
+			if (value == null)
+				return;
+			map = localVariables.computeIfAbsent(localsKey(event), e -> new VariablesMap(slot.scope));
+		}
+		map.setVariable(slot, value);
+	}
+
+	/**
+	 * Converts the given value to the type it's serialized as, if any.
+	 *
+	 * @param value the value.
+	 * @return the converted value.
+	 * @see ClassInfo#getSerializeAs()
+	 */
+	private static Object convertToSerializeAs(Object value) {
+		ClassInfo<?> ci = Classes.getSuperClassInfo(value.getClass());
+		Class<?> sas = ci.getSerializeAs();
+
+		if (sas != null) {
+			Object converted = Converters.convert(value, sas);
+			assert converted != null : ci + ", " + sas;
+			return converted;
+		}
+		return value;
+	}
+
 	/**
 	 * Sets the given global variable name to the given value.
 	 *
@@ -514,28 +632,33 @@ public class Variables {
 	 * @param value the value, or {@code null} to delete the variable.
 	 */
 	static void setVariable(String name, @Nullable Object value) {
-		boolean gotLock = variablesLock.writeLock().tryLock();
+		Stripe stripe = stripeOf(name);
+		boolean gotLock = stripe.lock.writeLock().tryLock();
 		if (gotLock) {
 			try {
 				// Set the variable
-				variables.setVariable(name, value);
+				stripe.variables.setVariable(name, value);
 				// ..., save the variable change
 				saveVariableChange(name, value);
 				// ..., and process all previously queued changes
-				processChangeQueue();
+				processChangeQueue(stripe);
 			} finally {
-				variablesLock.writeLock().unlock();
+				stripe.lock.writeLock().unlock();
 			}
 		} else {
 			// Couldn't acquire variable write lock, queue the change (blocking here is a bad idea)
-			queueVariableChange(name, value);
+			queueVariableChange(stripe, name, value);
 		}
 	}
 
 	/**
-	 * Changes to variables that have not yet been performed.
+	 * The most recent change in the {@link Stripe#changeQueue}s for each variable name,
+	 * so that reads don't have to scan the queues.
+	 * <p>
+	 * An entry is only removed by {@link #processChangeQueue(Stripe)} if it is still
+	 * the change that was just applied, a newer change for the same name is kept.
 	 */
-	static final Queue<VariableChange> changeQueue = new ConcurrentLinkedQueue<VariableChange>();
+	private static final Map<String, VariableChange> pendingChanges = new ConcurrentHashMap<String, VariableChange>();
 
 	/**
 	 * A variable change name-value pair.
@@ -570,28 +693,62 @@ public class Variables {
 	 * Queues a variable change. Only to be called when direct write is not
 	 * possible, but thread cannot be allowed to block.
 	 *
+	 * @param stripe the stripe of the variable.
 	 * @param name the variable name.
 	 * @param value the new value.
 	 */
-	private static void queueVariableChange(String name, @Nullable Object value) {
-		changeQueue.add(new VariableChange(name, value));
+	private static void queueVariableChange(Stripe stripe, String name, @Nullable Object value) {
+		VariableChange change = new VariableChange(name, value);
+		// Publish to the overlay first, so the change can't be drained before it's visible there
+		pendingChanges.put(name, change);
+		stripe.changeQueue.add(change);
+
+		// The writer we lost against may have finished its queue processing already
+		if (stripe.lock.writeLock().tryLock()) {
+			try {
+				processChangeQueue(stripe);
+			} finally {
+				stripe.lock.writeLock().unlock();
+			}
+		}
 	}
 
 	/**
-	 * Processes all entries in variable change queue.
+	 * Processes the variable change queues of all stripes
+	 * whose write lock is currently available, without blocking.
+	 */
+	static void processChangeQueue() {
+		for (Stripe stripe : stripes) {
+			if (stripe.changeQueue.isEmpty() || !stripe.lock.writeLock().tryLock())
+				continue;
+			try {
+				processChangeQueue(stripe);
+			} finally {
+				stripe.lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Processes all entries in the variable change queue of the given stripe.
 	 * <p>
-	 * Note that caller must acquire write lock before calling this,
+	 * Note that caller must acquire the write lock of the stripe before calling this,
 	 * then release it.
+	 *
+	 * @param stripe the stripe.
 	 */
-	static void processChangeQueue() {
+	private static void processChangeQueue(Stripe stripe) {
 		while (true) { // Run as long as we still have changes
-			VariableChange change = changeQueue.poll();
+			VariableChange change = stripe.changeQueue.poll();
 			if (change == null)
 				break;
 
 			// Set and save variable
-			variables.setVariable(change.name, change.value);
+			stripe.variables.setVariable(change.name, change.value);
 			saveVariableChange(change.name, change.value);
+
+			// Only forget the pending value if no newer change has been queued meanwhile
+			pendingChanges.remove(change.name, change);
 		}
 	}
 
@@ -623,26 +780,28 @@ public class Variables {
 	 * if the config was changed.
 	 * <p>
 	 * Must only be used while variables are loaded
-	 * when Skript is starting. Must be called on Bukkit's main thread.
+	 * when Skript is starting, or by storages that monitor changes made by other servers.
+	 * Must be called on Bukkit's main thread.
 	 * This method directly invokes
 	 * {@link VariablesStorage#save(String, String, byte[])},
 	 * i.e. you should not be holding any database locks or such
 	 * when calling this!
 	 *
 	 * @param name the variable name.
-	 * @param value the variable value.
+	 * @param value the variable value, {@code null} if it was deleted.
+	 *              Deletions are ignored while storages are loading.
 	 * @param source the storage the variable came from.
 	 * @return Whether the variable was stored somewhere. Not valid while storages are loading.
 	 */
 	static boolean variableLoaded(String name, @Nullable Object value, VariablesStorage source) {
 		assert BaseSkript.isPrimaryThread(); // required by serialisation
 
-		if (value == null)
-			return false;
-
 		synchronized (TEMP_VARIABLES) {
 			Map<String, NonNullPair<Object, VariablesStorage>> tvs = TEMP_VARIABLES.get();
 			if (tvs != null) {
+				if (value == null)
+					return false;
+
 				NonNullPair<Object, VariablesStorage> existingVariable = tvs.get(name);
 
 				// Check for conflicts with other storages
@@ -679,13 +838,18 @@ public class Variables {
 			}
 		}
 
-		variablesLock.writeLock().lock();
+		Stripe stripe = stripeOf(name);
+		stripe.lock.writeLock().lock();
 		try {
-			variables.setVariable(name, value);
+			stripe.variables.setVariable(name, value);
 		} finally {
-			variablesLock.writeLock().unlock();
+			stripe.lock.writeLock().unlock();
 		}
 
+		// A monitored storage saw a deletion, there's nothing to move
+		if (value == null)
+			return false;
+
 		// Move the variable to the right storage
 		try {
 			for (VariablesStorage variablesStorage : STORAGES) {
@@ -733,24 +897,19 @@ public class Variables {
 			TEMP_VARIABLES.set(null);
 			assert tvs != null;
 
-			variablesLock.writeLock().lock();
-			try {
-				// Calculate the amount of variables that don't have a storage
-				int unstoredVariables = 0;
-				for (Entry<String, NonNullPair<Object, VariablesStorage>> tv : tvs.entrySet()) {
-					if (!variableLoaded(tv.getKey(), tv.getValue().getFirst(), tv.getValue().getSecond()))
-						unstoredVariables++;
-				}
+			// Calculate the amount of variables that don't have a storage
+			int unstoredVariables = 0;
+			for (Entry<String, NonNullPair<Object, VariablesStorage>> tv : tvs.entrySet()) {
+				if (!variableLoaded(tv.getKey(), tv.getValue().getFirst(), tv.getValue().getSecond()))
+					unstoredVariables++;
+			}
 
-				for (VariablesStorage variablesStorage : STORAGES)
-					variablesStorage.allLoaded();
+			for (VariablesStorage variablesStorage : STORAGES)
+				variablesStorage.allLoaded();
 
-				Skript.debug("Variables set. Queue size = " + saveQueue.size());
+			Skript.debug("Variables set. Queue size = " + saveQueue.size());
 
-				return unstoredVariables;
-			} finally {
-				variablesLock.writeLock().unlock();
-			}
+			return unstoredVariables;
 		}
 	}
 
@@ -758,14 +917,15 @@ public class Variables {
 	 * Creates a {@link SerializedVariable} from the given variable name
 	 * and value.
 	 * <p>
-	 * Must be called from Bukkit's main thread.
+	 * May be called from any thread, unless the serializer of the value
+	 * {@link #mustSerializeSync(Object) must be used synchronously}.
 	 *
 	 * @param name the variable name.
 	 * @param value the value.
 	 * @return the serialized variable.
 	 */
 	public static SerializedVariable serialize(String name, @Nullable Object value) {
-		assert BaseSkript.isPrimaryThread();
+		assert !mustSerializeSync(value) || BaseSkript.isPrimaryThread();
 
 		// First, serialize the variable.
 		Value var;
@@ -781,25 +941,34 @@ public class Variables {
 	/**
 	 * Serializes the given value.
 	 * <p>
-	 * Must be called from Bukkit's main thread.
+	 * May be called from any thread, unless the serializer of the value
+	 * {@link #mustSerializeSync(Object) must be used synchronously}.
 	 *
 	 * @param value the value to serialize.
 	 * @return the serialized value.
 	 */
 	public static @Nullable Value serialize(@Nullable Object value) {
-		assert BaseSkript.isPrimaryThread();
+		if (value instanceof LazyValue)
+			return ((LazyValue) value).serialize();
+		assert !mustSerializeSync(value) || BaseSkript.isPrimaryThread();
 
 		return Classes.serialize(value);
 	}
 
 	/**
-	 * Serializes and adds the variable change to the {@link #saveQueue}.
+	 * Checks whether the given value can only be serialized on the main thread,
+	 * as indicated by {@link Serializer#mustSyncDeserialization()}.
 	 *
-	 * @param name the variable name.
-	 * @param value the value of the variable.
+	 * @param value the value.
+	 * @return whether the value must be serialized on the main thread.
 	 */
-	private static void saveVariableChange(String name, @Nullable Object value) {
-		saveQueue.add(serialize(name, value));
+	private static boolean mustSerializeSync(@Nullable Object value) {
+		if (value == null)
+			return false;
+
+		ClassInfo<?> classInfo = Classes.getSuperClassInfo(value.getClass());
+		Serializer<?> serializer = classInfo.getSerializer();
+		return serializer != null && serializer.mustSyncDeserialization();
 	}
 
 	/**
@@ -809,10 +978,167 @@ public class Variables {
 	static final BlockingQueue<SerializedVariable> saveQueue = new LinkedBlockingQueue<SerializedVariable>();
 
 	/**
-	 * Whether the {@link #saveThread} should be stopped.
+	 * Whether the {@link #saveThread} and {@link #serializerThreads} should be stopped.
 	 */
 	private static volatile boolean closed = false;
 
+	/**
+	 * Hands the variable change to the serializer threads,
+	 * which will serialize it and add it to the {@link #saveQueue}.
+	 * <p>
+	 * Values are stored by reference, as variable values are not modified
+	 * after being set (see {@link #getVariable(String, Object, boolean)}).
+	 * Values that {@link #mustSerializeSync(Object) must be serialized synchronously}
+	 * are serialized right away instead.
+	 *
+	 * @param name the variable name.
+	 * @param value the value of the variable.
+	 */
+	private static void saveVariableChange(String name, @Nullable Object value) {
+		PendingSave pendingSave;
+		if (mustSerializeSync(value)) {
+			pendingSave = new PendingSave(name, null, serialize(name, value));
+		} else {
+			pendingSave = new PendingSave(name, value, null);
+		}
+
+		// All changes of one variable go to the same serializer, keeping them in order
+		serializationBacklog.incrementAndGet();
+		serializeQueues.get((name.hashCode() & Integer.MAX_VALUE) % SERIALIZER_THREADS).add(pendingSave);
+	}
+
+	/**
+	 * A variable change waiting to be serialized.
+	 */
+	private static final class PendingSave {
+
+		/**
+		 * The name of the changed variable.
+		 */
+		final String name;
+
+		/**
+		 * The value to serialize, or {@code null} if the variable was deleted
+		 * or {@link #serialized} is already set.
+		 */
+		@Nullable
+		final Object value;
+
+		/**
+		 * The already serialized variable, or {@code null} if {@link #value}
+		 * has yet to be serialized.
+		 */
+		@Nullable
+		final SerializedVariable serialized;
+
+		PendingSave(String name, @Nullable Object value, @Nullable SerializedVariable serialized) {
+			this.name = name;
+			this.value = value;
+			this.serialized = serialized;
+		}
+
+	}
+
+	/**
+	 * The amount of threads used to serialize variable changes.
+	 */
+	private static final int SERIALIZER_THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+	/**
+	 * The maximum amount of variable changes a serializer thread
+	 * handles at once.
+	 */
+	private static final int SERIALIZE_BATCH_SIZE = 256;
+
+	/**
+	 * The queues of variable changes that have yet to be serialized,
+	 * one for each of the {@link #serializerThreads}.
+	 */
+	private static final List<BlockingQueue<PendingSave>> serializeQueues = new ArrayList<BlockingQueue<PendingSave>>(SERIALIZER_THREADS);
+
+	/**
+	 * The amount of variable changes that have been queued,
+	 * but not yet been serialized and added to the {@link #saveQueue}.
+	 */
+	private static final AtomicInteger serializationBacklog = new AtomicInteger();
+
+	/**
+	 * The threads that serialize variable changes in batches
+	 * and add them to the {@link #saveQueue}.
+	 */
+	private static final Thread[] serializerThreads = new Thread[SERIALIZER_THREADS];
+
+	static {
+		for (int i = 0; i < SERIALIZER_THREADS; i++) {
+			BlockingQueue<PendingSave> queue = new LinkedBlockingQueue<PendingSave>();
+			serializeQueues.add(queue);
+			serializerThreads[i] = Skript.newThread(() -> {
+				List<PendingSave> batch = new ArrayList<PendingSave>(SERIALIZE_BATCH_SIZE);
+				while (!closed) {
+					try {
+						batch.add(queue.take());
+					} catch (InterruptedException ignored) {
+						continue;
+					}
+					queue.drainTo(batch, SERIALIZE_BATCH_SIZE - 1);
+
+					for (PendingSave pendingSave : batch) {
+						try {
+							SerializedVariable serialized = pendingSave.serialized;
+							if (serialized == null)
+								serialized = new SerializedVariable(pendingSave.name, serialize(pendingSave.value));
+							saveQueue.add(serialized);
+						} catch (Exception e) {
+							//noinspection ThrowableNotThrown
+							Skript.exception(e, "Error saving variable named " + pendingSave.name);
+						} finally {
+							serializationBacklog.decrementAndGet();
+						}
+					}
+					batch.clear();
+				}
+			}, "Skript variable serializer thread #" + (i + 1));
+		}
+	}
+
+	/**
+	 * Gets the amount of variable changes that are waiting to be serialized.
+	 *
+	 * @return the serialization backlog.
+	 */
+	public static int getSerializationBacklog() {
+		return serializationBacklog.get();
+	}
+
+	/**
+	 * Gets the amount of variables that were loaded lazily,
+	 * i.e. only deserialized when first read.
+	 *
+	 * @return the amount of lazily loaded variables.
+	 */
+	public static long getLazyVariables() {
+		return LazyValue.getLoaded();
+	}
+
+	/**
+	 * Gets the amount of times a lazily loaded variable had to be deserialized when read,
+	 * either for the first time or after it was evicted for being idle.
+	 *
+	 * @return the amount of on-demand loads.
+	 */
+	public static long getLazyVariableFaults() {
+		return LazyValue.getFaults();
+	}
+
+	/**
+	 * Gets the amount of times an idle lazily loaded variable was evicted.
+	 *
+	 * @return the amount of evictions.
+	 */
+	public static long getLazyVariableEvictions() {
+		return LazyValue.getEvictions();
+	}
+
 	/**
 	 * The thread that saves variables, i.e. stores in the appropriate storage.
 	 */
@@ -836,20 +1162,22 @@ public class Variables {
 	/**
 	 * Closes the variable systems:
 	 * <ul>
-	 *     <li>Process all changes left in the {@link #changeQueue}.</li>
-	 *     <li>Stops the {@link #saveThread}.</li>
+	 *     <li>Process all changes left in the {@link Stripe#changeQueue}s.</li>
+	 *     <li>Stops the {@link #serializerThreads} and the {@link #saveThread}.</li>
 	 * </ul>
 	 */
 	public static void close() {
-		try { // Ensure that all changes are to save soon
-			variablesLock.writeLock().lock();
-			processChangeQueue();
-		} finally {
-			variablesLock.writeLock().unlock();
+		for (Stripe stripe : stripes) { // Ensure that all changes are to save soon
+			stripe.lock.writeLock().lock();
+			try {
+				processChangeQueue(stripe);
+			} finally {
+				stripe.lock.writeLock().unlock();
+			}
 		}
 
-		// First, make sure all variables are saved
-		while (saveQueue.size() > 0) {
+		// First, make sure all variables are serialized and saved
+		while (serializationBacklog.get() > 0 || saveQueue.size() > 0) {
 			try {
 				Thread.sleep(10);
 			} catch (InterruptedException ignored) {}
@@ -857,6 +1185,8 @@ public class Variables {
 
 		// Then we can safely interrupt and stop the thread
 		closed = true;
+		for (Thread serializerThread : serializerThreads)
+			serializerThread.interrupt();
 		saveThread.interrupt();
 	}
 
@@ -866,12 +1196,16 @@ public class Variables {
 	 * @return the amount of variables.
 	 */
 	public static int numVariables() {
-		try {
-			variablesLock.readLock().lock();
-			return variables.hashMap.size();
-		} finally {
-			variablesLock.readLock().unlock();
+		int size = 0;
+		for (Stripe stripe : stripes) {
+			stripe.lock.readLock().lock();
+			try {
+				size += stripe.variables.size();
+			} finally {
+				stripe.lock.readLock().unlock();
+			}
 		}
+		return size;
 	}
 
 }
@@ -22,11 +22,19 @@ import ch.njol.skript.lang.Variable;
 import ch.njol.util.StringUtils;
 import org.jetbrains.annotations.Nullable;
 
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.ConcurrentModificationException;
 import java.util.HashMap;
-import java.util.Map;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Map.Entry;
-import java.util.TreeMap;
+import java.util.NoSuchElementException;
+import java.util.Set;
 
 /**
  * A map for storing variables in a sorted and efficient manner.
@@ -139,13 +147,55 @@ final class VariablesMap {
 	};
 
 	/**
-	 * The map that stores all non-list variables.
+	 * The root of the tree of variables, branched by the list structure of the variables.
+	 * <p>
+	 * Each {@link TreeNode} maps the next part of a variable name to either the value of
+	 * that variable, or another {@link TreeNode} if it is a list variable.
+	 * A list variable that also has a value itself, e.g. {@code {list}} next to {@code {list::1}},
+	 * stores that value under the {@code null} key of its node.
+	 */
+	final TreeNode root = new TreeNode();
+
+	/**
+	 * The amount of non-list variables in this map, excluding the variables in {@link #slots}.
+	 */
+	private int size = 0;
+
+	/**
+	 * The scope of the {@link #slots}, or {@code null} if this map doesn't use slots.
+	 * Only maps of local variables use slots.
+	 */
+	@Nullable
+	private LocalScope scope;
+
+	/**
+	 * The values of the variables that have a slot in the {@link #scope}, by slot index.
+	 * These variables are not stored in the {@link #root}.
 	 */
-	final HashMap<String, Object> hashMap = new HashMap<String, Object>();
+	private Object @Nullable [] slots;
+
+	/**
+	 * Creates a new map without slots, until a {@link LocalScope.Slot} is used with it.
+	 */
+	VariablesMap() {}
+
 	/**
-	 * The tree of variables, branched by the list structure of the variables.
+	 * Creates a new map for local variables, with slots for the variables of the given scope.
+	 *
+	 * @param scope the scope.
 	 */
-	final TreeMap<String, Object> treeMap = new TreeMap<String, Object>();
+	VariablesMap(LocalScope scope) {
+		this.scope = scope;
+	}
+
+	/**
+	 * Gets the amount of non-list variables in this map.
+	 *
+	 * @return the amount of variables.
+	 */
+	int size() {
+		return size;
+	}
 
 	/**
 	 * Returns the internal value of the requested variable.
@@ -157,42 +207,71 @@ final class VariablesMap {
 	 * {@code Map<String, Object>} for a list variable,
 	 * or {@code null} if the variable is not set.
 	 */
-	@SuppressWarnings("unchecked")
 	@Nullable
 	Object getVariable(String name) {
-		if (!name.endsWith("*")) {
-			// Not a list variable, quick access from the hash map
-			return hashMap.get(name);
-		} else {
-			// List variable, search the tree branches
-			String[] split = Variables.splitVariableName(name);
-			Map<String, Object> parent = treeMap;
-
-			// Iterate over the parts of the variable name
-			for (int i = 0; i < split.length; i++) {
-				String n = split[i];
-				if (n.equals("*")) {
-					// End of variable name, return map
-					assert i == split.length - 1;
+		int slot = slotOf(name);
+		if (slot != -1)
+			return getSlot(slot);
+		return getTreeVariable(name);
+	}
+
+	/**
+	 * Returns the value of the variable in the given slot.
+	 * <p>
+	 * If this map already uses a different scope, e.g. as it's shared by sections with different scopes,
+	 * the variable is looked up by name instead.
+	 *
+	 * @param slot the slot of the variable.
+	 * @return the value, or {@code null} if the variable is not set.
+	 */
+	@Nullable
+	Object getVariable(LocalScope.Slot slot) {
+		if (slot.scope != scope && !adopt(slot.scope))
+			return getVariable(slot.name);
+		return getSlot(slot.index);
+	}
+
+	/**
+	 * Returns the internal value of the requested variable in the {@link #root}.
+	 *
+	 * @param name the name of the variable, possibly a list variable.
+	 * @return an {@link Object} for a normal variable or a
+	 * {@code Map<String, Object>} for a list variable,
+	 * or {@code null} if the variable is not set.
+	 */
+	@Nullable
+	private Object getTreeVariable(String name) {
+		int end = nameEnd(name);
+		if (end == -1)
+			return null;
+
+		TreeNode parent = root;
+		int start = 0;
+		while (true) {
+			int separator = name.indexOf(Variable.SEPARATOR, start);
+			if (separator == -1 || separator >= end) {
+				// Last part of the variable name
+				if (isListWildcard(name, start, end)) {
+					// List variable, return the map
 					return parent;
 				}
 
-				// Check if the current (sub-)tree has the expected child node
-				Object childNode = parent.get(n);
-				if (childNode == null)
-					return null;
+				Object childNode = parent.get(part(name, start, end));
+				if (childNode instanceof TreeNode)
+					return ((TreeNode) childNode).get(null);
+				return childNode;
+			}
 
-				// Continue the iteration if the child node is a tree itself
-				if (childNode instanceof Map) {
-					// Continue iterating with the subtree
-					parent = (Map<String, Object>) childNode;
-					assert i != split.length - 1;
-				} else {
-					// ..., otherwise the list variable doesn't exist here
-					return null;
-				}
+			// Check if the current (sub-)tree has the expected child node
+			Object childNode = parent.getRaw(part(name, start, separator));
+			if (!(childNode instanceof TreeNode)) {
+				// ..., otherwise the list variable doesn't exist here
+				return null;
 			}
-			return null;
+
+			// Continue iterating with the subtree
+			parent = (TreeNode) childNode;
+			start = separator + Variable.SEPARATOR.length();
 		}
 	}
 
@@ -205,66 +284,93 @@ final class VariablesMap {
 	 * @param name the variable name.
 	 * @param value the variable value, {@code null} to delete the variable.
 	 */
-	@SuppressWarnings("unchecked")
 	void setVariable(String name, @Nullable Object value) {
-		// First update the hash map easily
-		if (!name.endsWith("*")) {
-			if (value == null)
-				hashMap.remove(name);
-			else
-				hashMap.put(name, value);
-		}
+		int slot = slotOf(name);
+		if (slot != -1)
+			setSlot(slot, value);
+		else
+			setTreeVariable(name, value);
+	}
 
-		// Then update the tree map by going down the branches
-		String[] split = Variables.splitVariableName(name);
-		TreeMap<String, Object> parent = treeMap;
+	/**
+	 * Sets the variable in the given slot to the given value.
+	 *
+	 * @param slot the slot of the variable.
+	 * @param value the variable value, {@code null} to delete the variable.
+	 * @see #getVariable(LocalScope.Slot)
+	 */
+	void setVariable(LocalScope.Slot slot, @Nullable Object value) {
+		if (slot.scope != scope && !adopt(slot.scope))
+			setVariable(slot.name, value);
+		else
+			setSlot(slot.index, value);
+	}
+
+	/**
+	 * Sets the given variable in the {@link #root} to the given value.
+	 *
+	 * @param name the variable name.
+	 * @param value the variable value, {@code null} to delete the variable.
+	 */
+	private void setTreeVariable(String name, @Nullable Object value) {
+		int end = nameEnd(name);
+		if (end == -1)
+			return;
+
+		TreeNode parent = root;
+		int start = 0;
 
 		// Iterate over the parts of the variable name
-		for (int i = 0; i < split.length; i++) {
-			String childNodeName = split[i];
-			Object childNode = parent.get(childNodeName);
+		while (true) {
+			int separator = name.indexOf(Variable.SEPARATOR, start);
+			boolean last = separator == -1 || separator >= end;
+			int partEnd = last ? end : separator;
+			int nextStart = partEnd + Variable.SEPARATOR.length();
+
+			String childNodeName = part(name, start, partEnd);
+			Object childNode = parent.getRaw(childNodeName);
 
 			if (childNode == null) {
 				// Expected child node not found
-				if (i == split.length - 1) {
+				if (last) {
 					// End of the variable name reached, set variable if needed
-					if (value != null)
+					if (value != null && !isListWildcard(name, start, end)) {
 						parent.put(childNodeName, value);
+						size++;
+					}
 
 					break;
 				} else if (value != null) {
 					// Create child node, add it to parent and continue iteration
-					childNode = new TreeMap<String, Object>(VARIABLE_NAME_COMPARATOR);
+					TreeNode childNodeMap = new TreeNode();
 
-					parent.put(childNodeName, childNode);
-					parent = (TreeMap<String, Object>) childNode;
+					parent.put(childNodeName, childNodeMap);
+					parent = childNodeMap;
 				} else {
-					// Want to set variable to null, bu variable is already null
+					// Want to set variable to null, but variable is already null
 					break;
 				}
-			} else if (childNode instanceof TreeMap) {
+			} else if (childNode instanceof TreeNode) {
 				// Child node found
-				TreeMap<String, Object> childNodeMap = ((TreeMap<String, Object>) childNode);
+				TreeNode childNodeMap = (TreeNode) childNode;
 
-				if (i == split.length - 1) {
+				if (last) {
 					// End of variable name reached, adjust child node accordingly
-					if (value == null)
-						childNodeMap.remove(null);
-					else
-						childNodeMap.put(null, value);
+					Object previous = value == null ? childNodeMap.remove(null) : childNodeMap.put(null, value);
+					updateSize(previous, value);
 
 					break;
-				} else if (i == split.length - 2 && split[i + 1].equals("*")) {
+				} else if (isListWildcard(name, nextStart, end)) {
 					// Second to last part of variable name
 					assert value == null;
 
-					// Delete all indices of the list variable from hashMap
-					deleteFromHashMap(StringUtils.join(split, Variable.SEPARATOR, 0, i + 1), childNodeMap);
+					// Delete all indices of the list variable
+					size -= countVariables(childNodeMap);
 
 					// If the list variable itself has a value ,
 					//  e.g. list `{mylist::3}` while variable `{mylist}` also has a value,
 					//  then adjust the parent for that
-					Object currentChildValue = childNodeMap.get(null);
+					Object currentChildValue = childNodeMap.getRaw(null);
 					if (currentChildValue == null)
 						parent.remove(childNodeName);
 					else
@@ -277,17 +383,19 @@ final class VariablesMap {
 				}
 			} else {
 				// Ran into leaf node
-				if (i == split.length - 1) {
+				if (last) {
 					// If we arrived at the end of the variable name, update parent
-					if (value == null)
+					if (value == null) {
 						parent.remove(childNodeName);
-					else
+						size--;
+					} else {
 						parent.put(childNodeName, value);
+					}
 
 					break;
 				} else if (value != null) {
 					// Need to continue iteration, create new child node and put old value in it
-					TreeMap<String, Object> newChildNodeMap = new TreeMap<String, Object>(VARIABLE_NAME_COMPARATOR);
+					TreeNode newChildNodeMap = new TreeNode();
 					newChildNodeMap.put(null, childNode);
 
 					// Add new child node to parent
@@ -297,32 +405,171 @@ final class VariablesMap {
 					break;
 				}
 			}
+
+			start = nextStart;
 		}
 	}
 
 	/**
-	 * Deletes all indices of a list variable from the {@link #hashMap}.
+	 * Gets the slot of the given variable name in the {@link #scope}.
 	 *
-	 * @param parent the list variable prefix,
-	 *                  e.g. {@code list} for {@code list::*}.
-	 * @param current the map of the list variable.
+	 * @param name the variable name.
+	 * @return the index of the slot, or {@code -1} if the variable is stored in the {@link #root}.
 	 */
-	@SuppressWarnings("unchecked")
-	void deleteFromHashMap(String parent, TreeMap<String, Object> current) {
-		for (Entry<String, Object> e : current.entrySet()) {
-			if (e.getKey() == null)
-				continue;
-			String childName = parent + Variable.SEPARATOR + e.getKey();
+	private int slotOf(String name) {
+		LocalScope scope = this.scope;
+		if (scope == null || name.contains(Variable.SEPARATOR))
+			return -1;
+		return scope.slotOf(name);
+	}
+
+	/**
+	 * Gets the value of the given slot.
+	 *
+	 * @param index the index of the slot.
+	 * @return the value, or {@code null} if the variable is not set.
+	 */
+	@Nullable
+	private Object getSlot(int index) {
+		Object[] slots = this.slots;
+		return slots != null && index < slots.length ? slots[index] : null;
+	}
+
+	/**
+	 * Sets the value of the given slot.
+	 *
+	 * @param index the index of the slot.
+	 * @param value the value, {@code null} to delete the variable.
+	 */
+	private void setSlot(int index, @Nullable Object value) {
+		Object[] slots = this.slots;
+		if (slots == null || index >= slots.length) {
+			if (value == null)
+				return;
+
+			// The scope may have grown since this map was created, e.g. if its script was reloaded
+			assert scope != null;
+			int length = Math.max(scope.size(), index + 1);
+			slots = slots == null ? new Object[length] : Arrays.copyOf(slots, length);
+			this.slots = slots;
+		}
+		slots[index] = value;
+	}
 
-			// Remove from hashMap
-			hashMap.remove(childName);
+	/**
+	 * Starts using slots for the variables of the given scope, if this map doesn't use slots yet.
+	 * Variables of the scope that were already set by name are moved to their slot.
+	 *
+	 * @param scope the scope.
+	 * @return whether this map now uses the given scope.
+	 */
+	private boolean adopt(LocalScope scope) {
+		if (this.scope != null)
+			return false;
+
+		List<String> names = new ArrayList<String>();
+		for (String name : root.children.keySet()) {
+			if (name != null && scope.slotOf(name) != -1)
+				names.add(name);
+		}
+
+		this.scope = scope;
+		for (String name : names) {
+			Object value = getTreeVariable(name);
+			if (value == null)
+				continue; // Only a list variable, without a value itself
+			setTreeVariable(name, null);
+			setSlot(scope.slotOf(name), value);
+		}
+		return true;
+	}
+
+	/**
+	 * Updates the {@link #size} after a variable was changed.
+	 *
+	 * @param previous the previous value.
+	 * @param value the new value.
+	 */
+	private void updateSize(@Nullable Object previous, @Nullable Object value) {
+		if (previous == null && value != null)
+			size++;
+		else if (previous != null && value == null)
+			size--;
+	}
 
-			// Recurse if needed
-			Object val = e.getValue();
-			if (val instanceof TreeMap) {
-				deleteFromHashMap(childName, (TreeMap<String, Object>) val);
+	/**
+	 * Counts the non-list variables in the given list variable,
+	 * excluding the value of the list variable itself.
+	 *
+	 * @param node the node of the list variable.
+	 * @return the amount of variables.
+	 */
+	private static int countVariables(TreeNode node) {
+		int count = 0;
+		for (Entry<String, Object> entry : node.children.entrySet()) {
+			if (entry.getKey() == null)
+				continue;
+
+			Object value = entry.getValue();
+			if (value instanceof TreeNode) {
+				TreeNode childNode = (TreeNode) value;
+				if (childNode.getRaw(null) != null)
+					count++;
+				count += countVariables(childNode);
+			} else {
+				count++;
 			}
 		}
+		return count;
+	}
+
+	/**
+	 * Gets the end of the last non-empty part of the given variable name,
+	 * as {@link Variables#splitVariableName(String)} drops trailing empty parts.
+	 *
+	 * @param name the variable name.
+	 * @return the end of the name, exclusive, or {@code -1} if the name has no parts at all.
+	 */
+	private static int nameEnd(String name) {
+		if (name.isEmpty())
+			return 0;
+
+		int end = -1;
+		int start = 0;
+		while (true) {
+			int separator = name.indexOf(Variable.SEPARATOR, start);
+			int partEnd = separator == -1 ? name.length() : separator;
+			if (partEnd > start)
+				end = partEnd;
+			if (separator == -1)
+				return end;
+			start = separator + Variable.SEPARATOR.length();
+		}
+	}
+
+	/**
+	 * Gets a part of the given variable name,
+	 * without copying it if the part is the whole name.
+	 *
+	 * @param name the variable name.
+	 * @param start the start of the part.
+	 * @param end the end of the part, exclusive.
+	 * @return the part.
+	 */
+	private static String part(String name, int start, int end) {
+		return start == 0 && end == name.length() ? name : name.substring(start, end);
+	}
+
+	/**
+	 * Checks whether the given part of the variable name is the {@code *} of a list variable.
+	 *
+	 * @param name the variable name.
+	 * @param start the start of the part.
+	 * @param end the end of the part, exclusive.
+	 * @return whether the part is {@code *}.
+	 */
+	private static boolean isListWildcard(String name, int start, int end) {
+		return end - start == 1 && name.charAt(start) == '*';
 	}
 
 	/**
@@ -332,41 +579,221 @@ final class VariablesMap {
 	 */
 	public VariablesMap copy() {
 		VariablesMap copy = new VariablesMap();
-
-		copy.hashMap.putAll(hashMap);
-
-		TreeMap<String, Object> treeMapCopy = copyTreeMap(treeMap);
-		copy.treeMap.putAll(treeMapCopy);
-
+		copyTree(root, copy.root);
+		copy.size = size;
+		copy.scope = scope;
+		Object[] slots = this.slots;
+		if (slots != null)
+			copy.slots = slots.clone();
 		return copy;
 	}
 
 	/**
-	 * Makes a deep copy of the given {@link TreeMap}.
+	 * Makes a deep copy of the given {@link TreeNode} into the given target.
 	 * <p>
 	 * The 'deep copy' means that each subtree of the given tree is copied
 	 * as well.
 	 *
-	 * @param original the original tree map.
-	 * @return the copy.
+	 * @param original the original tree node.
+	 * @param copy the node to copy into.
 	 */
-	@SuppressWarnings("unchecked")
-	private static TreeMap<String, Object> copyTreeMap(TreeMap<String, Object> original) {
-		TreeMap<String, Object> copy = new TreeMap<String, Object>(VARIABLE_NAME_COMPARATOR);
-
-		for (Entry<String, Object> child : original.entrySet()) {
-			String key = child.getKey();
+	private static void copyTree(TreeNode original, TreeNode copy) {
+		for (Entry<String, Object> child : original.children.entrySet()) {
 			Object value = child.getValue();
 
-			// Copy by recursion if the child is a TreeMap
-			if (value instanceof TreeMap) {
-				value = copyTreeMap((TreeMap<String, Object>) value);
+			// Copy by recursion if the child is a TreeNode
+			if (value instanceof TreeNode) {
+				TreeNode childCopy = new TreeNode();
+				copyTree((TreeNode) value, childCopy);
+				value = childCopy;
 			}
 
-			copy.put(key, value);
+			copy.put(child.getKey(), value);
+		}
+	}
+
+	/**
+	 * A node in the tree of variables.
+	 * <p>
+	 * Lookups go through a hash map, while iteration is in the order
+	 * of {@link #VARIABLE_NAME_COMPARATOR}. The sorted order is only built once the node
+	 * is first iterated, and is kept up to date from then on.
+	 * <p>
+	 * This map can only be modified through {@link #put(String, Object)} and {@link #remove(Object)},
+	 * and its views are read-only.
+	 * <p>
+	 * Values may be {@link LazyValue}s, which are deserialized when read through {@link #get(Object)}
+	 * or the {@link #entrySet()}. The variables map itself uses {@link #getRaw(Object)} to not deserialize them.
+	 */
+	static final class TreeNode extends AbstractMap<String, Object> {
+
+		/**
+		 * The children of this node, the {@code null} key holding the value of the node itself.
+		 */
+		private final HashMap<String, Object> children = new HashMap<String, Object>();
+
+		/**
+		 * The keys of {@link #children}, sorted by {@link #VARIABLE_NAME_COMPARATOR},
+		 * or {@code null} if this node has not been iterated yet.
+		 * <p>
+		 * Readers holding only a read lock may build this list concurrently, each publishing a complete list
+		 * through this volatile field, while it's only modified in place by writers, which exclude all readers.
+		 */
+		@Nullable
+		private volatile ArrayList<String> sortedKeys;
+
+		/**
+		 * The amount of structural modifications,
+		 * used to detect modifications during iteration.
+		 */
+		private int modCount = 0;
+
+		@Override
+		@Nullable
+		public Object get(@Nullable Object key) {
+			return resolve(children.get(key));
+		}
+
+		/**
+		 * Gets the value of the given child without deserializing it if it's a {@link LazyValue}.
+		 *
+		 * @param key the key of the child.
+		 * @return the value, or {@code null} if there is no such child.
+		 */
+		@Nullable
+		Object getRaw(@Nullable String key) {
+			return children.get(key);
+		}
+
+		/**
+		 * Deserializes the given value if it's a {@link LazyValue}.
+		 *
+		 * @param value the value.
+		 * @return the deserialized value.
+		 */
+		@Nullable
+		private static Object resolve(@Nullable Object value) {
+			return value instanceof LazyValue ? ((LazyValue) value).get() : value;
+		}
+
+		@Override
+		public boolean containsKey(@Nullable Object key) {
+			return children.containsKey(key);
+		}
+
+		@Override
+		public int size() {
+			return children.size();
+		}
+
+		@Override
+		public boolean isEmpty() {
+			return children.isEmpty();
+		}
+
+		@Override
+		@Nullable
+		public Object put(@Nullable String key, Object value) {
+			Object previous = children.put(key, value);
+			if (previous == null) {
+				modCount++;
+				ArrayList<String> sortedKeys = this.sortedKeys;
+				if (sortedKeys != null) {
+					int index = Collections.binarySearch(sortedKeys, key, VARIABLE_NAME_COMPARATOR);
+					assert index < 0 : key;
+					sortedKeys.add(-index - 1, key);
+				}
+			}
+			return previous;
+		}
+
+		@Override
+		@Nullable
+		public Object remove(@Nullable Object key) {
+			if (!children.containsKey(key))
+				return null;
+
+			Object previous = children.remove(key);
+			modCount++;
+			ArrayList<String> sortedKeys = this.sortedKeys;
+			if (sortedKeys != null) {
+				int index = Collections.binarySearch(sortedKeys, (String) key, VARIABLE_NAME_COMPARATOR);
+				assert index >= 0 : key;
+				sortedKeys.remove(index);
+			}
+			return previous;
+		}
+
+		/**
+		 * Gets the keys of this node in sorted order, sorting them if needed.
+		 *
+		 * @return the sorted keys.
+		 */
+		private ArrayList<String> sortedKeys() {
+			ArrayList<String> sortedKeys = this.sortedKeys;
+			if (sortedKeys == null) {
+				sortedKeys = new ArrayList<String>(children.keySet());
+				sortedKeys.sort(VARIABLE_NAME_COMPARATOR);
+				this.sortedKeys = sortedKeys;
+			}
+			return sortedKeys;
+		}
+
+		@Override
+		public Set<Entry<String, Object>> entrySet() {
+			return entrySet(true);
+		}
+
+		/**
+		 * Gets the entries of this node, without deserializing {@link LazyValue}s.
+		 *
+		 * @return the entries.
+		 */
+		Set<Entry<String, Object>> rawEntrySet() {
+			return entrySet(false);
+		}
+
+		/**
+		 * Gets the entries of this node.
+		 *
+		 * @param resolve whether to deserialize {@link LazyValue}s.
+		 * @return the entries.
+		 */
+		private Set<Entry<String, Object>> entrySet(boolean resolve) {
+			return new AbstractSet<Entry<String, Object>>() {
+				@Override
+				public Iterator<Entry<String, Object>> iterator() {
+					ArrayList<String> keys = sortedKeys();
+					int expectedModCount = modCount;
+					return new Iterator<Entry<String, Object>>() {
+						private int index = 0;
+
+						@Override
+						public boolean hasNext() {
+							return index < keys.size();
+						}
+
+						@Override
+						public Entry<String, Object> next() {
+							if (modCount != expectedModCount)
+								throw new ConcurrentModificationException();
+							if (!hasNext())
+								throw new NoSuchElementException();
+
+							String key = keys.get(index++);
+							Object value = children.get(key);
+							return new SimpleImmutableEntry<String, Object>(key, resolve ? resolve(value) : value);
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return children.size();
+				}
+			};
 		}
 
-		return copy;
 	}
 
 }
@@ -19,6 +19,8 @@
 package ch.njol.skript.variables;
 
 import ch.njol.skript.Skript;
+import ch.njol.skript.classes.ClassInfo;
+import ch.njol.skript.classes.Serializer;
 import ch.njol.skript.config.SectionNode;
 import ch.njol.skript.lang.ParseContext;
 import ch.njol.skript.log.ParseLogHandler;
@@ -33,7 +35,15 @@ import org.jetbrains.annotations.Nullable;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 import java.util.regex.PatternSyntaxException;
 
@@ -58,8 +68,39 @@ public abstract class VariablesStorage implements Closeable {
 	 */
 	private static final int FIRST_WARNING = 300;
 
+	/**
+	 * The maximum amount of different variables
+	 * the {@link #writeThread} collects before writing them.
+	 */
+	private static final int MAX_BATCH_SIZE = 500;
+
+	/**
+	 * The maximum time, in milliseconds, the {@link #writeThread} waits for more changes
+	 * after taking the first change of a batch.
+	 * Changes to the same variable within this window are collapsed into one write.
+	 */
+	private static final long FLUSH_INTERVAL = 100;
+
+	/**
+	 * The time after which an unread lazily loaded variable is evicted again,
+	 * if the storage doesn't configure a {@code lazy idle time}.
+	 */
+	private static final Timespan DEFAULT_LAZY_IDLE_TIME = new Timespan(10 * 60 * 1000);
+
 	final LinkedBlockingQueue<SerializedVariable> changesQueue = new LinkedBlockingQueue<SerializedVariable>(QUEUE_SIZE);
 
+	/**
+	 * The amount of variable changes passed to {@link #save(SerializedVariable)}
+	 * that have not been written or collapsed yet.
+	 */
+	private final AtomicInteger unsavedChanges = new AtomicInteger();
+
+	/**
+	 * The amount of writes that were skipped because the same variable
+	 * was changed again within the same batch.
+	 */
+	private final AtomicLong collapsedWrites = new AtomicLong();
+
 	/**
 	 * Whether this variable storage has been {@link #close() closed}.
 	 */
@@ -84,6 +125,20 @@ public abstract class VariablesStorage implements Closeable {
 	@Nullable
 	private Pattern variableNamePattern;
 
+	/**
+	 * The pattern of the variable names this storage loads lazily,
+	 * or {@code null} to load all variables right away.
+	 *
+	 * @see #deserialize(String, String, byte[])
+	 */
+	@Nullable
+	private Pattern lazyPattern;
+
+	/**
+	 * The time in milliseconds after which an unread lazily loaded variable is evicted again.
+	 */
+	private long lazyIdleTime;
+
 	/**
 	 * The thread used for writing variables to the storage.
 	 */
@@ -103,24 +158,58 @@ public abstract class VariablesStorage implements Closeable {
 		databaseName = name;
 
 		writeThread = Skript.newThread(() -> {
+			// Keyed by variable name, ordered by the time of the last change
+			Map<String, SerializedVariable> batch = new LinkedHashMap<String, SerializedVariable>();
 			while (!closed) {
 				try {
-					// Take a variable from the queue and process it
-					SerializedVariable variable = changesQueue.take();
-					Value value = variable.value;
-
-					// Actually save the variable
-					if (value != null)
-						save(variable.name, value.type, value.data);
-					else
-						save(variable.name, null, null);
+					// Wait for the first change of a batch
+					addToBatch(batch, changesQueue.take());
+
+					// ..., then collect more changes until the batch is full or the window is over
+					long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(FLUSH_INTERVAL);
+					while (batch.size() < MAX_BATCH_SIZE) {
+						long remaining = deadline - System.nanoTime();
+						if (remaining <= 0)
+							break;
+
+						SerializedVariable variable = changesQueue.poll(remaining, TimeUnit.NANOSECONDS);
+						if (variable == null)
+							break;
+						addToBatch(batch, variable);
+					}
 				} catch (InterruptedException ignored) {
 					// Ignored as the `closed` field will indicate whether the thread actually needs to stop
 				}
+
+				if (!batch.isEmpty()) {
+					int size = batch.size();
+					try {
+						saveBatch(batch.values());
+					} finally {
+						batch.clear();
+						unsavedChanges.addAndGet(-size);
+					}
+				}
 			}
 		}, "Skript variable save thread for database '" + name + "'");
 	}
 
+	/**
+	 * Adds the given variable change to the given batch,
+	 * replacing an earlier change of the same variable.
+	 *
+	 * @param batch the batch of changes, keyed by variable name.
+	 * @param variable the variable change.
+	 */
+	private void addToBatch(Map<String, SerializedVariable> batch, SerializedVariable variable) {
+		// Remove first, so that the variable moves to the end of the batch
+		if (batch.remove(variable.name) != null) {
+			collapsedWrites.incrementAndGet();
+			unsavedChanges.decrementAndGet();
+		}
+		batch.put(variable.name, variable);
+	}
+
 	/**
 	 * Gets the string value at the given key of the given section node.
 	 *
@@ -188,6 +277,25 @@ public abstract class VariablesStorage implements Closeable {
 			return false;
 		}
 
+		// Set the lazy loading pattern, if present
+		String lazyPattern = sectionNode.getValue("lazy pattern");
+		if (lazyPattern != null) {
+			try {
+				this.lazyPattern = Pattern.compile(lazyPattern);
+			} catch (PatternSyntaxException e) {
+				Skript.error("Invalid lazy pattern '" + lazyPattern + "': " + e.getLocalizedMessage());
+				return false;
+			}
+
+			Timespan lazyIdleTime = sectionNode.getValue("lazy idle time") == null ? DEFAULT_LAZY_IDLE_TIME :
+				getValue(sectionNode, "lazy idle time", Timespan.class);
+			if (lazyIdleTime == null)
+				return false;
+			this.lazyIdleTime = lazyIdleTime.getMilliSeconds();
+
+			LazyValue.startEvictionTask();
+		}
+
 		if (requiresFile()) {
 			// Initialize file
 			String fileName = getValue(sectionNode, "file");
@@ -239,6 +347,32 @@ public abstract class VariablesStorage implements Closeable {
 		return true;
 	}
 
+	/**
+	 * Deserializes a variable loaded from this storage.
+	 * <p>
+	 * If the variable matches the {@code lazy pattern} of this storage, this returns
+	 * a {@link LazyValue} that is only deserialized when the variable is first read,
+	 * unless its type must be deserialized on the main thread.
+	 * May be called from any thread.
+	 *
+	 * @param name the variable name.
+	 * @param type the serialized type.
+	 * @param data the serialized data.
+	 * @return the value to pass to {@link Variables#variableLoaded(String, Object, VariablesStorage)},
+	 * or {@code null} if the value could not be deserialized.
+	 */
+	@Nullable
+	protected final Object deserialize(String name, String type, byte[] data) {
+		Pattern lazyPattern = this.lazyPattern;
+		if (lazyPattern != null && lazyPattern.matcher(name).matches()) {
+			ClassInfo<?> classInfo = Classes.getClassInfoNoError(type);
+			Serializer<?> serializer = classInfo == null ? null : classInfo.getSerializer();
+			if (serializer != null && !serializer.mustSyncDeserialization())
+				return new LazyValue(name, type, data, lazyIdleTime);
+		}
+		return Classes.deserialize(type, data);
+	}
+
 	/**
 	 * Loads variables stored here.
 	 *
@@ -274,8 +408,8 @@ public abstract class VariablesStorage implements Closeable {
 	protected abstract File getFile(String fileName);
 
 	/**
-	 * Must be locked after {@link Variables#getReadLock()}
-	 * (if that lock is used at all).
+	 * Must be locked before the locks of the global variables
+	 * (if those are used at all), see {@link Variables#forEachVariablesTree}.
 	 */
 	protected final Object connectionLock = new Object();
 
@@ -374,6 +508,8 @@ public abstract class VariablesStorage implements Closeable {
 	 * @param var the serialized variable.
 	 */
 	final void save(SerializedVariable var) {
+		unsavedChanges.incrementAndGet();
+
 		if (changesQueue.size() > FIRST_WARNING && lastWarning < System.currentTimeMillis() - WARNING_INTERVAL * 1000) {
 			// Too many variables queued up to save, warn the server
 			Skript.warning("Cannot write variables to the database '" + databaseName + "' at sufficient speed; " +
@@ -418,7 +554,7 @@ public abstract class VariablesStorage implements Closeable {
 	@Override
 	public void close() {
 		// Wait for all variable changes to be processed
-		while (changesQueue.size() > 0) {
+		while (unsavedChanges.get() > 0) {
 			try {
 				Thread.sleep(10);
 			} catch (InterruptedException ignored) {}
@@ -427,6 +563,19 @@ public abstract class VariablesStorage implements Closeable {
 		// Now safely close storage and interrupt thread
 		closed = true;
 		writeThread.interrupt();
+
+		if (collapsedWrites.get() > 0)
+			Skript.debug("Collapsed " + collapsedWrites.get() + " variable writes to the database '" + databaseName + "'");
+	}
+
+	/**
+	 * Gets the amount of writes that were skipped, because the same variable
+	 * was changed again before the previous change was written.
+	 *
+	 * @return the amount of collapsed writes.
+	 */
+	public long getCollapsedWrites() {
+		return collapsedWrites.get();
 	}
 
 	/**
@@ -436,7 +585,9 @@ public abstract class VariablesStorage implements Closeable {
 	 * after calling this method.
 	 */
 	protected void clearChangesQueue() {
-		changesQueue.clear();
+		List<SerializedVariable> cleared = new ArrayList<SerializedVariable>();
+		changesQueue.drainTo(cleared);
+		unsavedChanges.addAndGet(-cleared.size());
 	}
 
 	/**
@@ -456,4 +607,23 @@ public abstract class VariablesStorage implements Closeable {
 	 */
 	protected abstract boolean save(String name, @Nullable String type, byte @Nullable [] value);
 
+	/**
+	 * Saves a batch of variables, with at most one change per variable name.
+	 * <p>
+	 * This is called from the {@link #writeThread}.
+	 * The default implementation calls {@link #save(String, String, byte[])}
+	 * for each variable, storages may override this to write the batch at once.
+	 *
+	 * @param variables the variables, in the order they were last changed.
+	 */
+	protected void saveBatch(Collection<SerializedVariable> variables) {
+		for (SerializedVariable variable : variables) {
+			Value value = variable.value;
+			if (value != null)
+				save(variable.name, value.type, value.data);
+			else
+				save(variable.name, null, null);
+		}
+	}
+
 }
@@ -53,6 +53,13 @@ public class BaseSkript {
 		BaseSkript.getScheduler().runTaskTimerAsynchronously(skript, skript::onTick, 0, 1);
 	}
 
+	/**
+	 * Runs the scheduler's tick loop on the primary thread until {@link #shutdown()} is called.
+	 */
+	public static void runTickLoop() {
+		scheduler.runTickLoop();
+	}
+
 	private static void cleanUp() {
 		for (Plugin plugin : pluginManager.getPlugins()) {
 			try {
@@ -12,12 +12,6 @@ public class Main {
 
 		SkriptLogger.LOGGER.log(Level.INFO, "Skript started");
 
-		while (BaseSkript.isRunning()) {
-			try {
-				Thread.sleep(1000);
-			} catch (InterruptedException e) {
-				e.printStackTrace();
-			}
-		}
+		BaseSkript.runTickLoop();
 	}
 }
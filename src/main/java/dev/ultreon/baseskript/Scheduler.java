@@ -55,6 +55,11 @@ public interface Scheduler extends Executor {
 
     <T> Future<T> callSyncMethod(Plugin p, Callable<T> c);
 
+    /**
+     * Queues a task to run on the main thread. All queued tasks run in one batch at the start of the next tick.
+     */
+    void runSync(Runnable task);
+
     void cancelTasks(Plugin skript);
 
 	default void runTaskLater(Skript skript, Runnable task, long delay) {
@@ -1,72 +1,275 @@
 package dev.ultreon.baseskript;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
 
+/**
+ * Schedules tasks on a hashed timing wheel advanced by the tick loop of the primary thread.
+ * <p>
+ * Every tick, the tick loop runs the calls queued by {@link #callSyncMethod(Plugin, Callable)},
+ * then runs the due synchronous tasks in a batch and hands the due asynchronous tasks to a worker pool.
+ * Scheduling and cancelling are O(1): a task is put in the bucket of its deadline tick modulo the wheel size,
+ * and cancelled tasks are dropped when their bucket comes around.
+ */
 public class SchedulerImpl implements Scheduler {
-    private final ScheduledExecutorService executorService = Executors.newSingleThreadScheduledExecutor();
-    private int id;
-    private final Map<Integer, Runnable> tasks = new ConcurrentHashMap<Integer, Runnable>();
-    private final Map<Integer, ScheduledFuture<?>> scheduledTasks = new ConcurrentHashMap<Integer, ScheduledFuture<?>>();
-    private final Map<Runnable, Integer> taskIds = new ConcurrentHashMap<Runnable, Integer>(); // <task, id>
-    private final Map<Plugin, List<Runnable>> pluginTasks = new ConcurrentHashMap<Plugin, List<Runnable>>(); // <plugin, tasks>
-    private final List<Runnable> runningTasks = new CopyOnWriteArrayList<Runnable>();
+    private static final long TICK_NANOS = TimeUnit.MILLISECONDS.toNanos(50);
+
+    /**
+     * The amount of buckets of the wheel, a power of two. Tasks further away than this stay in their bucket for multiple rounds.
+     */
+    private static final int WHEEL_SIZE = 512;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+    /**
+     * Only accessed by the tick loop.
+     */
+    private final List<List<WheelTask>> wheel = new ArrayList<>(WHEEL_SIZE);
+
+    /**
+     * Tasks scheduled since the last tick, moved into the wheel by the tick loop.
+     */
+    private final Queue<WheelTask> pending = new ConcurrentLinkedQueue<>();
+
+    /**
+     * Calls to run on the primary thread at the start of the next tick.
+     */
+    private final Queue<Runnable> mailbox = new ConcurrentLinkedQueue<>();
+
+    private final ExecutorService workers = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(@NotNull Runnable runnable) {
+            Thread thread = new Thread(runnable, "BaseSkript Async Worker #" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    });
+
+    private volatile boolean running = true;
+    private volatile long currentTick;
+    private volatile @Nullable Thread tickThread;
+
+    private volatile long lastTickNanos;
+    private volatile long maxTickNanos;
+    private volatile long totalTickNanos;
+    private volatile long overruns;
+    private volatile int lastTickTasks;
+
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * The tasks that are scheduled or running, by id. A task removes itself once it's done or cancelled.
+     */
+    private final Map<Integer, WheelTask> tasks = new ConcurrentHashMap<Integer, WheelTask>();
+
+    /**
+     * The owner of the tasks of each plugin. {@link #cancelTasks(Plugin)} cancels them all at once by
+     * marking the owner as cancelled, the tasks are then dropped when their bucket comes around.
+     */
+    private final Map<Plugin, Owner> owners = new ConcurrentHashMap<Plugin, Owner>();
+
+    public SchedulerImpl() {
+        for (int i = 0; i < WHEEL_SIZE; i++)
+            wheel.add(new ArrayList<>());
+    }
+
+    /**
+     * Runs the tick loop on the calling thread until {@link #shutdown()} is called.
+     * Ticks are 50 milliseconds apart; a tick that takes longer is counted as an overrun and the next tick starts immediately.
+     */
+    public void runTickLoop() {
+        tickThread = Thread.currentThread();
+        long nextTick = System.nanoTime();
+        while (running) {
+            long start = System.nanoTime();
+            int ran = tick();
+            long duration = System.nanoTime() - start;
+
+            lastTickNanos = duration;
+            totalTickNanos += duration;
+            if (duration > maxTickNanos)
+                maxTickNanos = duration;
+            lastTickTasks = ran;
+
+            nextTick += TICK_NANOS;
+            long remaining;
+            if (nextTick - System.nanoTime() < 0) {
+                overruns++;
+                nextTick = System.nanoTime();
+            }
+            while (running && (remaining = nextTick - System.nanoTime()) > 0)
+                LockSupport.parkNanos(this, remaining);
+        }
+        tickThread = null;
+    }
+
+    /**
+     * Advances the wheel by one tick.
+     *
+     * @return the amount of tasks and calls run or handed to the workers.
+     */
+    private int tick() {
+        long tick = ++currentTick;
+        int ran = 0;
+
+        WheelTask task;
+        while ((task = pending.poll()) != null)
+            insert(task, tick);
+
+        Runnable call;
+        while ((call = mailbox.poll()) != null) {
+            try {
+                call.run();
+            } catch (Throwable t) {
+                BaseSkript.LOGGER.error("A task queued for the main thread threw an exception", t);
+            }
+            ran++;
+        }
+
+        List<WheelTask> bucket = wheel.get((int) (tick & WHEEL_MASK));
+        List<WheelTask> due = null;
+        int kept = 0;
+        for (int i = 0; i < bucket.size(); i++) {
+            WheelTask candidate = bucket.get(i);
+            if (candidate.isDead()) {
+                candidate.cancel(false);
+                continue;
+            }
+            if (candidate.deadline > tick) { // due in a later round
+                bucket.set(kept++, candidate);
+                continue;
+            }
+            if (due == null)
+                due = new ArrayList<>();
+            due.add(candidate);
+        }
+        bucket.subList(kept, bucket.size()).clear();
+
+        if (due != null) {
+            for (WheelTask dueTask : due) {
+                if (dueTask.sync) {
+                    dueTask.runSync(tick);
+                } else {
+                    try {
+                        workers.execute(dueTask::runAsync);
+                    } catch (RejectedExecutionException e) {
+                        dueTask.cancel(false); // shutting down
+                    }
+                }
+                ran++;
+            }
+        }
+        return ran;
+    }
+
+    /**
+     * Puts a task into the bucket of its deadline, or of the current tick if its deadline already passed.
+     */
+    private void insert(WheelTask task, long tick) {
+        if (task.isDead()) {
+            task.cancel(false);
+            return;
+        }
+        if (task.deadline < tick)
+            task.deadline = tick;
+        wheel.get((int) (task.deadline & WHEEL_MASK)).add(task);
+    }
+
+    private WheelTask submit(@Nullable Plugin plugin, Runnable task, long delay, long period, boolean sync, boolean fixedDelay) {
+        Owner owner = plugin == null ? null : owners.computeIfAbsent(plugin, Owner::new);
+        WheelTask wheelTask = new WheelTask(nextId.incrementAndGet(), owner, task, currentTick + Math.max(delay, 0), period, sync, fixedDelay);
+        tasks.put(wheelTask.id, wheelTask);
+        pending.add(wheelTask);
+        return wheelTask;
+    }
 
     @Override
     public ScheduledFuture<?> schedule(long delay, Runnable task) {
-        return executorService.schedule(() -> {
-			while (BaseSkript.isStarting()) {
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-			}
-            runningTasks.add(task);
-            task.run();
-            runningTasks.remove(task);
-        }, delay * 50, TimeUnit.MILLISECONDS);
+        return submit(null, task, delay, 0, false, false);
     }
 
     @Override
     public ScheduledFuture<?> scheduleAtFixedRate(long initialDelay, long period, Runnable task) {
-        return executorService.scheduleAtFixedRate(() -> {
-			while (BaseSkript.isStarting()) {
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
-				}
-			}
-            runningTasks.add(task);
-            task.run();
-            runningTasks.remove(task);
-        }, initialDelay * 50, period * 50, TimeUnit.MILLISECONDS);
+        return submit(null, task, initialDelay, Math.max(period, 1), false, false);
     }
 
     @Override
     public ScheduledFuture<?> scheduleWithFixedDelay(long initialDelay, long delay, Runnable task) {
-        return executorService.scheduleWithFixedDelay(() -> {
-            runningTasks.add(task);
-            task.run();
-            runningTasks.remove(task);
-        }, initialDelay * 50, delay * 50, TimeUnit.MILLISECONDS);
+        return submit(null, task, initialDelay, Math.max(delay, 1), false, true);
     }
 
     @Override
     public void execute(@NotNull Runnable task) {
-        executorService.execute(task);
+        workers.execute(task);
     }
 
     public void shutdown() throws InterruptedException {
-        executorService.shutdown();
+        running = false;
+        workers.shutdown();
+        Thread thread = tickThread;
+        if (thread != null)
+            LockSupport.unpark(thread);
     }
 
     public void shutdownNow() {
-        executorService.shutdownNow();
+        running = false;
+        workers.shutdownNow();
+        Thread thread = tickThread;
+        if (thread != null)
+            LockSupport.unpark(thread);
+    }
+
+    /**
+     * @return the amount of ticks since the tick loop started.
+     */
+    public long getCurrentTick() {
+        return currentTick;
+    }
+
+    /**
+     * @return how long the last tick took, in nanoseconds.
+     */
+    public long getLastTickDuration() {
+        return lastTickNanos;
+    }
+
+    /**
+     * @return how long a tick took on average, in nanoseconds.
+     */
+    public long getAverageTickDuration() {
+        long ticks = currentTick;
+        return ticks == 0 ? 0 : totalTickNanos / ticks;
+    }
+
+    /**
+     * @return the longest a tick took, in nanoseconds.
+     */
+    public long getMaxTickDuration() {
+        return maxTickNanos;
+    }
+
+    /**
+     * @return the amount of ticks that took longer than 50 milliseconds.
+     */
+    public long getOverruns() {
+        return overruns;
+    }
+
+    /**
+     * @return the amount of tasks and calls the last tick ran or handed to the workers.
+     */
+    public int getTasksLastTick() {
+        return lastTickTasks;
     }
 
     @Override
@@ -74,75 +277,233 @@ public class SchedulerImpl implements Scheduler {
         return BaseSkript.getInstance();
     }
 
+    /**
+     * Takes a snapshot of the tasks that are currently scheduled or running.
+     *
+     * @return the live tasks, ordered by id.
+     */
+    public List<TaskInfo> getTasks() {
+        List<TaskInfo> snapshot = new ArrayList<>(tasks.size());
+        long tick = currentTick;
+        for (WheelTask task : tasks.values()) {
+            if (!task.isDead())
+                snapshot.add(new TaskInfo(task, tick));
+        }
+        snapshot.sort((a, b) -> Integer.compare(a.getId(), b.getId()));
+        return Collections.unmodifiableList(snapshot);
+    }
+
     @Override
     public int runTaskLaterAsynchronously(Plugin plugin, Runnable task, long delay) {
-        this.schedule(delay, task);
-        int i = id++;
-        this.tasks.put(i, task);
-        this.pluginTasks.computeIfAbsent(plugin, k -> new CopyOnWriteArrayList<Runnable>()).add(task);
-        this.taskIds.put(task, i);
-        return i;
+        return submit(plugin, task, delay, 0, false, false).id;
     }
 
     @Override
     public int scheduleSyncDelayedTask(Plugin plugin, Runnable task, long delay) {
-        this.schedule(delay, task);
-        int i = id++;
-        this.tasks.put(i, task);
-        this.pluginTasks.computeIfAbsent(plugin, k -> new CopyOnWriteArrayList<Runnable>()).add(task);
-        this.taskIds.put(task, i);
-        return i;
+        return submit(plugin, task, delay, 0, true, false).id;
     }
 
     @Override
     public int runTaskTimerAsynchronously(Plugin plugin, Runnable task, long delay, long period) {
-        this.scheduleAtFixedRate(delay, period, task);
-        int i = id++;
-        this.tasks.put(i, task);
-        this.pluginTasks.computeIfAbsent(plugin, k -> new CopyOnWriteArrayList<Runnable>()).add(task);
-        this.taskIds.put(task, i);
-        return i;
+        return submit(plugin, task, delay, Math.max(period, 1), false, false).id;
     }
 
     @Override
     public int scheduleSyncRepeatingTask(Plugin plugin, Runnable task, long delay, long period) {
-        this.scheduleAtFixedRate(delay, period, task);
-        int i = id++;
-        this.tasks.put(i, task);
-        this.pluginTasks.computeIfAbsent(plugin, k -> new CopyOnWriteArrayList<Runnable>()).add(task);
-        this.taskIds.put(task, i);
-        return i;
+        return submit(plugin, task, delay, Math.max(period, 1), true, false).id;
     }
 
     @Override
     public boolean isQueued(int taskID) {
-        return scheduledTasks.containsKey(taskID);
+        WheelTask task = tasks.get(taskID);
+        // a repeating task stays queued while it runs
+        return task != null && !task.isDead() && (task.period != 0 || !task.running);
     }
 
     @Override
     public void cancelTask(int taskID) {
-        if (scheduledTasks.containsKey(taskID)) {
-            scheduledTasks.get(taskID).cancel(false);
-        }
+        WheelTask task = tasks.get(taskID);
+        if (task != null)
+            task.cancel(false);
     }
 
     @Override
     public boolean isCurrentlyRunning(int taskID) {
-        return runningTasks.contains(tasks.get(taskID));
+        WheelTask task = tasks.get(taskID);
+        return task != null && task.running;
     }
 
     @Override
     public <T> Future<T> callSyncMethod(Plugin p, Callable<T> c) {
-        return executorService.submit(c);
+        FutureTask<T> future = new FutureTask<>(c);
+        if (Thread.currentThread() == tickThread)
+            future.run();
+        else
+            mailbox.add(future);
+        return future;
+    }
+
+    @Override
+    public void runSync(Runnable task) {
+        mailbox.add(task);
     }
 
     @Override
     public void cancelTasks(Plugin skript) {
-        List<Runnable> tasks = this.pluginTasks.get(skript);
-        if (tasks != null) {
-            for (Runnable task : tasks) {
-                this.cancelTask(taskIds.get(task));
+        Owner owner = owners.remove(skript);
+        if (owner != null)
+            owner.cancelled = true;
+    }
+
+    private static final class Owner {
+        private final Plugin plugin;
+        private volatile boolean cancelled;
+
+        Owner(Plugin plugin) {
+            this.plugin = plugin;
+        }
+    }
+
+    /**
+     * A snapshot of a scheduled task, see {@link #getTasks()}.
+     */
+    public static final class TaskInfo {
+        private final int id;
+        private final @Nullable Plugin plugin;
+        private final boolean sync;
+        private final long period;
+        private final long nextRun;
+        private final boolean running;
+
+        private TaskInfo(WheelTask task, long tick) {
+            this.id = task.id;
+            this.plugin = task.owner == null ? null : task.owner.plugin;
+            this.sync = task.sync;
+            this.period = task.period;
+            this.nextRun = Math.max(task.deadline - tick, 0);
+            this.running = task.running;
+        }
+
+        public int getId() {
+            return id;
+        }
+
+        /**
+         * @return the plugin that owns the task, or {@code null} if it was scheduled without one.
+         */
+        public @Nullable Plugin getPlugin() {
+            return plugin;
+        }
+
+        public boolean isSync() {
+            return sync;
+        }
+
+        /**
+         * @return the period in ticks, or 0 if the task only runs once.
+         */
+        public long getPeriod() {
+            return period;
+        }
+
+        /**
+         * @return the amount of ticks until the task runs next, 0 if it's due or running.
+         */
+        public long getNextRun() {
+            return nextRun;
+        }
+
+        public boolean isRunning() {
+            return running;
+        }
+
+        @Override
+        public String toString() {
+            return "TaskInfo[id=" + id + ", plugin=" + (plugin == null ? null : plugin.getName()) + ", sync=" + sync
+                + ", period=" + period + ", nextRun=" + nextRun + ", running=" + running + "]";
+        }
+    }
+
+    /**
+     * A task in the wheel. Its deadline is only changed by the tick loop, or by the worker running it while it's out of the wheel.
+     */
+    private final class WheelTask extends FutureTask<Object> implements ScheduledFuture<Object> {
+        private final int id;
+        private final @Nullable Owner owner;
+        private final long period;
+        private final boolean sync;
+        private final boolean fixedDelay;
+        private volatile long deadline;
+        private volatile boolean running;
+
+        WheelTask(int id, @Nullable Owner owner, Runnable task, long deadline, long period, boolean sync, boolean fixedDelay) {
+            super(task, null);
+            this.id = id;
+            this.owner = owner;
+            this.deadline = deadline;
+            this.period = period;
+            this.sync = sync;
+            this.fixedDelay = fixedDelay;
+        }
+
+        void runSync(long tick) {
+            if (execute())
+                insert(next(tick), tick + 1);
+        }
+
+        void runAsync() {
+            if (execute())
+                pending.add(next(currentTick));
+        }
+
+        /**
+         * @return whether the task should run again.
+         */
+        private boolean execute() {
+            running = true;
+            try {
+                if (period == 0) {
+                    run();
+                    return false;
+                }
+                return runAndReset();
+            } finally {
+                running = false;
             }
         }
+
+        /**
+         * @return whether this task or all tasks of its plugin were cancelled.
+         */
+        boolean isDead() {
+            return isCancelled() || owner != null && owner.cancelled;
+        }
+
+        @Override
+        protected void done() {
+            tasks.remove(id);
+        }
+
+        private WheelTask next(long tick) {
+            // a fixed rate task that fell behind doesn't run multiple times to catch up
+            deadline = fixedDelay ? tick + period : Math.max(deadline + period, tick + 1);
+            return this;
+        }
+
+        @Override
+        protected void setException(Throwable t) {
+            BaseSkript.LOGGER.error("A scheduled task threw an exception", t);
+            super.setException(t);
+        }
+
+        @Override
+        public long getDelay(@NotNull TimeUnit unit) {
+            return unit.convert((deadline - currentTick) * TICK_NANOS, TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(@NotNull Delayed other) {
+            return Long.compare(getDelay(TimeUnit.NANOSECONDS), other.getDelay(TimeUnit.NANOSECONDS));
+        }
     }
 }
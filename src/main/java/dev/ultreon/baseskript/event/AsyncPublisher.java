@@ -0,0 +1,149 @@
+package dev.ultreon.baseskript.event;
+
+import dev.ultreon.baseskript.BaseSkript;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Delivers the events of {@link EventBus#publishAsync(Object)} and {@link EventBus#publishBatch(Collection)}.
+ * <p>
+ * Events are put in a bounded queue, and dropped if it's full. A single thread drains the queue in batches
+ * and hands the deliveries to a fixed set of single-threaded lanes. A subscriber always runs on the same lane,
+ * so it receives events in the order they were published.
+ */
+final class AsyncPublisher {
+	private static final int BATCH_SIZE = 256;
+
+	/**
+	 * The amount of batches a lane may have waiting before the draining thread blocks on it.
+	 */
+	private static final int LANE_BACKLOG = 16;
+
+	private final EventBus bus;
+	private final ArrayBlockingQueue<Object> queue;
+	private final ThreadPoolExecutor[] lanes;
+	private final AtomicLong dropped = new AtomicLong();
+
+	AsyncPublisher(EventBus bus, int capacity, int workers) {
+		this.bus = bus;
+		this.queue = new ArrayBlockingQueue<>(capacity);
+		this.lanes = new ThreadPoolExecutor[workers];
+		for (int i = 0; i < workers; i++) {
+			String name = "EventBus Async Worker " + (i + 1);
+			// blocking instead of rejecting when the lane is behind keeps the queue as the only place events pile up
+			this.lanes[i] = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(LANE_BACKLOG),
+				runnable -> daemon(runnable, name),
+				(runnable, executor) -> {
+					try {
+						executor.getQueue().put(runnable);
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+				});
+		}
+
+		daemon(this::drain, "EventBus Async Publisher").start();
+	}
+
+	private static Thread daemon(Runnable runnable, String name) {
+		Thread thread = new Thread(runnable, name);
+		thread.setDaemon(true);
+		return thread;
+	}
+
+	boolean offer(Object event) {
+		if (this.queue.offer(event)) {
+			return true;
+		}
+		this.dropped.incrementAndGet();
+		return false;
+	}
+
+	int offerAll(Collection<?> events) {
+		int accepted = 0;
+		for (Object event : events) {
+			if (this.offer(event)) {
+				accepted++;
+			}
+		}
+		return accepted;
+	}
+
+	int getQueueDepth() {
+		return this.queue.size();
+	}
+
+	long getDropCount() {
+		return this.dropped.get();
+	}
+
+	private void drain() {
+		List<Object> batch = new ArrayList<>(BATCH_SIZE);
+		while (true) {
+			try {
+				batch.add(this.queue.take());
+			} catch (InterruptedException e) {
+				return;
+			}
+			this.queue.drainTo(batch, BATCH_SIZE - 1);
+
+			try {
+				this.dispatch(batch);
+			} catch (Throwable t) {
+				BaseSkript.LOGGER.error("Failed to dispatch a batch of asynchronously published events", t);
+			}
+			batch.clear();
+		}
+	}
+
+	private void dispatch(List<Object> batch) {
+		List<List<Delivery>> perLane = new ArrayList<>(Collections.nCopies(this.lanes.length, (List<Delivery>) null));
+		for (Object event : batch) {
+			for (Subscriber<?> subscriber : this.bus.getSubscribers(event.getClass())) {
+				int lane = (System.identityHashCode(subscriber) & Integer.MAX_VALUE) % this.lanes.length;
+				if (perLane.get(lane) == null) {
+					perLane.set(lane, new ArrayList<>());
+				}
+				perLane.get(lane).add(new Delivery(subscriber, event));
+			}
+		}
+
+		for (int i = 0; i < perLane.size(); i++) {
+			List<Delivery> deliveries = perLane.get(i);
+			if (deliveries != null) {
+				this.lanes[i].execute(() -> deliver(deliveries));
+			}
+		}
+	}
+
+	private static void deliver(List<Delivery> deliveries) {
+		for (Delivery delivery : deliveries) {
+			long start = System.nanoTime();
+			try {
+				delivery.subscriber.dispatch(delivery.event);
+			} catch (Throwable t) {
+				// unlike publish, a failing subscriber doesn't stop the others
+				BaseSkript.LOGGER.error("Event subscriber failed to handle " + delivery.event, t);
+			} finally {
+				delivery.subscriber.recordAsyncLatency(System.nanoTime() - start);
+			}
+		}
+	}
+
+	private static final class Delivery {
+		final Subscriber<?> subscriber;
+		final Object event;
+
+		Delivery(Subscriber<?> subscriber, Object event) {
+			this.subscriber = subscriber;
+			this.event = event;
+		}
+	}
+}
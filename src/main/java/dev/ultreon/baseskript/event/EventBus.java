@@ -7,12 +7,22 @@ import com.ultreon.libs.events.v0.SubscribeEvent;
 import dev.ultreon.baseskript.BaseSkript;
 import org.jetbrains.annotations.Nullable;
 
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArraySet;
 import java.util.function.Consumer;
@@ -40,6 +50,24 @@ public class EventBus {
 	private final Map<Class<?>, CopyOnWriteArraySet<Subscriber<?>>> event2subscribers = new ConcurrentHashMap<>();
 	private final Map<Subscriber<?>, CopyOnWriteArraySet<Class<?>>> subscriber2events = new ConcurrentHashMap<>();
 
+	/**
+	 * The subscribers to call for each concrete event class, see {@link #getSubscribers(Class)}.
+	 * Replaced by an empty map after {@link #event2subscribers} changes.
+	 */
+	private volatile Map<Class<?>, Subscriber<?>[]> dispatch = new ConcurrentHashMap<>();
+
+	private static final Subscriber<?>[] NO_SUBSCRIBERS = new Subscriber<?>[0];
+
+	private static final int ASYNC_CAPACITY = 8192;
+	private static final int ASYNC_WORKERS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+
+	/**
+	 * Created on the first asynchronous publish.
+	 */
+	private volatile @Nullable AsyncPublisher asyncPublisher;
+
+	private static final Comparator<Subscriber<?>> PRIORITY_ORDER = Comparator.comparingInt(subscriber -> subscriber.getPriority().ordinal());
+
 	private static boolean isSubscribing(Method method) {
 //        LogManager.getLogger("Subscribe-Check").info(method.getDeclaringClass().getName() + "." + method.getName());
 
@@ -57,18 +85,14 @@ public class EventBus {
 
 	@SuppressWarnings("UnusedReturnValue")
 	public <E> boolean publish(E event) {
-		if (!this.event2subscribers.containsKey(event.getClass())) {
+		Subscriber<?>[] subscribers = this.getSubscribers(event.getClass());
+		if (subscribers.length == 0) {
 			return false;
 		}
 
-		CopyOnWriteArraySet<Subscriber<?>> methods = this.event2subscribers.get(event.getClass());
-		for (Subscriber<?> subscriber : methods) {
-			if (subscriber == null) {
-				continue;
-			}
-
+		for (Subscriber<?> subscriber : subscribers) {
 			try {
-				subscriber.handle0(event);
+				subscriber.dispatch(event);
 			} catch (Throwable t) {
 				throw new RuntimeException(t);
 			}
@@ -77,6 +101,111 @@ public class EventBus {
 		return event instanceof ICancellable && ((ICancellable) event).isCancelled();
 	}
 
+	/**
+	 * Publishes an event without waiting for its subscribers, for fire-and-forget events.
+	 * Subscribers run on a worker thread and receive events in the order they were published,
+	 * and exceptions thrown by a subscriber are logged instead of stopping the other subscribers.
+	 * Since subscribers may run concurrently, cancelling such an event isn't reliable.
+	 *
+	 * @param event the event to publish.
+	 * @return whether the event was queued, or {@code false} if it was dropped because the queue is full.
+	 * @see #getAsyncDropCount()
+	 */
+	public boolean publishAsync(Object event) {
+		return this.getAsyncPublisher().offer(event);
+	}
+
+	/**
+	 * Publishes several events like {@link #publishAsync(Object)}, in the order of the given collection.
+	 *
+	 * @param events the events to publish.
+	 * @return the amount of events that were queued, the others were dropped because the queue is full.
+	 */
+	public int publishBatch(Collection<?> events) {
+		return this.getAsyncPublisher().offerAll(events);
+	}
+
+	/**
+	 * @return the amount of asynchronously published events that are waiting to be dispatched.
+	 */
+	public int getAsyncQueueDepth() {
+		AsyncPublisher publisher = this.asyncPublisher;
+		return publisher == null ? 0 : publisher.getQueueDepth();
+	}
+
+	/**
+	 * @return the amount of asynchronously published events that were dropped because the queue was full.
+	 */
+	public long getAsyncDropCount() {
+		AsyncPublisher publisher = this.asyncPublisher;
+		return publisher == null ? 0 : publisher.getDropCount();
+	}
+
+	private AsyncPublisher getAsyncPublisher() {
+		AsyncPublisher publisher = this.asyncPublisher;
+		if (publisher == null) {
+			synchronized (this) {
+				publisher = this.asyncPublisher;
+				if (publisher == null) {
+					publisher = new AsyncPublisher(this, ASYNC_CAPACITY, ASYNC_WORKERS);
+					this.asyncPublisher = publisher;
+				}
+			}
+		}
+		return publisher;
+	}
+
+	/**
+	 * Gets the subscribers of the given event class and all of its supertypes, sorted by {@link EventPriority}.
+	 * The result is computed once per event class until the subscriptions change.
+	 *
+	 * @param eventClass the concrete class of a published event.
+	 * @return the subscribers to call, in order.
+	 */
+	Subscriber<?>[] getSubscribers(Class<?> eventClass) {
+		Map<Class<?>, Subscriber<?>[]> dispatch = this.dispatch;
+		Subscriber<?>[] subscribers = dispatch.get(eventClass);
+		if (subscribers != null) {
+			return subscribers;
+		}
+
+		Set<Class<?>> types = new LinkedHashSet<>();
+		collectTypes(eventClass, types);
+
+		List<Subscriber<?>> list = new ArrayList<>();
+		for (Class<?> type : types) {
+			CopyOnWriteArraySet<Subscriber<?>> set = this.event2subscribers.get(type);
+			if (set != null) {
+				list.addAll(set);
+			}
+		}
+
+		subscribers = list.isEmpty() ? NO_SUBSCRIBERS : list.toArray(NO_SUBSCRIBERS);
+		Arrays.sort(subscribers, PRIORITY_ORDER); // stable, so subscription order is kept within a priority
+		dispatch.put(eventClass, subscribers);
+		return subscribers;
+	}
+
+	private static void collectTypes(Class<?> type, Set<Class<?>> types) {
+		if (!types.add(type)) {
+			return;
+		}
+		for (Class<?> anInterface : type.getInterfaces()) {
+			collectTypes(anInterface, types);
+		}
+		Class<?> superclass = type.getSuperclass();
+		if (superclass != null) {
+			collectTypes(superclass, types);
+		}
+	}
+
+	/**
+	 * Drops the cached dispatch arrays. Must be called after {@link #event2subscribers} was changed.
+	 */
+	private void invalidateDispatch() {
+		this.dispatch = new ConcurrentHashMap<>();
+	}
+
 	public void subscribe(Class<?> clazz) {
 		this.loopDeclaredMethods(clazz, (method) -> {
 			// Get types and values.
@@ -159,11 +288,13 @@ public class EventBus {
 			}
 		};
 		this.event2subscribers.computeIfAbsent(eventClass, k -> new CopyOnWriteArraySet<>()).add(e);
+		this.invalidateDispatch();
 
 		return new Subscription() {
 			@Override
 			protected void onRemove() {
 				event2subscribers.get(eventClass).remove(e);
+				invalidateDispatch();
 				subscriber2events.get(e).remove(eventClass);
 			}
 
@@ -207,9 +338,10 @@ public class EventBus {
 	}
 
 	protected void addHandlers(Class<?> event, @Nullable Object obj, Method method) {
+		Consumer<Object> invoker = createInvoker(obj, method);
 		Consumer<Object> subscriberFunc = o -> {
 			try {
-				method.invoke(obj, o);
+				invoker.accept(o);
 			} catch (Throwable t) {
 				BaseSkript.LOGGER.error("Failed to invoke event subscriber", t);
 			}
@@ -240,12 +372,14 @@ public class EventBus {
 
 		this.event2subscribers.get(event).add(subscriber);
 		this.subscriber2events.get(subscriber).add(event);
+		this.invalidateDispatch();
 
 		if (obj == null) {
 			this.class2subscriptions.computeIfAbsent(event, k -> new CopyOnWriteArraySet<>()).add(new Subscription() {
 				@Override
 				protected void onRemove() {
 					event2subscribers.get(event).remove(subscriber);
+					invalidateDispatch();
 					subscriber2events.get(subscriber).remove(event);
 				}
 
@@ -259,6 +393,7 @@ public class EventBus {
 				@Override
 				protected void onRemove() {
 					event2subscribers.get(event).remove(subscriber);
+					invalidateDispatch();
 					subscriber2events.get(subscriber).remove(event);
 				}
 
@@ -270,6 +405,75 @@ public class EventBus {
 		}
 	}
 
+	/**
+	 * Binds a direct invoker for the given subscriber method, so that publishing doesn't go through reflection.
+	 * A class is generated through {@link LambdaMetafactory} if this class can link against the method,
+	 * otherwise the method is called through a {@link MethodHandle}.
+	 *
+	 * @param obj the instance to invoke the method on, or {@code null} if the method is static.
+	 * @param method the subscriber method, already made accessible.
+	 * @return a consumer calling the method with the event, throwing whatever the method throws.
+	 */
+	static Consumer<Object> createInvoker(@Nullable Object obj, Method method) {
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		MethodHandle handle;
+		try {
+			handle = lookup.unreflect(method);
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Cannot access event subscriber " + method, e);
+		}
+
+		if (isLinkable(method)) {
+			try {
+				MethodType invokedType = obj == null
+					? MethodType.methodType(Consumer.class)
+					: MethodType.methodType(Consumer.class, method.getDeclaringClass());
+				CallSite site = LambdaMetafactory.metafactory(lookup, "accept", invokedType,
+					MethodType.methodType(void.class, Object.class), handle,
+					MethodType.methodType(void.class, method.getParameterTypes()[0]));
+				return obj == null
+					? (Consumer<Object>) site.getTarget().invoke()
+					: (Consumer<Object>) site.getTarget().invoke(obj);
+			} catch (Throwable t) {
+				BaseSkript.LOGGER.debug("Falling back to a method handle for event subscriber " + method + ": " + t);
+			}
+		}
+
+		MethodHandle invoker = (obj == null ? handle : handle.bindTo(obj))
+			.asType(MethodType.methodType(void.class, Object.class));
+		return o -> {
+			try {
+				invoker.invokeExact(o);
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable t) {
+				throw new RuntimeException(t);
+			}
+		};
+	}
+
+	/**
+	 * Checks whether a class generated next to this one can call the given method directly,
+	 * that is whether the method and the types in its signature are public and visible from this class loader.
+	 */
+	static boolean isLinkable(Method method) {
+		if (!Modifier.isPublic(method.getModifiers()))
+			return false;
+		for (Class<?> type : new Class<?>[] {method.getDeclaringClass(), method.getParameterTypes()[0]}) {
+			for (Class<?> c = type; c != null; c = c.getEnclosingClass()) {
+				if (!Modifier.isPublic(c.getModifiers()))
+					return false;
+			}
+			try {
+				if (Class.forName(type.getName(), false, EventBus.class.getClassLoader()) != type)
+					return false;
+			} catch (ClassNotFoundException e) {
+				return false;
+			}
+		}
+		return true;
+	}
+
 	public static abstract class Subscription {
 		protected abstract void onRemove();
 
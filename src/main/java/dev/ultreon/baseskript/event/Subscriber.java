@@ -3,7 +3,13 @@ package dev.ultreon.baseskript.event;
 import com.ultreon.libs.events.v0.EventPriority;
 import com.ultreon.libs.events.v0.ICancellable;
 
+import java.util.concurrent.atomic.LongAdder;
+
 public abstract class Subscriber<T extends Object> {
+	private final LongAdder asyncHandled = new LongAdder();
+	private final LongAdder asyncNanos = new LongAdder();
+	private volatile long asyncMaxNanos;
+
     public abstract void handle(T e);
 
     public abstract EventPriority getPriority();
@@ -20,4 +26,43 @@ public abstract class Subscriber<T extends Object> {
 
 		this.handle((T) event);
 	}
+
+	/**
+	 * Handles an event that is already known to be of this subscriber's {@link #getType() type}.
+	 */
+	@SuppressWarnings("unchecked")
+	void dispatch(Object event) {
+		if (event instanceof ICancellable && ((ICancellable) event).isCancelled()) return;
+
+		this.handle((T) event);
+	}
+
+	void recordAsyncLatency(long nanos) {
+		this.asyncHandled.increment();
+		this.asyncNanos.add(nanos);
+		if (nanos > this.asyncMaxNanos) // only written by the subscriber's own worker
+			this.asyncMaxNanos = nanos;
+	}
+
+	/**
+	 * @return the amount of asynchronously published events this subscriber handled.
+	 */
+	public long getAsyncHandled() {
+		return this.asyncHandled.sum();
+	}
+
+	/**
+	 * @return the average time in nanoseconds this subscriber took to handle an asynchronously published event.
+	 */
+	public long getAsyncAverageLatency() {
+		long handled = this.asyncHandled.sum();
+		return handled == 0 ? 0 : this.asyncNanos.sum() / handled;
+	}
+
+	/**
+	 * @return the longest time in nanoseconds this subscriber took to handle an asynchronously published event.
+	 */
+	public long getAsyncMaxLatency() {
+		return this.asyncMaxNanos;
+	}
 }
@@ -0,0 +1,154 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript;
+
+import ch.njol.skript.ScriptCache.Hint;
+import ch.njol.skript.ScriptCache.ScriptHints;
+import ch.njol.skript.lang.Expression;
+import ch.njol.skript.lang.SkriptParser.ParseResult;
+import ch.njol.skript.lang.SyntaxElement;
+import ch.njol.skript.lang.SyntaxElementInfo;
+import ch.njol.skript.lang.parser.ParserInstance;
+import ch.njol.util.Kleenean;
+import ch.njol.util.NonNullPair;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that {@link ScriptCache} parses a line as its hint, and falls back to parsing it normally
+ * when the hint is outdated, recording the syntax element the line matched instead.
+ */
+public class ScriptCacheTest {
+
+	public static class First extends TestElement {}
+
+	public static class Second extends TestElement {}
+
+	private final SyntaxElementInfo<?>[] infos = {
+		new SyntaxElementInfo<>(new String[] {"first"}, First.class, First.class.getName()),
+		new SyntaxElementInfo<>(new String[] {"second", "second again"}, Second.class, Second.class.getName()),
+	};
+
+	@After
+	public void tearDown() {
+		ParserInstance.get().setLastMatch(null);
+	}
+
+	@Test
+	public void testHint() {
+		Hint hint = new Hint(1, 0);
+		ScriptHints hints = hints(hint);
+		Second second = new Second();
+
+		SyntaxElement element = ScriptCache.parse(hints, 1, infos, (info, pattern) -> {
+			assertSame(infos[1], info);
+			assertEquals(0, (int) pattern);
+			return second;
+		}, () -> {
+			fail("Parsed normally although the hint matched");
+			return null;
+		});
+		assertSame(second, element);
+		assertSame(hint, hints.recorded.get(1));
+	}
+
+	@Test
+	public void testOutdatedHint() {
+		ScriptHints hints = hints(new Hint(0, 0));
+		Second second = new Second();
+
+		SyntaxElement element = ScriptCache.parse(hints, 1, infos, (info, pattern) -> null, () -> matched(1, 1, second));
+		assertSame(second, element);
+		assertHint(hints.recorded.get(1), 1, 1);
+	}
+
+	@Test
+	public void testHintOfRemovedElement() {
+		ScriptHints hints = hints(new Hint(infos.length, 0));
+		First first = new First();
+
+		SyntaxElement element = ScriptCache.parse(hints, 1, infos, (info, pattern) -> {
+			fail("Used a hint of a syntax element that doesn't exist anymore");
+			return null;
+		}, () -> matched(0, 0, first));
+		assertSame(first, element);
+		assertHint(hints.recorded.get(1), 0, 0);
+	}
+
+	@Test
+	public void testNoHint() {
+		ScriptHints hints = new ScriptHints("hash", Collections.emptyMap());
+		First first = new First();
+
+		assertSame(first, ScriptCache.parse(hints, 1, infos, (info, pattern) -> null, () -> matched(0, 0, first)));
+		assertHint(hints.recorded.get(1), 0, 0);
+
+		// A line that didn't match a syntax element, e.g. a function call, isn't recorded
+		ParserInstance.get().setLastMatch(null);
+		assertNull(ScriptCache.parse(hints, 2, infos, (info, pattern) -> null, () -> null));
+		assertFalse(hints.recorded.containsKey(2));
+
+		// ..., nor is a line that matched a syntax element inside of another one
+		Second second = new Second();
+		assertSame(second, ScriptCache.parse(hints, 3, infos, (info, pattern) -> null, () -> matched(0, 0, second)));
+		assertFalse(hints.recorded.containsKey(3));
+	}
+
+	/**
+	 * Acts like a normal parse that matched the given pattern of the given syntax element.
+	 */
+	private <T extends SyntaxElement> T matched(int element, int pattern, T result) {
+		assertNull("The last match wasn't reset before parsing normally", ParserInstance.get().getLastMatch());
+		ParserInstance.get().setLastMatch(new NonNullPair<>(infos[element], pattern));
+		return result;
+	}
+
+	private static ScriptHints hints(Hint hint) {
+		Map<Integer, Hint> previous = new HashMap<>();
+		previous.put(1, hint);
+		return new ScriptHints("hash", previous);
+	}
+
+	private static void assertHint(Hint hint, int element, int pattern) {
+		assertNotNull(hint);
+		assertEquals(element, hint.element);
+		assertEquals(pattern, hint.pattern);
+	}
+
+	private static abstract class TestElement implements SyntaxElement {
+
+		@Override
+		public boolean init(Expression<?>[] expressions, int matchedPattern, Kleenean isDelayed, ParseResult parseResult) {
+			return true;
+		}
+
+	}
+
+}
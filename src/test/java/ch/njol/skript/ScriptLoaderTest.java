@@ -0,0 +1,173 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript;
+
+import ch.njol.skript.lang.Literal;
+import ch.njol.skript.lang.SkriptParser.ParseResult;
+import ch.njol.util.NonNullPair;
+import ch.njol.util.OpenCloseable;
+import org.jetbrains.annotations.Nullable;
+import org.junit.After;
+import org.junit.Test;
+import org.skriptlang.skript.lang.entry.EntryContainer;
+import org.skriptlang.skript.lang.script.Script;
+import org.skriptlang.skript.lang.structure.Structure;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks how {@link ScriptLoader} splits structures into groups that may be loaded in parallel,
+ * and that it waits for all of a group before going on.
+ */
+public class ScriptLoaderTest {
+
+	private static final Structure.Priority FIRST = new Structure.Priority(100), SECOND = new Structure.Priority(200);
+
+	@After
+	public void tearDown() {
+		ScriptLoader.setAsyncLoaderSize(0);
+	}
+
+	@Test
+	public void testGroupByPriority() {
+		NonNullPair<Script, List<Structure>> a = script(), b = script();
+		Pair a1 = pair(a, FIRST), b1 = pair(b, FIRST), a2 = pair(a, FIRST);
+		Pair b3 = pair(b, SECOND), a3 = pair(a, SECOND), b4 = pair(b, SECOND);
+
+		List<List<List<Pair>>> groups = ScriptLoader.groupByPriority(Arrays.asList(a1, b1, a2, b3, a3, b4));
+		assertEquals(Arrays.asList(
+			Arrays.asList(Arrays.asList(a1, a2), Collections.singletonList(b1)),
+			Arrays.asList(Arrays.asList(b3, b4), Collections.singletonList(a3))
+		), groups);
+
+		assertEquals(Collections.emptyList(), ScriptLoader.groupByPriority(Collections.<Pair>emptyList()));
+	}
+
+	@Test
+	public void testSequential() {
+		List<Integer> handled = new ArrayList<>();
+		Thread thread = Thread.currentThread();
+		ScriptLoader.forEachParallel(Arrays.asList(1, 2, 3, 4), element -> {
+			assertEquals(thread, Thread.currentThread());
+			handled.add(element);
+		}, OpenCloseable.EMPTY);
+		assertEquals(Arrays.asList(1, 2, 3, 4), handled);
+	}
+
+	@Test
+	public void testParallel() {
+		ScriptLoader.setAsyncLoaderSize(4);
+
+		// Both of the first elements only finish once the other one started, so they must be handled at the same time
+		CountDownLatch started = new CountDownLatch(2);
+		Set<Integer> handled = ConcurrentHashMap.newKeySet();
+		AtomicInteger opened = new AtomicInteger(), closed = new AtomicInteger();
+		OpenCloseable openCloseable = new OpenCloseable() {
+			@Override
+			public void open() {
+				opened.incrementAndGet();
+			}
+
+			@Override
+			public void close() {
+				closed.incrementAndGet();
+			}
+		};
+
+		List<Integer> elements = Arrays.asList(1, 2, 3, 4, 5, 6, 7, 8);
+		ScriptLoader.forEachParallel(elements, element -> {
+			if (element <= 2) {
+				started.countDown();
+				try {
+					assertTrue("Elements weren't handled in parallel", started.await(10, TimeUnit.SECONDS));
+				} catch (InterruptedException e) {
+					throw new RuntimeException(e);
+				}
+			}
+			assertTrue("Handled an element twice", handled.add(element));
+		}, openCloseable);
+
+		// All elements are done once it returns, including those of the loaders
+		assertEquals(elements.size(), handled.size());
+		// ..., and the loaders that helped have closed again
+		assertTrue(opened.get() > 0);
+		assertEquals(opened.get(), closed.get());
+	}
+
+	private static NonNullPair<Script, List<Structure>> script() {
+		List<Structure> structures = new ArrayList<>();
+		return new NonNullPair<>(new Script(null, structures), structures);
+	}
+
+	private static Pair pair(NonNullPair<Script, List<Structure>> script, Structure.Priority priority) {
+		TestStructure structure = new TestStructure(priority);
+		script.getSecond().add(structure);
+		return new Pair(script, structure);
+	}
+
+	private static class Pair extends NonNullPair<NonNullPair<Script, List<Structure>>, Structure> {
+
+		Pair(NonNullPair<Script, List<Structure>> first, Structure second) {
+			super(first, second);
+		}
+
+	}
+
+	private static class TestStructure extends Structure {
+
+		private final Priority priority;
+
+		TestStructure(Priority priority) {
+			this.priority = priority;
+		}
+
+		@Override
+		public boolean init(Literal<?>[] args, int matchedPattern, ParseResult parseResult, EntryContainer entryContainer) {
+			return true;
+		}
+
+		@Override
+		public boolean load() {
+			return true;
+		}
+
+		@Override
+		public Priority getPriority() {
+			return priority;
+		}
+
+		@Override
+		public String toString(@Nullable Object event, boolean debug) {
+			return "test structure";
+		}
+
+	}
+
+}
@@ -0,0 +1,168 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript;
+
+import ch.njol.skript.config.Config;
+import ch.njol.skript.config.Node;
+import ch.njol.skript.config.SectionNode;
+import ch.njol.skript.config.VoidNode;
+import ch.njol.util.NonNullPair;
+import org.jetbrains.annotations.Nullable;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+/**
+ * Checks how {@link ScriptLoader} matches the loaded structures of a script to its changed contents on a reload.
+ */
+public class ScriptReloadTest {
+
+	@Test
+	public void testUnchanged() throws IOException {
+		List<Node> loaded = sections(
+			"on load:",
+			"\tbroadcast \"a\"",
+			"command /b:",
+			"\ttrigger:",
+			"\t\tbroadcast \"b\""
+		);
+		NonNullPair<List<SectionNode>, List<Node>> changes = diff(loaded,
+			"# moved and commented",
+			"command /b:",
+			"\ttrigger:",
+			"",
+			"\t\tbroadcast \"b\" # comment",
+			"",
+			"on load:",
+			"\tbroadcast \"a\""
+		);
+		assertEquals(Collections.emptyList(), changes.getFirst());
+		assertEquals(Collections.emptyList(), changes.getSecond());
+	}
+
+	@Test
+	public void testChanged() throws IOException {
+		List<Node> loaded = sections(
+			"on load:",
+			"\tbroadcast \"a\"",
+			"on join:",
+			"\tbroadcast \"b\""
+		);
+		NonNullPair<List<SectionNode>, List<Node>> changes = diff(loaded,
+			"on load:",
+			"\tbroadcast \"a\"",
+			"on join:",
+			"\tbroadcast \"c\"",
+			"on quit:",
+			"\tbroadcast \"d\""
+		);
+		assertEquals(Arrays.asList("on join", "on quit"), keys(changes.getFirst()));
+		assertEquals(Collections.singletonList(loaded.get(1)), changes.getSecond());
+
+		changes = diff(loaded,
+			"on join:",
+			"\tbroadcast \"b\"",
+			"\tbroadcast \"c\""
+		);
+		assertEquals(Collections.singletonList("on join"), keys(changes.getFirst()));
+		assertEquals(loaded, sorted(loaded, changes.getSecond()));
+	}
+
+	@Test
+	public void testDuplicates() throws IOException {
+		List<Node> loaded = sections(
+			"on load:",
+			"\tbroadcast \"a\"",
+			"on load:",
+			"\tbroadcast \"a\""
+		);
+		NonNullPair<List<SectionNode>, List<Node>> changes = diff(loaded,
+			"on load:",
+			"\tbroadcast \"a\"",
+			"on load:",
+			"\tbroadcast \"a\"",
+			"on load:",
+			"\tbroadcast \"a\""
+		);
+		assertEquals(1, changes.getFirst().size());
+		assertEquals(Collections.emptyList(), changes.getSecond());
+
+		changes = diff(loaded,
+			"on load:",
+			"\tbroadcast \"a\""
+		);
+		assertEquals(Collections.emptyList(), changes.getFirst());
+		assertEquals(1, changes.getSecond().size());
+	}
+
+	@Test
+	public void testNotSection() throws IOException {
+		List<Node> loaded = sections(
+			"on load:",
+			"\tbroadcast \"a\""
+		);
+		assertNull(ScriptLoader.diffNodes(loaded, Function.identity(), config(
+			"on load:",
+			"\tbroadcast \"a\"",
+			"options: 1"
+		)));
+	}
+
+	private static List<Node> sections(String... lines) throws IOException {
+		List<Node> sections = new ArrayList<>();
+		for (Node node : config(lines)) {
+			if (!(node instanceof VoidNode))
+				sections.add(node);
+		}
+		return sections;
+	}
+
+	private static NonNullPair<List<SectionNode>, List<Node>> diff(List<Node> loaded, String... lines) throws IOException {
+		@Nullable NonNullPair<List<SectionNode>, List<Node>> changes = ScriptLoader.diffNodes(loaded, Function.identity(), config(lines));
+		assertNotNull(changes);
+		return changes;
+	}
+
+	private static SectionNode config(String... lines) throws IOException {
+		return new Config(String.join("\n", lines), "test.sk", true, false, ":").getMainNode();
+	}
+
+	private static List<String> keys(List<SectionNode> nodes) {
+		List<String> keys = new ArrayList<>();
+		for (SectionNode node : nodes)
+			keys.add(node.getKey());
+		return keys;
+	}
+
+	private static List<Node> sorted(List<Node> order, List<Node> nodes) {
+		List<Node> sorted = new ArrayList<>(nodes);
+		sorted.sort((a, b) -> order.indexOf(a) - order.indexOf(b));
+		return sorted;
+	}
+
+}
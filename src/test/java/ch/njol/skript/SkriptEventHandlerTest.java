@@ -0,0 +1,136 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript;
+
+import ch.njol.skript.lang.Literal;
+import ch.njol.skript.lang.SkriptEvent;
+import ch.njol.skript.lang.SkriptParser.ParseResult;
+import ch.njol.skript.lang.Trigger;
+import com.ultreon.libs.events.v0.EventPriority;
+import org.jetbrains.annotations.Nullable;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Checks that {@link SkriptEventHandler} finds the triggers of an event class,
+ * including those registered for its supertypes, and only recomputes them when triggers change.
+ */
+public class SkriptEventHandlerTest {
+
+	private static final EventPriority FIRST = EventPriority.values()[0];
+	private static final EventPriority LAST = EventPriority.values()[EventPriority.values().length - 1];
+
+	private static class Event {}
+
+	private static class SubEvent extends Event {}
+
+	private static class OtherEvent {}
+
+	private final List<Trigger> registered = new ArrayList<>();
+
+	@After
+	public void tearDown() {
+		for (Trigger trigger : registered)
+			SkriptEventHandler.unregisterBukkitEvents(trigger);
+	}
+
+	@Test
+	public void testNoTriggers() {
+		Trigger[][] buckets = SkriptEventHandler.getTriggers(OtherEvent.class);
+		assertEquals(EventPriority.values().length, buckets.length);
+		for (Trigger[] bucket : buckets)
+			assertEquals(0, bucket.length);
+	}
+
+	@Test
+	public void testSupertypesAndPriorities() {
+		Trigger normal = register(Event.class, EventPriority.NORMAL);
+		Trigger first = register(SubEvent.class, FIRST);
+		Trigger last = register(Event.class, LAST);
+
+		Trigger[][] buckets = SkriptEventHandler.getTriggers(SubEvent.class);
+		assertArrayEquals(new Trigger[] {first}, buckets[FIRST.ordinal()]);
+		assertArrayEquals(new Trigger[] {normal}, buckets[EventPriority.NORMAL.ordinal()]);
+		assertArrayEquals(new Trigger[] {last}, buckets[LAST.ordinal()]);
+
+		// Triggers of a subtype don't run for its supertype
+		buckets = SkriptEventHandler.getTriggers(Event.class);
+		assertEquals(0, buckets[FIRST.ordinal()].length);
+		assertArrayEquals(new Trigger[] {normal}, buckets[EventPriority.NORMAL.ordinal()]);
+	}
+
+	@Test
+	public void testCacheInvalidation() {
+		Trigger first = register(Event.class, EventPriority.NORMAL);
+		Trigger[][] buckets = SkriptEventHandler.getTriggers(SubEvent.class);
+		assertSame(buckets, SkriptEventHandler.getTriggers(SubEvent.class));
+
+		// Registering the same trigger again changes nothing
+		SkriptEventHandler.registerBukkitEvent(first, Event.class);
+		assertArrayEquals(new Trigger[] {first}, SkriptEventHandler.getTriggers(SubEvent.class)[EventPriority.NORMAL.ordinal()]);
+
+		Trigger second = register(Event.class, EventPriority.NORMAL);
+		Trigger[][] updated = SkriptEventHandler.getTriggers(SubEvent.class);
+		assertNotSame(buckets, updated);
+		assertArrayEquals(new Trigger[] {first, second}, updated[EventPriority.NORMAL.ordinal()]);
+
+		SkriptEventHandler.unregisterBukkitEvents(first);
+		assertArrayEquals(new Trigger[] {second}, SkriptEventHandler.getTriggers(SubEvent.class)[EventPriority.NORMAL.ordinal()]);
+	}
+
+	private Trigger register(Class<?> event, EventPriority priority) {
+		Trigger trigger = new Trigger(null, "test", new TestEvent(priority), Collections.emptyList());
+		SkriptEventHandler.registerBukkitEvent(trigger, event);
+		registered.add(trigger);
+		return trigger;
+	}
+
+	private static class TestEvent extends SkriptEvent {
+
+		TestEvent(EventPriority priority) {
+			eventPriority = priority;
+		}
+
+		@Override
+		public boolean init(Literal<?>[] args, int matchedPattern, ParseResult parseResult) {
+			return true;
+		}
+
+		@Override
+		public boolean check(Object event) {
+			return true;
+		}
+
+		@Override
+		public String toString(@Nullable Object event, boolean debug) {
+			return "test event";
+		}
+
+	}
+
+}
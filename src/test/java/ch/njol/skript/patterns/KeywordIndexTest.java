@@ -0,0 +1,98 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.patterns;
+
+import ch.njol.skript.lang.ParseContext;
+import ch.njol.skript.lang.SkriptParser;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Checks that the keywords of patterns are given shared ids,
+ * and that matching a {@link KeywordIndex.Line} gives the same results as matching the plain input.
+ */
+public class KeywordIndexTest {
+
+	@Test
+	public void testIds() {
+		int[] ids = KeywordIndex.getIds(new String[] {"keyword index test", "other keyword"});
+		assertNotEquals(ids[0], ids[1]);
+		assertArrayEquals(ids, KeywordIndex.getIds(new String[] {"keyword index test", "other keyword"}));
+		assertArrayEquals(new int[] {ids[1]}, KeywordIndex.getIds(new String[] {"other keyword"}));
+		assertTrue(KeywordIndex.size() > Math.max(ids[0], ids[1]));
+	}
+
+	@Test
+	public void testContainsAll() {
+		String[] keywords = {"first keyword", "second keyword"};
+		int[] ids = KeywordIndex.getIds(keywords);
+		KeywordIndex.Line line = new KeywordIndex.Line("Contains the FIRST KEYWORD and the second keyword");
+		assertTrue(line.containsAll(keywords, ids));
+		assertTrue(line.containsAll(keywords, ids)); // answered from the line's cache
+
+		String[] missing = {"first keyword", "missing keyword"};
+		assertFalse(line.containsAll(missing, KeywordIndex.getIds(missing)));
+	}
+
+	@Test
+	public void testKeywordsAddedAfterLine() {
+		KeywordIndex.Line line = new KeywordIndex.Line("a keyword added later");
+		String[] keywords = {"keyword added later"};
+		int[] ids = KeywordIndex.getIds(keywords);
+		assertTrue(line.containsAll(keywords, ids));
+
+		String[] missing = {"keyword never in the line"};
+		assertFalse(line.containsAll(missing, KeywordIndex.getIds(missing)));
+	}
+
+	@Test
+	public void testMatchLine() {
+		SkriptPattern pattern = PatternCompiler.compile("keyword index [of the] (first|second) test");
+
+		String[] inputs = {
+			"keyword index first test",
+			"keyword index of the second test",
+			"  keyword index second test  ",
+			"keyword index third test",
+			"keyword index first",
+			"unrelated",
+		};
+		for (String input : inputs) {
+			MatchResult expected = pattern.match(input, SkriptParser.ALL_FLAGS, ParseContext.DEFAULT);
+			MatchResult actual = pattern.match(new KeywordIndex.Line(input.trim()), SkriptParser.ALL_FLAGS, ParseContext.DEFAULT);
+			if (expected == null) {
+				assertNull(input, actual);
+			} else {
+				assertNotNull(input, actual);
+				assertEquals(input, expected.toParseResult().mark, actual.toParseResult().mark);
+				assertEquals(input, expected.toParseResult().expr, actual.toParseResult().expr);
+			}
+		}
+		assertNotNull(pattern.match("keyword index first test"));
+		assertNull(pattern.match("keyword index third test"));
+	}
+
+}
@@ -0,0 +1,229 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.variables;
+
+import ch.njol.skript.log.BlockingLogHandler;
+import ch.njol.skript.log.CountingLogHandler;
+import ch.njol.skript.variables.SerializedVariable.Value;
+import org.apache.logging.log4j.Level;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Writes variables through a {@link BinaryLogStorage} and reads them back with a new storage of the same file,
+ * like a restart of the server would.
+ */
+public class BinaryLogStorageTest {
+
+	private File directory;
+	private File file;
+	private BinaryLogStorage storage;
+
+	@Before
+	public void setUp() throws IOException {
+		directory = Files.createTempDirectory("skript-variables").toFile();
+		file = new File(directory, "variables.dat");
+		reopen();
+	}
+
+	@After
+	public void tearDown() {
+		storage.disconnect();
+		File[] files = directory.listFiles();
+		if (files != null) {
+			for (File file : files)
+				//noinspection ResultOfMethodCallIgnored
+				file.delete();
+		}
+		//noinspection ResultOfMethodCallIgnored
+		directory.delete();
+	}
+
+	@Test
+	public void testRoundTrip() throws IOException {
+		assertTrue(storage.save("single", "string", bytes("value")));
+		storage.saveBatch(Arrays.asList(
+			new SerializedVariable("list::1", new Value("string", bytes("first"))),
+			new SerializedVariable("list::2", new Value("long", new byte[] {0, 0, 0, 0, 0, 0, 0, 42}))
+		));
+		storage.disconnect();
+
+		Map<String, Value> variables = reopen();
+		assertEquals(3, variables.size());
+		assertValue(variables.get("single"), "string", bytes("value"));
+		assertValue(variables.get("list::1"), "string", bytes("first"));
+		assertValue(variables.get("list::2"), "long", new byte[] {0, 0, 0, 0, 0, 0, 0, 42});
+	}
+
+	@Test
+	public void testOverwriteAndDelete() throws IOException {
+		storage.saveBatch(Arrays.asList(
+			new SerializedVariable("kept", new Value("string", bytes("old"))),
+			new SerializedVariable("deleted", new Value("string", bytes("gone soon")))
+		));
+		storage.saveBatch(Arrays.asList(
+			new SerializedVariable("kept", new Value("string", bytes("new"))),
+			new SerializedVariable("deleted", null)
+		));
+		storage.disconnect();
+
+		Map<String, Value> variables = reopen();
+		assertValue(variables.get("kept"), "string", bytes("new"));
+		assertTrue(variables.containsKey("deleted"));
+		assertNull(variables.get("deleted"));
+	}
+
+	@Test
+	public void testIncompleteRecordIsDropped() throws IOException {
+		assertTrue(storage.save("complete", "string", bytes("1")));
+		assertTrue(storage.save("incomplete", "string", bytes("2")));
+		storage.disconnect();
+
+		// Cut off the end of the last record, as a crash while writing it would
+		File log = new File(file.getPath() + ".log");
+		try (RandomAccessFile access = new RandomAccessFile(log, "rw")) {
+			access.setLength(access.length() - 1);
+		}
+
+		Map<String, Value> variables;
+		try (BlockingLogHandler ignored = new BlockingLogHandler().start();
+			 CountingLogHandler warnings = new CountingLogHandler(Level.WARN).start()) {
+			variables = reopen();
+			assertEquals(1, warnings.getCount()); // about the incomplete log
+		}
+		assertValue(variables.get("complete"), "string", bytes("1"));
+		assertFalse(variables.containsKey("incomplete"));
+
+		// Changes after the incomplete record must not be lost behind it
+		assertTrue(storage.save("after", "string", bytes("3")));
+		storage.disconnect();
+
+		variables = reopen();
+		assertValue(variables.get("complete"), "string", bytes("1"));
+		assertValue(variables.get("after"), "string", bytes("3"));
+		assertFalse(variables.containsKey("incomplete"));
+	}
+
+	@Test
+	public void testZeroFilledTailIsDropped() throws IOException {
+		assertTrue(storage.save("complete", "string", bytes("1")));
+		storage.disconnect();
+
+		// A crash or power loss may leave zeroes at the end of the file, which look like an empty record
+		File log = new File(file.getPath() + ".log");
+		try (RandomAccessFile access = new RandomAccessFile(log, "rw")) {
+			access.setLength(access.length() + 64);
+		}
+
+		Map<String, Value> variables;
+		try (BlockingLogHandler ignored = new BlockingLogHandler().start();
+			 CountingLogHandler warnings = new CountingLogHandler(Level.WARN).start()) {
+			variables = reopen();
+			assertEquals(1, warnings.getCount()); // about the incomplete log
+		}
+		assertEquals(1, variables.size());
+		assertValue(variables.get("complete"), "string", bytes("1"));
+
+		assertTrue(storage.save("after", "string", bytes("2")));
+		storage.disconnect();
+
+		variables = reopen();
+		assertValue(variables.get("complete"), "string", bytes("1"));
+		assertValue(variables.get("after"), "string", bytes("2"));
+	}
+
+	@Test
+	public void testCompaction() throws IOException {
+		storage.saveBatch(Arrays.asList(
+			new SerializedVariable("kept", new Value("string", bytes("old"))),
+			new SerializedVariable("deleted", new Value("string", bytes("gone soon")))
+		));
+		storage.disconnect();
+
+		// A log sealed by a compaction that didn't finish is merged by the next compaction, however small it is
+		File log = new File(file.getPath() + ".log");
+		File sealedLog = new File(file.getPath() + ".log.old");
+		assertTrue(log.renameTo(sealedLog));
+
+		reopen();
+		storage.saveBatch(Arrays.asList(
+			new SerializedVariable("kept", new Value("string", bytes("new"))),
+			new SerializedVariable("deleted", null)
+		));
+		storage.compact();
+		assertFalse(sealedLog.exists());
+		assertTrue(file.length() > 0);
+
+		// The log written during the compaction still applies on top of the snapshot
+		storage.disconnect();
+		Map<String, Value> variables = reopen();
+		assertValue(variables.get("kept"), "string", bytes("new"));
+		assertNull(variables.get("deleted"));
+
+		// Once this log is compacted as well, the snapshot alone has the latest values
+		storage.disconnect();
+		assertTrue(log.renameTo(sealedLog));
+		reopen();
+		storage.compact();
+		storage.disconnect();
+		assertTrue(new File(file.getPath() + ".log").delete());
+
+		variables = reopen();
+		assertEquals(1, variables.size());
+		assertValue(variables.get("kept"), "string", bytes("new"));
+	}
+
+	/**
+	 * Replaces the storage by a new one of the same file, as if the server restarted.
+	 *
+	 * @return the variables read by the new storage.
+	 */
+	private Map<String, Value> reopen() throws IOException {
+		storage = new BinaryLogStorage("test");
+		storage.file = file;
+		Map<String, Value> variables = storage.readVariables();
+		assertTrue(storage.connect());
+		return variables;
+	}
+
+	private static void assertValue(Value value, String type, byte[] data) {
+		assertEquals(type, value.type);
+		assertArrayEquals(data, value.data);
+	}
+
+	private static byte[] bytes(String string) {
+		return string.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
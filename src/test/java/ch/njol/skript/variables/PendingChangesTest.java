@@ -0,0 +1,90 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.variables;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Checks that changes of global variables, which are queued while the stripe of the variable is locked,
+ * can be read right away without waiting for the lock.
+ * <p>
+ * Applying the queued changes saves them, which needs the registered class infos,
+ * so this test only covers the changes while they are pending.
+ */
+public class PendingChangesTest {
+
+	private static final String NAME = "pending changes test::value";
+
+	private final CountDownLatch locked = new CountDownLatch(1);
+	private final CountDownLatch release = new CountDownLatch(1);
+	private final ExecutorService reader = Executors.newSingleThreadExecutor();
+	private Thread holder;
+
+	@Before
+	public void lockStripe() throws InterruptedException {
+		Lock lock = Variables.getWriteLock(NAME);
+		holder = new Thread(() -> {
+			lock.lock();
+			try {
+				locked.countDown();
+				release.await();
+			} catch (InterruptedException ignored) {
+			} finally {
+				lock.unlock();
+			}
+		});
+		holder.start();
+		locked.await();
+	}
+
+	@After
+	public void unlockStripe() throws InterruptedException {
+		release.countDown();
+		holder.join();
+		reader.shutdownNow();
+	}
+
+	@Test
+	public void testLatestChangeIsVisible() throws Exception {
+		Variables.setVariable(NAME, "first");
+		assertEquals("first", read());
+		Variables.setVariable(NAME, "second");
+		assertEquals("second", read());
+		Variables.setVariable(NAME, "third");
+		assertEquals("third", read());
+	}
+
+	/**
+	 * Reads the variable on another thread, failing if the read waits for the lock.
+	 */
+	private Object read() throws Exception {
+		return reader.submit(() -> Variables.getVariable(NAME, null, false)).get(5, TimeUnit.SECONDS);
+	}
+
+}
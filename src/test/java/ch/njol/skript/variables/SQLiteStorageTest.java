@@ -0,0 +1,135 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.variables;
+
+import ch.njol.skript.variables.SerializedVariable.Value;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Writes variables through an {@link SQLiteStorage} to an embedded database
+ * and reads them back with a connection of its own.
+ */
+public class SQLiteStorageTest {
+
+	private File file;
+	private SQLiteStorage storage;
+
+	@Before
+	public void setUp() throws IOException {
+		file = File.createTempFile("skript-variables", ".db");
+		storage = new SQLiteStorage("test");
+		storage.file = file;
+		assertTrue(storage.connect());
+	}
+
+	@After
+	public void tearDown() {
+		storage.disconnect();
+		//noinspection ResultOfMethodCallIgnored
+		file.delete();
+	}
+
+	@Test
+	public void testRoundTrip() throws SQLException {
+		assertTrue(storage.save("single", "string", bytes("value")));
+		storage.saveBatch(Arrays.asList(
+			new SerializedVariable("list::1", new Value("string", bytes("first"))),
+			new SerializedVariable("list::2", new Value("long", new byte[] {0, 0, 0, 0, 0, 0, 0, 42}))
+		));
+		storage.disconnect(); // commits
+
+		Map<String, Value> rows = readRows();
+		assertEquals(3, rows.size());
+		assertValue(rows.get("single"), "string", bytes("value"));
+		assertValue(rows.get("list::1"), "string", bytes("first"));
+		assertValue(rows.get("list::2"), "long", new byte[] {0, 0, 0, 0, 0, 0, 0, 42});
+	}
+
+	@Test
+	public void testOverwriteAndDelete() throws SQLException {
+		storage.saveBatch(Arrays.asList(
+			new SerializedVariable("kept", new Value("string", bytes("old"))),
+			new SerializedVariable("deleted", new Value("string", bytes("gone soon")))
+		));
+		storage.saveBatch(Arrays.asList(
+			new SerializedVariable("kept", new Value("string", bytes("new"))),
+			new SerializedVariable("deleted", null)
+		));
+		storage.disconnect();
+
+		Map<String, Value> rows = readRows();
+		assertEquals(1, rows.size());
+		assertValue(rows.get("kept"), "string", bytes("new"));
+		assertFalse(rows.containsKey("deleted"));
+	}
+
+	@Test
+	public void testReconnect() throws SQLException {
+		assertTrue(storage.save("before", "string", bytes("1")));
+		storage.disconnect();
+
+		// Writing reconnects on its own
+		assertTrue(storage.save("after", "string", bytes("2")));
+		storage.disconnect();
+
+		Map<String, Value> rows = readRows();
+		assertValue(rows.get("before"), "string", bytes("1"));
+		assertValue(rows.get("after"), "string", bytes("2"));
+	}
+
+	private Map<String, Value> readRows() throws SQLException {
+		Map<String, Value> rows = new HashMap<>();
+		try (Connection connection = DriverManager.getConnection("jdbc:sqlite:" + file.getPath());
+			 Statement statement = connection.createStatement();
+			 ResultSet result = statement.executeQuery("SELECT name, type, value FROM " + storage.getTableName())) {
+			while (result.next())
+				rows.put(result.getString(1), new Value(result.getString(2), result.getBytes(3)));
+		}
+		return rows;
+	}
+
+	private static void assertValue(Value value, String type, byte[] data) {
+		assertEquals(type, value.type);
+		assertArrayEquals(data, value.data);
+	}
+
+	private static byte[] bytes(String string) {
+		return string.getBytes(StandardCharsets.UTF_8);
+	}
+
+}
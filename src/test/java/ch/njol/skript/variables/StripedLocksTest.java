@@ -0,0 +1,120 @@
+/**
+ *   This file is part of Skript.
+ *
+ *  Skript is free software: you can redistribute it and/or modify
+ *  it under the terms of the GNU General Public License as published by
+ *  the Free Software Foundation, either version 3 of the License, or
+ *  (at your option) any later version.
+ *
+ *  Skript is distributed in the hope that it will be useful,
+ *  but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *  MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *  GNU General Public License for more details.
+ *
+ *  You should have received a copy of the GNU General Public License
+ *  along with Skript.  If not, see <http://www.gnu.org/licenses/>.
+ *
+ * Copyright Peter Güttinger, SkriptLang team and contributors
+ */
+package ch.njol.skript.variables;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.Lock;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that global variables are locked by the top-level part of their name,
+ * so that a writer of one namespace doesn't block readers of another.
+ */
+public class StripedLocksTest {
+
+	private static final String LOCKED = "striped locks test";
+
+	private final ExecutorService reader = Executors.newSingleThreadExecutor();
+
+	@After
+	public void tearDown() {
+		reader.shutdownNow();
+	}
+
+	@Test
+	public void testNamespaceSharesLock() {
+		Lock lock = Variables.getWriteLock(LOCKED);
+		assertSame(lock, Variables.getWriteLock(LOCKED + "::1"));
+		assertSame(lock, Variables.getWriteLock(LOCKED + "::*"));
+		assertSame(lock, Variables.getWriteLock(LOCKED + "::a::b"));
+	}
+
+	@Test
+	public void testOtherNamespaceIsNotBlocked() throws Exception {
+		String other = otherNamespace();
+
+		Lock lock = Variables.getWriteLock(LOCKED);
+		CountDownLatch locked = new CountDownLatch(1);
+		CountDownLatch release = new CountDownLatch(1);
+		Thread holder = new Thread(() -> {
+			lock.lock();
+			try {
+				locked.countDown();
+				release.await();
+			} catch (InterruptedException ignored) {
+			} finally {
+				lock.unlock();
+			}
+		});
+		holder.start();
+		locked.await();
+
+		try {
+			// Readers of another namespace go ahead
+			assertNull(read(other + "::value").get(5, TimeUnit.SECONDS));
+			assertNull(read(other + "::*").get(5, TimeUnit.SECONDS));
+
+			// ..., while readers of the locked namespace wait for the writer
+			Future<Object> blocked = read(LOCKED + "::value");
+			try {
+				blocked.get(100, TimeUnit.MILLISECONDS);
+				fail("Read a variable while its namespace was locked");
+			} catch (TimeoutException expected) {}
+			assertFalse(blocked.isDone());
+
+			release.countDown();
+			assertNull(blocked.get(5, TimeUnit.SECONDS));
+		} finally {
+			release.countDown();
+			holder.join();
+		}
+	}
+
+	/**
+	 * Finds a namespace whose variables are locked independently of those of {@link #LOCKED}.
+	 */
+	private static String otherNamespace() {
+		Lock lock = Variables.getWriteLock(LOCKED);
+		for (int i = 0; ; i++) {
+			String namespace = "other " + i;
+			if (Variables.getWriteLock(namespace) != lock) {
+				assertNotSame(lock, Variables.getWriteLock(namespace + "::value"));
+				return namespace;
+			}
+		}
+	}
+
+	private Future<Object> read(String name) {
+		return reader.submit(() -> Variables.getVariable(name, null, false));
+	}
+
+}
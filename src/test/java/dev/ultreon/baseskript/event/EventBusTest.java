@@ -0,0 +1,141 @@
+package dev.ultreon.baseskript.event;
+
+import com.ultreon.libs.events.v0.SubscribeEvent;
+import org.junit.After;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Checks that annotated subscribers are called through the invokers bound by {@link EventBus},
+ * both those generated through {@link java.lang.invoke.LambdaMetafactory} and the method handle fallback.
+ */
+public class EventBusTest {
+
+	private static final List<Object> received = new ArrayList<>();
+
+	public static class TestEvent {}
+
+	public static class PublicSubscribers {
+
+		@SubscribeEvent
+		public static void onStatic(TestEvent event) {
+			received.add("public static");
+		}
+
+		@SubscribeEvent
+		public void onInstance(TestEvent event) {
+			received.add(this);
+		}
+
+	}
+
+	public static class PrivateSubscribers {
+
+		@SubscribeEvent
+		private static void onStatic(TestEvent event) {
+			received.add("private static");
+		}
+
+	}
+
+	static class HiddenSubscribers {
+
+		@SubscribeEvent
+		public void onInstance(TestEvent event) {
+			received.add(this);
+		}
+
+	}
+
+	public static class ThrowingSubscribers {
+
+		@SubscribeEvent
+		public static void onStatic(TestEvent event) {
+			throw new IllegalStateException("thrown by the subscriber");
+		}
+
+	}
+
+	@After
+	public void tearDown() {
+		received.clear();
+	}
+
+	@Test
+	public void testLinkable() throws NoSuchMethodException {
+		assertTrue(EventBus.isLinkable(PublicSubscribers.class.getMethod("onStatic", TestEvent.class)));
+		assertTrue(EventBus.isLinkable(PublicSubscribers.class.getMethod("onInstance", TestEvent.class)));
+		assertFalse(EventBus.isLinkable(PrivateSubscribers.class.getDeclaredMethod("onStatic", TestEvent.class)));
+		assertFalse(EventBus.isLinkable(HiddenSubscribers.class.getMethod("onInstance", TestEvent.class)));
+	}
+
+	@Test
+	public void testGeneratedInvokers() throws NoSuchMethodException {
+		invoker(null, PublicSubscribers.class.getMethod("onStatic", TestEvent.class)).accept(new TestEvent());
+		PublicSubscribers subscribers = new PublicSubscribers();
+		invoker(subscribers, PublicSubscribers.class.getMethod("onInstance", TestEvent.class)).accept(new TestEvent());
+
+		assertEquals(2, received.size());
+		assertEquals("public static", received.get(0));
+		assertSame(subscribers, received.get(1));
+	}
+
+	@Test
+	public void testFallbackInvokers() throws NoSuchMethodException {
+		invoker(null, PrivateSubscribers.class.getDeclaredMethod("onStatic", TestEvent.class)).accept(new TestEvent());
+		HiddenSubscribers subscribers = new HiddenSubscribers();
+		invoker(subscribers, HiddenSubscribers.class.getMethod("onInstance", TestEvent.class)).accept(new TestEvent());
+
+		assertEquals(2, received.size());
+		assertEquals("private static", received.get(0));
+		assertSame(subscribers, received.get(1));
+	}
+
+	@Test
+	public void testExceptionsArePassedOn() throws NoSuchMethodException {
+		Consumer<Object> invoker = invoker(null, ThrowingSubscribers.class.getMethod("onStatic", TestEvent.class));
+		try {
+			invoker.accept(new TestEvent());
+			fail("The exception of the subscriber was swallowed");
+		} catch (IllegalStateException e) {
+			assertEquals("thrown by the subscriber", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testPublish() {
+		EventBus bus = new EventBus();
+		bus.subscribe(PublicSubscribers.class);
+		bus.subscribe(PrivateSubscribers.class);
+		HiddenSubscribers subscribers = new HiddenSubscribers();
+		bus.subscribe(subscribers);
+
+		bus.publish(new TestEvent());
+		assertEquals(3, received.size());
+		assertTrue(received.contains("public static"));
+		assertTrue(received.contains("private static"));
+		assertTrue(received.contains(subscribers));
+
+		bus.unsubscribe(subscribers);
+		received.clear();
+		bus.publish(new TestEvent());
+		assertEquals(2, received.size());
+		assertFalse(received.contains(subscribers));
+	}
+
+	private static Consumer<Object> invoker(Object obj, Method method) {
+		method.setAccessible(true);
+		return EventBus.createInvoker(obj, method);
+	}
+
+}